@@ -1,6 +1,7 @@
 plugins {
     `maven-publish`
     id("hytale-mod") version "0.+"
+    alias(libs.plugins.jmh)
 }
 
 group = "com.example"
@@ -17,6 +18,12 @@ repositories {
 dependencies {
     compileOnly(libs.jetbrains.annotations)
     compileOnly(libs.jspecify)
+    // Embedded database for the optional SQL storage; bundled into the plugin jar below
+    implementation(libs.h2)
+
+    testImplementation(platform(libs.junit.bom))
+    testImplementation(libs.junit.jupiter)
+    testRuntimeOnly(libs.junit.platform.launcher)
 }
 
 hytale {
@@ -72,6 +79,52 @@ tasks.withType<Jar> {
     }
 }
 
+// Tests in src/test/java run the registries on a plain JVM too, against an in-memory storage
+configurations.named("testImplementation") {
+    extendsFrom(configurations.compileOnly.get())
+}
+
+tasks.named<Test>("test") {
+    useJUnitPlatform()
+}
+
+// Benchmarks in src/jmh/java run the registries on a plain JVM (./gradlew jmh), so they need the
+// server classes the plugin only compiles against
+configurations.named("jmhImplementation") {
+    extendsFrom(configurations.compileOnly.get())
+}
+
+jmh {
+    jmhVersion = libs.versions.jmh.get()
+    // The largest discovery fixtures (1M players) don't fit the default heap
+    jvmArgs = listOf("-Xmx4g")
+    resultFormat = "JSON"
+    // Allocation rate next to throughput, to see what saves and list builds cost the GC
+    profilers = listOf("gc")
+}
+
+// Writes synthetic data files for load-testing startup, e.g.
+// ./gradlew generateWaystoneFixtures -Pwaystones=10000 -Pplayers=100000 -Pformat=binary
+tasks.register<JavaExec>("generateWaystoneFixtures") {
+    group = "benchmark"
+    description = "Writes synthetic waystones.json / waystones-players.json files."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass = "com.example.exampleplugin.waystone.WaystoneFixtureGenerator"
+    args = listOf(
+        findProperty("dir")?.toString() ?: layout.buildDirectory.dir("fixtures").get().asFile.path,
+        findProperty("waystones")?.toString() ?: "10000",
+        findProperty("players")?.toString() ?: "100000",
+        findProperty("format")?.toString() ?: "json"
+    )
+}
+
+tasks.named<Jar>("jar") {
+    // The server only loads the plugin jar, so runtime dependencies are shipped inside it
+    from(configurations.runtimeClasspath.map { files -> files.map { if (it.isDirectory) it else zipTree(it) } })
+    exclude("META-INF/*.SF", "META-INF/*.DSA", "META-INF/*.RSA")
+    duplicatesStrategy = DuplicatesStrategy.EXCLUDE
+}
+
 publishing {
     repositories {
         // This is where you put repositories that you want to publish to.
@@ -0,0 +1,63 @@
+package com.example.exampleplugin.waystone;
+
+import org.bson.BsonDocument;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a discovery save and load cost: building and parsing the waystones-players.json document,
+ * with and without rendering it as text.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiscoveryDocumentBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int players;
+
+    @Param({"1000"})
+    public int waystones;
+
+    private Map<String, List<String>> discoveries;
+    private BsonDocument document;
+    private String json;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        discoveries = WaystoneFixtures.network(waystones, players).discoveries();
+        document = FileWaystoneStorage.encodePlayers(discoveries);
+        json = WaystoneFiles.toJson(document);
+    }
+
+    @Benchmark
+    public BsonDocument buildDocument() {
+        return FileWaystoneStorage.encodePlayers(discoveries);
+    }
+
+    @Benchmark
+    public Map<String, List<String>> parseDocument() {
+        return FileWaystoneStorage.decodePlayers(document);
+    }
+
+    @Benchmark
+    public String writeJson() {
+        return WaystoneFiles.toJson(FileWaystoneStorage.encodePlayers(discoveries));
+    }
+
+    @Benchmark
+    public Map<String, List<String>> readJson() {
+        return FileWaystoneStorage.decodePlayers(BsonDocument.parse(json));
+    }
+
+    @Benchmark
+    public byte[] writeBinary() {
+        return WaystoneBinaryFormat.encodeDiscoveries(discoveries);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.exampleplugin.waystone;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Discovery lookups on {@link PlayerDiscoveryRegistry}, done for every waystone shown in a
+ * player's list when discovery is required.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayerDiscoveryBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int players;
+
+    @Param({"1000"})
+    public int waystones;
+
+    private PlayerDiscoveryRegistry registry;
+    private String[] playerIds;
+    private String[] waystoneIds;
+    private final WaystoneFixtures.QueryCursor queries = new WaystoneFixtures.QueryCursor();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        WaystoneFixtures.Network network = WaystoneFixtures.network(waystones, players).load();
+        Map<String, List<String>> discoveries = network.discoveries();
+        registry = PlayerDiscoveryRegistry.get();
+
+        String[] known = discoveries.keySet().toArray(new String[0]);
+        Random random = new Random(WaystoneFixtures.SEED + 1);
+        playerIds = new String[WaystoneFixtures.QUERIES];
+        waystoneIds = new String[WaystoneFixtures.QUERIES];
+        for (int i = 0; i < WaystoneFixtures.QUERIES; i++) {
+            playerIds[i] = known[random.nextInt(known.length)];
+            List<String> found = discoveries.get(playerIds[i]);
+            // Mix hits and misses
+            waystoneIds[i] = !found.isEmpty() && random.nextBoolean()
+                    ? found.get(random.nextInt(found.size()))
+                    : network.waystones()[random.nextInt(waystones)].getId();
+        }
+    }
+
+    @Benchmark
+    public boolean hasDiscovered() {
+        int query = queries.next();
+        return registry.hasDiscovered(playerIds[query], waystoneIds[query]);
+    }
+
+    @Benchmark
+    public Set<String> getDiscoveredWaystones() {
+        return registry.getDiscoveredWaystones(playerIds[queries.next()]);
+    }
+}
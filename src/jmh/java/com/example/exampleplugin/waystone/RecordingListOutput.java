@@ -0,0 +1,56 @@
+package com.example.exampleplugin.waystone;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Stand-in for the page's UICommandBuilder / UIEventBuilder that counts what a build sends.
+ * Payload is the total length of selectors, documents and values, as a proxy for packet size.
+ */
+final class RecordingListOutput implements WaystoneListPage.ListOutput {
+
+    long commands;
+    long events;
+    long payloadChars;
+
+    void reset() {
+        commands = 0;
+        events = 0;
+        payloadChars = 0;
+    }
+
+    @Override
+    public void append(@Nonnull String document) {
+        commands++;
+        payloadChars += document.length();
+    }
+
+    @Override
+    public void append(@Nonnull String selector, @Nonnull String document) {
+        commands++;
+        payloadChars += selector.length() + document.length();
+    }
+
+    @Override
+    public void set(@Nonnull String selector, @Nonnull String value) {
+        commands++;
+        payloadChars += selector.length() + value.length();
+    }
+
+    @Override
+    public void set(@Nonnull String selector, boolean value) {
+        commands++;
+        payloadChars += selector.length() + (value ? 4 : 5);
+    }
+
+    @Override
+    public void clear(@Nonnull String selector) {
+        commands++;
+        payloadChars += selector.length();
+    }
+
+    @Override
+    public void bind(@Nonnull String selector, @Nonnull String key, @Nonnull String value) {
+        events++;
+        payloadChars += selector.length() + key.length() + value.length();
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.exampleplugin.waystone;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a waystone save and load cost: {@link Waystone#ARRAY_CODEC} on its own, the full JSON file
+ * (codec plus text), and the binary format for comparison.
+ * Run with the GC profiler (on by default in build.gradle.kts) to see bytes allocated per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WaystoneCodecBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int waystones;
+
+    private Waystone[] network;
+    private BsonDocument config;
+    private BsonValue encoded;
+    private String json;
+    private byte[] binary;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        network = WaystoneFixtures.waystones(waystones, WaystoneFixtures.SEED);
+        config = new BsonDocument();
+        encoded = Waystone.ARRAY_CODEC.encode(network);
+        json = WaystoneFiles.toJson(document(encoded));
+        binary = WaystoneBinaryFormat.encodeWaystones(config, network);
+    }
+
+    private BsonDocument document(BsonValue waystoneArray) {
+        BsonDocument document = new BsonDocument();
+        document.put("Config", config);
+        document.put("Waystones", waystoneArray);
+        return document;
+    }
+
+    @Benchmark
+    public BsonValue encodeArray() {
+        return Waystone.ARRAY_CODEC.encode(network);
+    }
+
+    @Benchmark
+    public Waystone[] decodeArray() {
+        return Waystone.ARRAY_CODEC.decode(encoded);
+    }
+
+    @Benchmark
+    public String writeJson() {
+        return WaystoneFiles.toJson(document(Waystone.ARRAY_CODEC.encode(network)));
+    }
+
+    @Benchmark
+    public Waystone[] readJson() {
+        return Waystone.ARRAY_CODEC.decode((BsonValue) BsonDocument.parse(json).getArray("Waystones"));
+    }
+
+    @Benchmark
+    public byte[] writeBinary() {
+        return WaystoneBinaryFormat.encodeWaystones(config, network);
+    }
+
+    @Benchmark
+    public Waystone[] readBinary() throws IOException {
+        return WaystoneBinaryFormat.decodeWaystones(ByteBuffer.wrap(binary)).waystones();
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.exampleplugin.waystone;
+
+import org.bson.BsonBoolean;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a synthetic waystones.json and waystones-players.json (or the .bin files) for load-testing
+ * server startup. Copy the output into a universe folder while the server is stopped.
+ * <p>
+ * Usage: ./gradlew generateWaystoneFixtures -Pdir=build/fixtures -Pwaystones=10000 -Pplayers=100000 -Pformat=json
+ * (arguments: directory, waystones, players, json or binary)
+ */
+public final class WaystoneFixtureGenerator {
+
+    private WaystoneFixtureGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Path.of(args.length > 0 ? args[0] : "build/fixtures");
+        int waystones = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int players = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        boolean binary = args.length > 3 && args[3].equalsIgnoreCase("binary");
+
+        WaystoneFixtures.Network fixture = WaystoneFixtures.network(waystones, players);
+        Waystone[] network = fixture.waystones();
+        Map<String, List<String>> discoveries = fixture.discoveries();
+
+        BsonDocument config = new BsonDocument();
+        config.put("binaryStorage", new BsonBoolean(binary));
+        config.put("backups", new BsonInt32(0));
+
+        Files.createDirectories(directory);
+        FileWaystoneStorage storage = new FileWaystoneStorage(directory);
+        long waystoneBytes = storage.saveWaystones(config, network);
+        long discoveryBytes = storage.saveDiscoveries(discoveries, null);
+        System.out.printf("Wrote %d waystones (%d bytes) and %d players (%d bytes) as %s to %s%n",
+                network.length, waystoneBytes, discoveries.size(), discoveryBytes, storage.getName(),
+                directory.toAbsolutePath());
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.exampleplugin.waystone;
+
+import org.bson.BsonDocument;
+
+import javax.annotation.Nonnull;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Synthetic waystone networks for the benchmarks.
+ * Everything is generated from a seed, so every fork and run sees the same network.
+ */
+final class WaystoneFixtures {
+
+    static final String[] WORLDS = {"default", "world_1", "world_2", "world_3"};
+    /** Waystones per owner, on average. */
+    static final int WAYSTONES_PER_OWNER = 4;
+    /** Half-width of the square the waystones are spread over, in blocks. */
+    static final int SPREAD = 20_000;
+    static final long SEED = 42;
+    /** Most waystones a generated player has discovered. */
+    static final int DISCOVERIES_PER_PLAYER = 20;
+    /** Inputs a benchmark prepares and cycles through, so the JIT can't fold a query into a constant. */
+    static final int QUERIES = 1024;
+
+    /**
+     * A generated network and its players' discoveries.
+     */
+    record Network(@Nonnull Waystone[] waystones, @Nonnull Map<String, List<String>> discoveries) {
+
+        /**
+         * Loads the network into the registries, see {@link WaystoneFixtures#load}.
+         */
+        @Nonnull
+        Network load() {
+            WaystoneFixtures.load(waystones, discoveries);
+            return this;
+        }
+    }
+
+    /**
+     * Cycles through the indexes of the {@link #QUERIES} inputs a benchmark prepared.
+     */
+    static final class QueryCursor {
+        private int next = 0;
+
+        int next() {
+            int query = next;
+            next = (query + 1) & (QUERIES - 1);
+            return query;
+        }
+    }
+
+    private WaystoneFixtures() {
+    }
+
+    /**
+     * Generates a network of waystones and players from {@link #SEED}, each player having found up
+     * to {@link #DISCOVERIES_PER_PLAYER} waystones.
+     */
+    @Nonnull
+    static Network network(int waystones, int players) {
+        return network(waystones, players, DISCOVERIES_PER_PLAYER);
+    }
+
+    /**
+     * Generates a network of waystones and players from {@link #SEED}.
+     */
+    @Nonnull
+    static Network network(int waystones, int players, int perPlayer) {
+        Waystone[] network = waystones(waystones, SEED);
+        return new Network(network, discoveries(network, players, perPlayer, SEED));
+    }
+
+    /**
+     * Generates waystones spread over the worlds, a third of them private, owned by
+     * count / {@link #WAYSTONES_PER_OWNER} players.
+     */
+    @Nonnull
+    static Waystone[] waystones(int count, long seed) {
+        Random random = new Random(seed);
+        String[] owners = uuids(Math.max(1, count / WAYSTONES_PER_OWNER), random);
+        Waystone[] waystones = new Waystone[count];
+        Instant createdAt = Instant.ofEpochSecond(1_700_000_000L);
+        for (int i = 0; i < count; i++) {
+            int owner = random.nextInt(owners.length);
+            Waystone waystone = new Waystone(uuid(random), "Waystone " + i, WORLDS[i % WORLDS.length],
+                    random.nextInt(2 * SPREAD) - SPREAD + 0.5, 64 + random.nextInt(64), random.nextInt(2 * SPREAD) - SPREAD + 0.5,
+                    0f, owners[owner], "Player" + owner, random.nextInt(3) != 0, createdAt);
+            waystones[i] = waystone.withPriority(random.nextInt(5));
+        }
+        return waystones;
+    }
+
+    /**
+     * Generates discoveries for the given number of players, each of whom found up to
+     * perPlayer distinct random waystones.
+     */
+    @Nonnull
+    static Map<String, List<String>> discoveries(@Nonnull Waystone[] waystones, int players, int perPlayer, long seed) {
+        Random random = new Random(seed);
+        Map<String, List<String>> discoveries = new HashMap<>(players * 2);
+        // Partial Fisher-Yates shuffle per player; the array stays a permutation between players
+        int[] order = new int[waystones.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        for (int i = 0; i < players; i++) {
+            int found = Math.min(waystones.length, random.nextInt(perPlayer + 1));
+            List<String> ids = new ArrayList<>(found);
+            for (int j = 0; j < found; j++) {
+                int pick = j + random.nextInt(order.length - j);
+                int swap = order[j];
+                order[j] = order[pick];
+                order[pick] = swap;
+                ids.add(waystones[order[j]].getId());
+            }
+            discoveries.put(uuid(random), ids);
+        }
+        return discoveries;
+    }
+
+    /**
+     * Loads the data into both registries through an in-memory storage and indexes every world,
+     * as if the server had just started with it.
+     */
+    static void load(@Nonnull Waystone[] waystones, @Nonnull Map<String, List<String>> discoveries) {
+        WaystoneRegistry registry = WaystoneRegistry.get();
+        registry.setStorage(new InMemoryWaystoneStorage(new BsonDocument(), waystones, discoveries));
+        registry.load();
+        PlayerDiscoveryRegistry.get().load();
+        for (String world : WORLDS) {
+            registry.activateWorld(world);
+        }
+    }
+
+    @Nonnull
+    static String[] uuids(int count, @Nonnull Random random) {
+        String[] uuids = new String[count];
+        for (int i = 0; i < count; i++) {
+            uuids[i] = uuid(random);
+        }
+        return uuids;
+    }
+
+    @Nonnull
+    static String uuid(@Nonnull Random random) {
+        return new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+}
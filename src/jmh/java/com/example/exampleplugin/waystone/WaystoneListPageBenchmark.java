@@ -0,0 +1,72 @@
+package com.example.exampleplugin.waystone;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the waystone list for one player, the heaviest per-player UI operation.
+ * Renders into a {@link RecordingListOutput}; the commands, event bindings and payload of the
+ * last build are printed at the end of each trial. Permission checks are fixed per scenario.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WaystoneListPageBenchmark {
+
+    /** Most waystones a generated player has discovered; more than the default, so discovery lists aren't tiny. */
+    private static final int DISCOVERIES_PER_PLAYER = 50;
+
+    @Param({"100", "1000", "10000"})
+    public int waystones;
+
+    /**
+     * all: public tab, no filters; search: a query matching about a tenth of the names;
+     * private: private tab; discovery: requireDiscover on; op: sees all private waystones, with gear buttons.
+     */
+    @Param({"all", "search", "private", "discovery", "op"})
+    public String scenario;
+
+    /** warm: repeated builds reuse the player's cached list; cold: the cache is cleared before every build. */
+    @Param({"warm", "cold"})
+    public String cache;
+
+    private WaystoneListPage.ListState state;
+    private final RecordingListOutput output = new RecordingListOutput();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        WaystoneFixtures.Network fixture = WaystoneFixtures.network(waystones, 100, DISCOVERIES_PER_PLAYER).load();
+        Waystone[] network = fixture.waystones();
+        Map<String, List<String>> discoveries = fixture.discoveries();
+        WaystoneRegistry.get().setRequireDiscover(scenario.equals("discovery"));
+
+        String viewer = scenario.equals("discovery")
+                ? discoveries.keySet().iterator().next()
+                : network[0].getOwnerUuid();
+        boolean op = scenario.equals("op");
+        state = new WaystoneListPage.ListState(viewer, network[0].getId(), op, op, op, op,
+                scenario.equals("search") ? "waystone 1" : "", null,
+                scenario.equals("private") ? "private" : "public", "priority");
+    }
+
+    @Benchmark
+    public List<Waystone> build() {
+        output.reset();
+        if (cache.equals("cold")) {
+            WaystoneListCache.get().clear();
+        }
+        return WaystoneListPage.render(state, output, null, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        System.out.printf("%n%d waystones, %s: %d commands, %d event bindings, %d payload chars per build%n",
+                waystones, scenario, output.commands, output.events, output.payloadChars);
+    }
+}
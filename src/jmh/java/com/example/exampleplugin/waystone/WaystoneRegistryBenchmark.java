@@ -0,0 +1,73 @@
+package com.example.exampleplugin.waystone;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups on {@link WaystoneRegistry} that run on world threads and while building the list UI.
+ * Each query cycles through a fixed set of inputs, so the JIT can't fold it into a constant.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WaystoneRegistryBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int waystones;
+
+    private WaystoneRegistry registry;
+    private Waystone[] targets;
+    private String[] names;
+    private String[] players;
+    private final WaystoneFixtures.QueryCursor queries = new WaystoneFixtures.QueryCursor();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Waystone[] network = WaystoneFixtures.network(waystones, 0).load().waystones();
+        registry = WaystoneRegistry.get();
+
+        Random random = new Random(WaystoneFixtures.SEED + 1);
+        targets = new Waystone[WaystoneFixtures.QUERIES];
+        names = new String[WaystoneFixtures.QUERIES];
+        players = new String[WaystoneFixtures.QUERIES];
+        for (int i = 0; i < WaystoneFixtures.QUERIES; i++) {
+            targets[i] = network[random.nextInt(network.length)];
+            // Half the names are taken, half are free
+            names[i] = random.nextBoolean() ? targets[i].getName().toUpperCase() : "Unused " + i;
+            players[i] = network[random.nextInt(network.length)].getOwnerUuid();
+        }
+    }
+
+    @Benchmark
+    public Waystone getByPosition() {
+        Waystone target = targets[queries.next()];
+        return registry.getByPosition(target.getWorldName(), target.getX(), target.getY(), target.getZ());
+    }
+
+    @Benchmark
+    public boolean isNameTaken() {
+        return registry.isNameTaken(names[queries.next()]);
+    }
+
+    @Benchmark
+    public String generateUniqueName() {
+        // Always taken, so at least one suffix is tried
+        return registry.generateUniqueName(targets[queries.next()].getName(), null);
+    }
+
+    @Benchmark
+    public List<Waystone> getVisibleTo() {
+        return registry.getVisibleTo(players[queries.next()]);
+    }
+
+    @Benchmark
+    public int countByOwner() {
+        return registry.countByOwner(players[queries.next()]);
+    }
+}
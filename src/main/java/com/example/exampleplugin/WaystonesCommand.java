@@ -1,10 +1,23 @@
 package com.example.exampleplugin;
 
+import com.example.exampleplugin.waystone.FileWaystoneStorage;
+import com.example.exampleplugin.waystone.PermissionUtils;
+import com.example.exampleplugin.waystone.PlayerDiscoveryRegistry;
+import com.example.exampleplugin.waystone.SqlWaystoneStorage;
+import com.example.exampleplugin.waystone.TeleportScheduler;
 import com.example.exampleplugin.waystone.Waystone;
 import com.example.exampleplugin.waystone.WaystoneColorSwapper;
+import com.example.exampleplugin.waystone.WaystoneFiles;
 import com.example.exampleplugin.waystone.WaystoneListPage;
+import com.example.exampleplugin.waystone.WaystoneMetrics;
+import com.example.exampleplugin.waystone.WaystonePermissions;
+import com.example.exampleplugin.waystone.WaystonePersistence;
+import com.example.exampleplugin.waystone.WaystoneReconciler;
 import com.example.exampleplugin.waystone.WaystoneRegistry;
 import com.example.exampleplugin.waystone.WaystoneSettingsPage;
+import com.example.exampleplugin.waystone.WaystoneSpatialIndex;
+import com.example.exampleplugin.waystone.WaystoneStorage;
+import com.example.exampleplugin.waystone.WaystoneWatchdog;
 import com.hypixel.hytale.component.Ref;
 import com.hypixel.hytale.component.Store;
 import com.hypixel.hytale.server.core.Message;
@@ -16,19 +29,30 @@ import com.hypixel.hytale.server.core.command.system.arguments.types.ArgumentTyp
 import com.hypixel.hytale.server.core.command.system.basecommands.AbstractPlayerCommand;
 import com.hypixel.hytale.server.core.command.system.basecommands.CommandBase;
 import com.hypixel.hytale.server.core.entity.entities.Player;
-import com.hypixel.hytale.server.core.modules.entity.teleport.Teleport;
+import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
 import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 import com.hypixel.hytale.server.core.permissions.HytalePermissions;
-import com.hypixel.hytale.server.core.util.EventTitleUtil;
+import com.hypixel.hytale.server.core.universe.Universe;
 
 import javax.annotation.Nonnull;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Command for waystone management.
  * /waystones - Prints plugin info
  * /waystones list - Opens the waystone menu (ops only)
+ * /waystones near - Lists the waystones nearest to the player
+ * /waystones nearpos - Lists the waystones near a coordinate (ops only)
+ * /waystones reconcile - Reports registry/world mismatches and starts a check (ops only)
+ * /waystones reconcile remove - Removes the entries reconcile reported as orphaned (ops only)
+ * /waystones convert - Converts saved data between JSON and the binary format (ops only)
  */
 public class WaystonesCommand extends CommandBase {
     private final String pluginName;
@@ -43,6 +67,11 @@ public class WaystonesCommand extends CommandBase {
         addSubCommand((AbstractCommand) new ListCommand());
         addSubCommand((AbstractCommand) new EditCommand());
         addSubCommand((AbstractCommand) new ConfigCommand());
+        addSubCommand((AbstractCommand) new NearCommand());
+        addSubCommand((AbstractCommand) new NearPosCommand());
+        addSubCommand((AbstractCommand) new ReconcileCommand());
+        addSubCommand((AbstractCommand) new ConvertCommand());
+        addSubCommand((AbstractCommand) new StatsCommand());
     }
 
     @Override
@@ -57,12 +86,62 @@ public class WaystonesCommand extends CommandBase {
         ctx.sendMessage(Message.raw(pluginName + " v" + pluginVersion));
     }
 
+    /**
+     * Base for the subcommands: runs them under the {@link WaystoneWatchdog} as "command &lt;name&gt;".
+     */
+    private abstract static class WatchedCommand extends CommandBase {
+        private final String operation;
+
+        protected WatchedCommand(@Nonnull String name, @Nonnull String description) {
+            super(name, description);
+            this.operation = "command " + name;
+        }
+
+        @Override
+        protected final void executeSync(@Nonnull CommandContext context) {
+            try (WaystoneWatchdog.Watch ignored = WaystoneWatchdog.watch(operation, null)) {
+                executeWatched(context);
+            }
+        }
+
+        protected abstract void executeWatched(@Nonnull CommandContext context);
+    }
+
+    /**
+     * {@link WatchedCommand} for subcommands run by a player.
+     */
+    private abstract static class WatchedPlayerCommand extends AbstractPlayerCommand {
+        private final String operation;
+
+        protected WatchedPlayerCommand(@Nonnull String name, @Nonnull String description) {
+            super(name, description);
+            this.operation = "command " + name;
+        }
+
+        @Override
+        protected final void execute(@Nonnull CommandContext context,
+                                     @Nonnull Store<EntityStore> store,
+                                     @Nonnull Ref<EntityStore> ref,
+                                     @Nonnull PlayerRef playerRef,
+                                     @Nonnull World world) {
+            try (WaystoneWatchdog.Watch ignored = WaystoneWatchdog.watch(operation, playerRef.getUsername())) {
+                executeWatched(context, store, ref, playerRef, world);
+            }
+        }
+
+        protected abstract void executeWatched(@Nonnull CommandContext context,
+                                               @Nonnull Store<EntityStore> store,
+                                               @Nonnull Ref<EntityStore> ref,
+                                               @Nonnull PlayerRef playerRef,
+                                               @Nonnull World world);
+    }
+
     /**
      * Subcommand: /waystones list
      * Opens the waystone menu for the player.
      * Requires permission: hytale.command.waystones.allowListMenu
      */
-    private static class ListCommand extends AbstractPlayerCommand {
+    private static class ListCommand extends WatchedPlayerCommand {
         
         public ListCommand() {
             super("list", "Opens the waystone menu.");
@@ -70,11 +149,11 @@ public class WaystonesCommand extends CommandBase {
         }
 
         @Override
-        protected void execute(@Nonnull CommandContext context,
-                               @Nonnull Store<EntityStore> store,
-                               @Nonnull Ref<EntityStore> ref,
-                               @Nonnull PlayerRef playerRef,
-                               @Nonnull World world) {
+        protected void executeWatched(@Nonnull CommandContext context,
+                                      @Nonnull Store<EntityStore> store,
+                                      @Nonnull Ref<EntityStore> ref,
+                                      @Nonnull PlayerRef playerRef,
+                                      @Nonnull World world) {
             
             Player playerComponent = (Player) store.getComponent(ref, Player.getComponentType());
             if (playerComponent == null) {
@@ -82,6 +161,11 @@ public class WaystonesCommand extends CommandBase {
                 return;
             }
 
+            if (!WaystoneRegistry.awaitStartupLoad()) {
+                context.sendMessage(Message.raw(WaystoneRegistry.getUnavailableMessage()));
+                return;
+            }
+
             String playerUuid = playerRef.getUuid().toString();
 
             // Create the waystone list page (no current waystone since opened via command)
@@ -90,24 +174,9 @@ public class WaystonesCommand extends CommandBase {
                     playerUuid,
                     null, // No current waystone
                     waystone -> {
-                        // On teleport callback
+                        // On teleport callback - arrivals are rate limited by the scheduler
                         if (waystone != null) {
-                            Teleport teleport = waystone.toTeleport();
-                            if (teleport != null) {
-                                store.addComponent(ref, Teleport.getComponentType(), teleport);
-                                
-                                // Show arrival banner
-                                EventTitleUtil.showEventTitleToPlayer(
-                                        playerRef,
-                                        Message.raw(waystone.getName()),           // Primary title: waystone name
-                                        Message.raw("Waystone"),                   // Secondary title: placeholder
-                                        true,                                      // isMajor: large banner style
-                                        null,                                      // icon: none for now
-                                        0.5f,                                      // duration
-                                        1.0f,                                      // fadeInDuration
-                                        1.0f                                       // fadeOutDuration
-                                );
-                            }
+                            TeleportScheduler.get().request(playerRef, store, ref, waystone, 0.5f);
                         }
                     },
                     () -> { /* on rename - not applicable from command */ },
@@ -145,7 +214,7 @@ public class WaystonesCommand extends CommandBase {
      * Edits a waystone property by name.
      * Requires permission: hytale.command.waystones.allowEditAll
      */
-    private static class EditCommand extends CommandBase {
+    private static class EditCommand extends WatchedCommand {
 
         @Nonnull
         private final RequiredArg<String> waystoneNameArg = withRequiredArg("name", "The name of the waystone to edit", (ArgumentType<String>) ArgTypes.STRING);
@@ -162,7 +231,7 @@ public class WaystonesCommand extends CommandBase {
         }
 
         @Override
-        protected void executeSync(@Nonnull CommandContext context) {
+        protected void executeWatched(@Nonnull CommandContext context) {
             String waystoneName = stripQuotes(waystoneNameArg.get(context));
             String property = propertyArg.get(context).toLowerCase();
             String value = stripQuotes(valueArg.get(context));
@@ -191,52 +260,43 @@ public class WaystonesCommand extends CommandBase {
             try {
                 switch (property) {
                     case "name" -> {
-                        waystone.setName(value);
-                        WaystoneRegistry.get().save();
+                        WaystoneRegistry.get().updateName(waystone.getId(), value);
                         context.sendMessage(Message.raw("Updated name to: " + value));
                     }
                     case "ispublic", "public" -> {
                         boolean isPublic = Boolean.parseBoolean(value);
-                        waystone.setPublic(isPublic);
-                        WaystoneRegistry.get().save();
+                        WaystoneRegistry.get().updatePublic(waystone.getId(), isPublic);
                         context.sendMessage(Message.raw("Updated isPublic to: " + isPublic));
                     }
                     case "priority" -> {
                         int priority = Integer.parseInt(value);
-                        waystone.setPriority(priority);
-                        WaystoneRegistry.get().save();
+                        WaystoneRegistry.get().updatePriority(waystone.getId(), priority);
                         context.sendMessage(Message.raw("Updated priority to: " + priority));
                     }
                     case "textcolor" -> {
-                        waystone.setTextColor(value);
-                        WaystoneRegistry.get().save();
+                        WaystoneRegistry.get().updateTextColor(waystone.getId(), value);
                         context.sendMessage(Message.raw("Updated textColor to: " + value));
                     }
                     case "teleportdirection", "direction" -> {
-                        waystone.setTeleportDirection(value);
-                        WaystoneRegistry.get().save();
+                        WaystoneRegistry.get().updateTeleportDirection(waystone.getId(), value);
                         context.sendMessage(Message.raw("Updated teleportDirection to: " + value));
                     }
                     case "playerorientation", "orientation" -> {
-                        waystone.setPlayerOrientation(value);
-                        WaystoneRegistry.get().save();
+                        WaystoneRegistry.get().updatePlayerOrientation(waystone.getId(), value);
                         context.sendMessage(Message.raw("Updated playerOrientation to: " + value));
                     }
                     case "serverowned" -> {
                         boolean serverOwned = Boolean.parseBoolean(value);
-                        waystone.setServerOwned(serverOwned);
-                        WaystoneRegistry.get().save();
+                        WaystoneRegistry.get().updateServerOwned(waystone.getId(), serverOwned);
                         context.sendMessage(Message.raw("Updated serverOwned to: " + serverOwned));
                     }
                     case "ownername" -> {
-                        waystone.setOwnerName(value);
-                        WaystoneRegistry.get().save();
+                        WaystoneRegistry.get().updateOwnerName(waystone.getId(), value);
                         context.sendMessage(Message.raw("Warning: Changing owner name may cause display issues if the name doesn't match a real player."));
                         context.sendMessage(Message.raw("Updated ownerName to: " + value));
                     }
                     case "owneruuid" -> {
-                        waystone.setOwnerUuid(value);
-                        WaystoneRegistry.get().save();
+                        WaystoneRegistry.get().updateOwnerUuid(waystone.getId(), value);
                         context.sendMessage(Message.raw("Warning: Changing owner UUID may break ownership permissions if the UUID doesn't exist."));
                         context.sendMessage(Message.raw("Updated ownerUuid to: " + value));
                     }
@@ -251,8 +311,7 @@ public class WaystonesCommand extends CommandBase {
                     }
                     case "defaultdiscovered" -> {
                         boolean defaultDiscovered = Boolean.parseBoolean(value);
-                        waystone.setDefaultDiscovered(defaultDiscovered);
-                        WaystoneRegistry.get().save();
+                        WaystoneRegistry.get().updateDefaultDiscovered(waystone.getId(), defaultDiscovered);
                         context.sendMessage(Message.raw("Updated defaultDiscovered to: " + defaultDiscovered));
                     }
                     case "color" -> {
@@ -281,13 +340,13 @@ public class WaystonesCommand extends CommandBase {
      * Edits plugin configuration.
      * Requires permission: hytale.command.waystones.allowEditAll
      */
-    private static class ConfigCommand extends CommandBase {
+    private static class ConfigCommand extends WatchedCommand {
 
         @Nonnull
-        private final RequiredArg<String> propertyArg = withRequiredArg("property", "The config property to edit (debugLogs, requireDiscover)", (ArgumentType<String>) ArgTypes.STRING);
+        private final RequiredArg<String> propertyArg = withRequiredArg("property", "The config property to edit (debugLogs, requireDiscover, arrivalsPerChunk, arrivalsPerWorld, cooldown, warmup, backups, metrics, slowOperationMs, autoRemoveOrphans)", (ArgumentType<String>) ArgTypes.STRING);
 
         @Nonnull
-        private final RequiredArg<String> valueArg = withRequiredArg("value", "The new value (true/false)", (ArgumentType<String>) ArgTypes.STRING);
+        private final RequiredArg<String> valueArg = withRequiredArg("value", "The new value (true/false or a number)", (ArgumentType<String>) ArgTypes.STRING);
 
         public ConfigCommand() {
             super("config", "Edits plugin configuration.");
@@ -295,7 +354,7 @@ public class WaystonesCommand extends CommandBase {
         }
 
         @Override
-        protected void executeSync(@Nonnull CommandContext context) {
+        protected void executeWatched(@Nonnull CommandContext context) {
             String property = propertyArg.get(context).toLowerCase();
             String value = stripQuotes(valueArg.get(context));
 
@@ -315,10 +374,446 @@ public class WaystonesCommand extends CommandBase {
                         context.sendMessage(Message.raw("All waystones are now visible regardless of discovery status."));
                     }
                 }
+                case "arrivalsperchunk" -> {
+                    int arrivals = parsePositiveInt(context, property, value);
+                    if (arrivals > 0) {
+                        WaystoneRegistry.get().setArrivalsPerChunkPerTick(arrivals);
+                        context.sendMessage(Message.raw("Config updated: arrivalsPerChunk = " + arrivals));
+                    }
+                }
+                case "arrivalsperworld" -> {
+                    int arrivals = parsePositiveInt(context, property, value);
+                    if (arrivals > 0) {
+                        WaystoneRegistry.get().setArrivalsPerWorldPerTick(arrivals);
+                        context.sendMessage(Message.raw("Config updated: arrivalsPerWorld = " + arrivals));
+                    }
+                }
+                case "cooldown" -> {
+                    int seconds = parseNonNegativeInt(context, property, value);
+                    if (seconds >= 0) {
+                        WaystoneRegistry.get().setTeleportCooldownSeconds(seconds);
+                        context.sendMessage(Message.raw("Config updated: cooldown = " + seconds + "s"));
+                    }
+                }
+                case "warmup" -> {
+                    int seconds = parseNonNegativeInt(context, property, value);
+                    if (seconds >= 0) {
+                        WaystoneRegistry.get().setTeleportWarmupSeconds(seconds);
+                        context.sendMessage(Message.raw("Config updated: warmup = " + seconds + "s"));
+                    }
+                }
+                case "backups" -> {
+                    int count = parseNonNegativeInt(context, property, value);
+                    if (count >= 0) {
+                        WaystoneRegistry.get().setBackups(count);
+                        context.sendMessage(Message.raw("Config updated: backups = " + WaystoneRegistry.get().getBackups()
+                                + " (max " + WaystoneFiles.MAX_BACKUPS + ")"));
+                    }
+                }
+                case "metrics" -> {
+                    boolean metrics = Boolean.parseBoolean(value);
+                    WaystoneRegistry.get().setMetricsEnabled(metrics);
+                    context.sendMessage(Message.raw("Config updated: metrics = " + metrics));
+                }
+                case "slowoperationms" -> {
+                    int budget = parseNonNegativeInt(context, property, value);
+                    if (budget >= 0) {
+                        WaystoneRegistry.get().setSlowOperationMs(budget);
+                        context.sendMessage(Message.raw("Config updated: slowOperationMs = "
+                                + WaystoneRegistry.get().getSlowOperationMs() + (budget == 0 ? " (watchdog off)" : "")));
+                    }
+                }
+                case "autoremoveorphans" -> {
+                    boolean autoRemove = Boolean.parseBoolean(value);
+                    WaystoneRegistry.get().setAutoRemoveOrphans(autoRemove);
+                    context.sendMessage(Message.raw("Config updated: autoRemoveOrphans = " + autoRemove));
+                }
                 default -> {
                     context.sendMessage(Message.raw("Unknown config property: " + property));
-                    context.sendMessage(Message.raw("Available properties: debugLogs, requireDiscover"));
+                    context.sendMessage(Message.raw("Available properties: debugLogs, requireDiscover, arrivalsPerChunk, arrivalsPerWorld, cooldown, warmup, backups, metrics, slowOperationMs, autoRemoveOrphans"));
+                }
+            }
+        }
+
+        /**
+         * Parses a positive integer config value, reporting invalid input to the sender.
+         * @return the parsed value, or -1 if the value is not a positive integer
+         */
+        private static int parsePositiveInt(@Nonnull CommandContext context, @Nonnull String property, String value) {
+            try {
+                int parsed = Integer.parseInt(value);
+                if (parsed > 0) {
+                    return parsed;
+                }
+            } catch (NumberFormatException ignored) {
+                // Fall through to the error message
+            }
+            context.sendMessage(Message.raw("Invalid value for " + property + ": " + value + " (must be a positive number)"));
+            return -1;
+        }
+
+        /**
+         * Parses a non-negative integer config value, reporting invalid input to the sender.
+         * @return the parsed value, or -1 if the value is not a non-negative integer
+         */
+        private static int parseNonNegativeInt(@Nonnull CommandContext context, @Nonnull String property, String value) {
+            try {
+                int parsed = Integer.parseInt(value);
+                if (parsed >= 0) {
+                    return parsed;
+                }
+            } catch (NumberFormatException ignored) {
+                // Fall through to the error message
+            }
+            context.sendMessage(Message.raw("Invalid value for " + property + ": " + value + " (must be 0 or more)"));
+            return -1;
+        }
+    }
+
+    /**
+     * Sends a list of spatial query results to the command sender, nearest first.
+     */
+    private static void sendNearbyResults(@Nonnull CommandContext context,
+                                          @Nonnull List<WaystoneSpatialIndex.Hit> hits,
+                                          int limit) {
+        int shown = 0;
+        for (WaystoneSpatialIndex.Hit hit : hits) {
+            if (shown >= limit) {
+                break;
+            }
+            Waystone waystone = WaystoneRegistry.get().get(hit.waystoneId());
+            if (waystone == null) {
+                continue;
+            }
+            context.sendMessage(Message.raw(String.format("%s - %.1f blocks (%.0f, %.0f, %.0f)",
+                    waystone.getName(), hit.distance(), waystone.getX(), waystone.getY(), waystone.getZ())));
+            shown++;
+        }
+        if (hits.size() > shown) {
+            context.sendMessage(Message.raw("...and " + (hits.size() - shown) + " more."));
+        }
+    }
+
+    /**
+     * Subcommand: /waystones near <radius>
+     * Lists the waystones nearest to the player within a radius, nearest first.
+     * Available to all players; only shows waystones that would appear in the player's list.
+     */
+    private static class NearCommand extends WatchedPlayerCommand {
+
+        private static final int MAX_RESULTS = 10;
+
+        @Nonnull
+        private final RequiredArg<String> radiusArg = withRequiredArg("radius", "Search radius in blocks", (ArgumentType<String>) ArgTypes.STRING);
+
+        public NearCommand() {
+            super("near", "Lists the waystones nearest to you.");
+        }
+
+        @Override
+        protected boolean canGeneratePermission() {
+            // Usable by everyone - results are filtered by what the player can see
+            return false;
+        }
+
+        @Override
+        protected void executeWatched(@Nonnull CommandContext context,
+                                      @Nonnull Store<EntityStore> store,
+                                      @Nonnull Ref<EntityStore> ref,
+                                      @Nonnull PlayerRef playerRef,
+                                      @Nonnull World world) {
+            double radius;
+            try {
+                radius = Double.parseDouble(radiusArg.get(context));
+            } catch (NumberFormatException e) {
+                context.sendMessage(Message.raw("Invalid radius: " + radiusArg.get(context)));
+                return;
+            }
+
+            TransformComponent transform = (TransformComponent) store.getComponent(ref, TransformComponent.getComponentType());
+            if (transform == null) {
+                context.sendMessage(Message.raw("Error: Could not get player position."));
+                return;
+            }
+
+            UUID uuid = playerRef.getUuid();
+            String playerUuid = uuid.toString();
+            boolean canSeeAllPrivate = PermissionUtils.hasPermissionOrOp(uuid, WaystonePermissions.ALLOW_SEE_ALL_PRIVATE);
+            boolean filterUndiscovered = WaystoneRegistry.isRequireDiscoverEnabled()
+                    && !PermissionUtils.hasPermissionOrOp(uuid, WaystonePermissions.ALLOW_SHOW_UNDISCOVERED);
+
+            var position = transform.getPosition();
+            // k-nearest query, then trim anything past the radius
+            List<WaystoneSpatialIndex.Hit> hits = WaystoneRegistry.get().getNearest(
+                    world.getName(), position.x, position.y, position.z, MAX_RESULTS,
+                    w -> (canSeeAllPrivate || w.isVisibleTo(playerUuid))
+                            && (!filterUndiscovered || w.isDefaultDiscovered()
+                                || PlayerDiscoveryRegistry.get().hasDiscovered(playerUuid, w.getId())));
+            hits = hits.stream().filter(hit -> hit.distance() <= radius).toList();
+
+            if (hits.isEmpty()) {
+                context.sendMessage(Message.raw("No waystones within " + radiusArg.get(context) + " blocks."));
+                return;
+            }
+            context.sendMessage(Message.raw("Nearest waystones:"));
+            sendNearbyResults(context, hits, MAX_RESULTS);
+        }
+    }
+
+    /**
+     * Subcommand: /waystones nearpos <world> <x> <y> <z> <radius>
+     * Lists all waystones within a radius of a coordinate, nearest first.
+     * Requires permission: hytale.command.waystones.allowEditAll
+     */
+    private static class NearPosCommand extends WatchedCommand {
+
+        private static final int MAX_RESULTS = 25;
+
+        @Nonnull
+        private final RequiredArg<String> worldArg = withRequiredArg("world", "The world to search", (ArgumentType<String>) ArgTypes.STRING);
+
+        @Nonnull
+        private final RequiredArg<String> xArg = withRequiredArg("x", "X coordinate", (ArgumentType<String>) ArgTypes.STRING);
+
+        @Nonnull
+        private final RequiredArg<String> yArg = withRequiredArg("y", "Y coordinate", (ArgumentType<String>) ArgTypes.STRING);
+
+        @Nonnull
+        private final RequiredArg<String> zArg = withRequiredArg("z", "Z coordinate", (ArgumentType<String>) ArgTypes.STRING);
+
+        @Nonnull
+        private final RequiredArg<String> radiusArg = withRequiredArg("radius", "Search radius in blocks", (ArgumentType<String>) ArgTypes.STRING);
+
+        public NearPosCommand() {
+            super("nearpos", "Lists the waystones near a coordinate.");
+            requirePermission(HytalePermissions.fromCommand("waystones.allowEditAll"));
+        }
+
+        @Override
+        protected void executeWatched(@Nonnull CommandContext context) {
+            String worldName = stripQuotes(worldArg.get(context));
+            double x, y, z, radius;
+            try {
+                x = Double.parseDouble(xArg.get(context));
+                y = Double.parseDouble(yArg.get(context));
+                z = Double.parseDouble(zArg.get(context));
+                radius = Double.parseDouble(radiusArg.get(context));
+            } catch (NumberFormatException e) {
+                context.sendMessage(Message.raw("Coordinates and radius must be numbers."));
+                return;
+            }
+
+            List<WaystoneSpatialIndex.Hit> hits = WaystoneRegistry.get().getWithinRadius(worldName, x, y, z, radius, w -> true);
+            if (hits.isEmpty()) {
+                context.sendMessage(Message.raw("No waystones within " + radiusArg.get(context) + " blocks in world '" + worldName + "'."));
+                return;
+            }
+            context.sendMessage(Message.raw(hits.size() + " waystone(s) in range:"));
+            sendNearbyResults(context, hits, MAX_RESULTS);
+        }
+    }
+
+    /**
+     * Subcommand: /waystones reconcile
+     * Reports what the background reconciler has found and starts a new sweep.
+     * Requires permission: hytale.command.waystones.allowEditAll
+     */
+    private static class ReconcileCommand extends WatchedCommand {
+
+        /** Orphaned entries and bare blocks listed by the report. */
+        private static final int MAX_LISTED = 10;
+
+        public ReconcileCommand() {
+            super("reconcile", "Checks waystones against the blocks in the world.");
+            requirePermission(HytalePermissions.fromCommand("waystones.allowEditAll"));
+            addSubCommand((AbstractCommand) new ReconcileRemoveCommand());
+        }
+
+        @Override
+        protected void executeWatched(@Nonnull CommandContext context) {
+            WaystoneReconciler.Report report = WaystoneReconciler.get().getReport();
+            WaystoneReconciler.get().requestSweep();
+
+            context.sendMessage(Message.raw("Waystone reconciliation:"));
+            context.sendMessage(Message.raw("Registered waystones: " + WaystoneRegistry.get().count()));
+            context.sendMessage(Message.raw("Block checks run: " + report.checksRun()
+                    + " (" + report.pendingChecks() + " waiting in current sweep)"));
+            context.sendMessage(Message.raw("Missing blocks awaiting confirmation: " + report.suspectedOrphans()));
+            context.sendMessage(Message.raw("Orphaned entries (block confirmed missing): " + report.confirmedOrphans().size()));
+            for (Waystone waystone : report.confirmedOrphans().subList(0, Math.min(report.confirmedOrphans().size(), MAX_LISTED))) {
+                context.sendMessage(Message.raw(String.format("  '%s' at %s (%.0f, %.0f, %.0f)", waystone.getName(),
+                        waystone.getWorldName(), waystone.getX(), waystone.getY(), waystone.getZ())));
+            }
+            if (!report.confirmedOrphans().isEmpty()) {
+                context.sendMessage(Message.raw(WaystoneRegistry.get().isAutoRemoveOrphans()
+                        ? "They are removed automatically (autoRemoveOrphans is on)."
+                        : "Use /waystones reconcile remove to remove them."));
+            }
+            context.sendMessage(Message.raw("Orphaned entries queued for removal: " + report.queuedRepairs()));
+            context.sendMessage(Message.raw("Orphaned entries removed: " + report.registryOrphansRemoved()));
+            context.sendMessage(Message.raw("Blocks unlinked from missing waystones: " + report.blockOrphansCleared()));
+            context.sendMessage(Message.raw("Chunks scanned for unregistered blocks: " + report.chunksScanned()
+                    + " (" + report.queuedChunkScans() + " queued, " + report.chunkScansSkipped() + " skipped while busy)"));
+            context.sendMessage(Message.raw("Waystone blocks without a registry entry: " + report.bareBlocks().size()));
+            for (WaystoneReconciler.BareBlock block : report.bareBlocks().subList(0, Math.min(report.bareBlocks().size(), MAX_LISTED))) {
+                context.sendMessage(Message.raw("  " + block.worldName() + " (" + block.x() + ", " + block.y() + ", " + block.z() + ")"));
+            }
+            if (report.lastSweepStartedAt() > 0) {
+                long secondsAgo = (System.currentTimeMillis() - report.lastSweepStartedAt()) / 1000;
+                context.sendMessage(Message.raw("Last sweep started " + secondsAgo + "s ago. A new sweep has been started."));
+            } else {
+                context.sendMessage(Message.raw("A sweep has been started."));
+            }
+        }
+    }
+
+    /**
+     * Subcommand: /waystones reconcile remove
+     * Removes the registry entries whose block the reconciler has confirmed missing.
+     * Requires permission: hytale.command.waystones.allowEditAll
+     */
+    private static class ReconcileRemoveCommand extends WatchedCommand {
+
+        public ReconcileRemoveCommand() {
+            super("remove", "Removes waystones whose block is confirmed missing.");
+            requirePermission(HytalePermissions.fromCommand("waystones.allowEditAll"));
+        }
+
+        @Override
+        protected void executeWatched(@Nonnull CommandContext context) {
+            int approved = WaystoneReconciler.get().approveRemovals();
+            if (approved == 0) {
+                context.sendMessage(Message.raw("No orphaned waystones to remove. Run /waystones reconcile to check again."));
+                return;
+            }
+            context.sendMessage(Message.raw("Removing " + approved + " orphaned waystone(s); see /waystones reconcile for progress."));
+        }
+    }
+
+    /**
+     * Subcommand: /waystones convert <json|binary|sql>
+     * Switches the storage format and rewrites waystone and discovery data in it.
+     * Requires permission: hytale.command.waystones.allowEditAll
+     */
+    private static class ConvertCommand extends WatchedCommand {
+
+        // Set while a conversion runs in the background
+        private static final AtomicBoolean converting = new AtomicBoolean();
+
+        @Nonnull
+        private final RequiredArg<String> formatArg = withRequiredArg("format", "The storage format to convert to (json, binary, sql)", (ArgumentType<String>) ArgTypes.STRING);
+
+        public ConvertCommand() {
+            super("convert", "Converts saved waystone data between JSON, binary and SQL.");
+            requirePermission(HytalePermissions.fromCommand("waystones.allowEditAll"));
+        }
+
+        @Override
+        protected void executeWatched(@Nonnull CommandContext context) {
+            String format = stripQuotes(formatArg.get(context)).toLowerCase();
+            if (!format.equals("binary") && !format.equals("bin") && !format.equals("json") && !format.equals("sql")) {
+                context.sendMessage(Message.raw("Unknown format: " + format + " (use json, binary or sql)"));
+                return;
+            }
+            if (!WaystoneRegistry.get().isLoaded() || !PlayerDiscoveryRegistry.get().isLoaded()) {
+                context.sendMessage(Message.raw("Waystone data is still loading, try again shortly."));
+                return;
+            }
+            if (WaystoneRegistry.isAnyLoadFailed()) {
+                context.sendMessage(Message.raw("Waystone data failed to load (see the server log); fix or restore it and restart before converting."));
+                return;
+            }
+
+            if (!converting.compareAndSet(false, true)) {
+                context.sendMessage(Message.raw("A conversion is already running."));
+                return;
+            }
+
+            // Switching storage waits for queued saves, so it runs off the command thread
+            Path universePath = Universe.get().getPath();
+            context.sendMessage(Message.raw("Converting waystone data to " + format + "..."));
+            CompletableFuture.runAsync(() -> convert(format, universePath)).whenComplete((ignored, error) -> {
+                converting.set(false);
+                if (error != null) {
+                    Throwable cause = error.getCause() != null ? error.getCause() : error;
+                    context.sendMessage(Message.raw("Conversion failed: " + cause.getMessage()));
+                    return;
                 }
+                context.sendMessage(Message.raw("Storage format is now " + WaystoneRegistry.get().getStorage().getName() + "."));
+                sendFileSize(context, universePath.resolve("waystones.json"));
+                sendFileSize(context, universePath.resolve("waystones.bin"));
+                sendFileSize(context, universePath.resolve("waystones-players.json"));
+                sendFileSize(context, universePath.resolve("waystones-players.bin"));
+                sendFileSize(context, universePath.resolve("waystones.mv.db"));
+                context.sendMessage(Message.raw("The most recently written storage is loaded on startup; the others can be kept as a backup."));
+            });
+        }
+
+        private static void convert(@Nonnull String format, @Nonnull Path universePath) {
+            WaystoneStorage current = WaystoneRegistry.get().getStorage();
+            if (format.equals("sql")) {
+                // Imports everything currently loaded; the data files are left as they are
+                if (!(current instanceof SqlWaystoneStorage)) {
+                    WaystoneRegistry.get().switchStorage(new SqlWaystoneStorage(universePath));
+                }
+            } else {
+                boolean binary = !format.equals("json");
+                if (!(current instanceof FileWaystoneStorage)) {
+                    WaystoneRegistry.get().switchStorage(new FileWaystoneStorage(universePath));
+                }
+                // Setting the format saves the waystones in it; discoveries follow the same setting
+                WaystoneRegistry.get().setBinaryStorage(binary);
+                PlayerDiscoveryRegistry.get().save();
+            }
+            // Saves are queued - wait for them so the sizes reported are the new files
+            WaystonePersistence.get().flush(5_000);
+        }
+
+        private static void sendFileSize(@Nonnull CommandContext context, @Nonnull Path path) {
+            try {
+                if (Files.exists(path)) {
+                    context.sendMessage(Message.raw(path.getFileName() + ": " + Files.size(path) + " bytes"));
+                }
+            } catch (Exception ignored) {
+                // Size is informational only
+            }
+        }
+    }
+
+    /**
+     * Subcommand: /waystones stats
+     * Shows the waystone metrics, the state of the persistence thread and slow operations caught by the watchdog.
+     * Requires permission: hytale.command.waystones.allowEditAll
+     */
+    private static class StatsCommand extends WatchedCommand {
+
+        public StatsCommand() {
+            super("stats", "Shows waystone performance metrics.");
+            requirePermission(HytalePermissions.fromCommand("waystones.allowEditAll"));
+        }
+
+        @Override
+        protected void executeWatched(@Nonnull CommandContext context) {
+            context.sendMessage(Message.raw("Waystone metrics:"));
+            if (!WaystoneMetrics.isEnabled()) {
+                context.sendMessage(Message.raw("Metrics are off - turn them on with /waystones config metrics true"));
+            } else {
+                for (String line : WaystoneMetrics.describe()) {
+                    context.sendMessage(Message.raw(line));
+                }
+            }
+
+            WaystonePersistence.Stats persistence = WaystonePersistence.get().getStats();
+            context.sendMessage(Message.raw(String.format(
+                    "Persistence: %d queued, %d writes (%d merged, %d failed), %d bytes, avg %.1f ms, max %.1f ms, last %.1f ms",
+                    persistence.queueDepth(), persistence.flushes(), persistence.merged(), persistence.failures(),
+                    persistence.bytesWritten(), persistence.averageFlushNanos() / 1_000_000.0,
+                    persistence.maxFlushNanos() / 1_000_000.0, persistence.lastFlushNanos() / 1_000_000.0)));
+            context.sendMessage(Message.raw("Storage: " + WaystoneRegistry.get().getStorage().getName()
+                    + ", " + WaystoneRegistry.get().count() + " waystones, "
+                    + PlayerDiscoveryRegistry.get().getPlayerCount() + " players with discoveries"));
+            for (String line : WaystoneWatchdog.describe()) {
+                context.sendMessage(Message.raw(line));
             }
         }
     }
@@ -1,18 +1,32 @@
 package com.example.exampleplugin;
 
 import com.example.exampleplugin.waystone.PlayerDiscoveryRegistry;
+import com.example.exampleplugin.waystone.TeleportCooldownRegistry;
+import com.example.exampleplugin.waystone.TeleportScheduler;
+import com.example.exampleplugin.waystone.WaystoneBlockLoadSystem;
+import com.example.exampleplugin.waystone.WaystoneChunkScanSystem;
 import com.example.exampleplugin.waystone.WaystoneComponent;
+import com.example.exampleplugin.waystone.WaystoneMetrics;
+import com.example.exampleplugin.waystone.WaystonePersistence;
 import com.example.exampleplugin.waystone.WaystonePlacementHandler;
+import com.example.exampleplugin.waystone.WaystoneReconciler;
 import com.example.exampleplugin.waystone.WaystoneRegistry;
+import com.example.exampleplugin.waystone.WaystoneWatchdog;
 import com.hypixel.hytale.component.ComponentType;
 import com.hypixel.hytale.event.EventRegistry;
 import com.hypixel.hytale.logger.HytaleLogger;
 import com.hypixel.hytale.server.core.modules.interaction.interaction.config.server.OpenCustomUIInteraction;
 import com.hypixel.hytale.server.core.plugin.JavaPlugin;
 import com.hypixel.hytale.server.core.plugin.JavaPluginInit;
+import com.hypixel.hytale.server.core.universe.world.events.AddWorldEvent;
 import com.hypixel.hytale.server.core.universe.world.events.AllWorldsLoadedEvent;
+import com.hypixel.hytale.server.core.universe.world.events.RemoveWorldEvent;
 import com.hypixel.hytale.server.core.universe.world.storage.ChunkStore;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 /**
  * Main plugin class for the Waystone teleportation system.
  * Provides a standalone waystone network separate from vanilla warps.
@@ -41,9 +55,11 @@ public class WaystonesPlugin extends JavaPlugin {
         this.getCommandRegistry().registerCommand(new WaystonesCommand(this.getName(), this.getManifest().getVersion().toString()));
 
         // Register the WaystoneComponent type for block entities
+        // Registered with its codec so the waystone ID is saved with the chunk
         waystoneComponentType = ChunkStore.REGISTRY.registerComponent(
                 WaystoneComponent.class,
-                WaystoneComponent::new
+                "Waystone",
+                WaystoneComponent.CODEC
         );
         WaystoneComponent.setComponentType(waystoneComponentType);
 
@@ -58,18 +74,50 @@ public class WaystonesPlugin extends JavaPlugin {
         // Register ECS systems for waystone block events
         getEntityStoreRegistry().registerSystem(new com.example.exampleplugin.waystone.WaystoneBreakHandler());
         getEntityStoreRegistry().registerSystem(new com.example.exampleplugin.waystone.WaystonePlaceHandler());
+        getChunkStoreRegistry().registerSystem(new WaystoneBlockLoadSystem());
+        getChunkStoreRegistry().registerSystem(new WaystoneChunkScanSystem());
+
+        // Start the teleport scheduler that rate limits waystone arrivals
+        TeleportScheduler.get().start();
+
+        // Start the background check of registry entries against their blocks
+        WaystoneReconciler.get().start();
+
+        // All waystone and discovery file writes happen on this thread
+        WaystonePersistence.get().start();
+
+        // Periodic metrics log line; only logs while the metrics config option is on
+        WaystoneMetrics.startLogging();
+        WaystoneWatchdog.start();
 
         // Register event to load waystones when worlds are ready
         EventRegistry eventRegistry = getEventRegistry();
+        // Files are read on virtual threads, all at once, so the event thread isn't held up;
+        // players who use a waystone before this finishes are told to try again
         eventRegistry.registerGlobal(AllWorldsLoadedEvent.class, event -> {
-            WaystoneRegistry.get().load();
-            PlayerDiscoveryRegistry.get().load();
-            if (WaystoneRegistry.isDebugEnabled()) {
-                LOGGER.atInfo().log("Waystone system initialized with %d waystones, %d players with discovery data",
-                        WaystoneRegistry.get().count(), PlayerDiscoveryRegistry.get().getPlayerCount());
-            }
+            ExecutorService loader = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("Waystones-Load-", 0).factory());
+            CompletableFuture.allOf(
+                    CompletableFuture.runAsync(WaystoneRegistry.get()::load, loader),
+                    CompletableFuture.runAsync(PlayerDiscoveryRegistry.get()::load, loader),
+                    CompletableFuture.runAsync(TeleportCooldownRegistry.get()::load, loader)
+            ).whenComplete((ignored, error) -> {
+                loader.shutdown();
+                if (error != null) {
+                    LOGGER.atWarning().log("Failed to load waystone data: %s", error.getMessage());
+                } else if (WaystoneRegistry.isDebugEnabled()) {
+                    LOGGER.atInfo().log("Waystone system initialized with %d waystones, %d players with discovery data",
+                            WaystoneRegistry.get().count(), PlayerDiscoveryRegistry.get().getPlayerCount());
+                }
+            });
         });
 
+        // Build and drop per-world waystone indexes as worlds come and go
+        eventRegistry.registerGlobal(AddWorldEvent.class, event ->
+                WaystoneRegistry.get().activateWorld(event.getWorld().getName()));
+        eventRegistry.registerGlobal(RemoveWorldEvent.class, event ->
+                WaystoneRegistry.get().deactivateWorld(event.getWorld().getName()));
+
         if (WaystoneRegistry.isDebugEnabled()) {
             LOGGER.atInfo().log("Waystone plugin setup complete");
         }
@@ -77,6 +125,12 @@ public class WaystonesPlugin extends JavaPlugin {
 
     @Override
     protected void shutdown() {
+        // Drop any queued teleports
+        TeleportScheduler.get().stop();
+        WaystoneReconciler.get().stop();
+        WaystoneMetrics.stopLogging();
+        WaystoneWatchdog.stop();
+
         // Save waystones on shutdown
         if (WaystoneRegistry.get().isLoaded()) {
             WaystoneRegistry.get().save();
@@ -91,6 +145,12 @@ public class WaystonesPlugin extends JavaPlugin {
                 LOGGER.atInfo().log("Saved player discovery data on shutdown");
             }
         }
+        // Persist active teleport cooldowns so restarts can't be used to skip them
+        TeleportCooldownRegistry.get().save();
+        // Wait for the queued writes, including the three above
+        WaystonePersistence.get().stop();
+        // Release the storage (the SQL storage holds its database open) once nothing writes to it
+        WaystoneRegistry.get().getStorage().close();
     }
 
     /**
@@ -0,0 +1,273 @@
+package com.example.exampleplugin.waystone;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * The default storage: waystones.json / waystones-players.json, or their binary counterparts
+ * when the binaryStorage config option is on. Loads read whichever of each pair was written last.
+ * Files are written atomically with backups through {@link WaystoneFiles}.
+ * The format and backup count come from the config the registry saves, so the storage works on
+ * any directory without a running server.
+ */
+public class FileWaystoneStorage implements WaystoneStorage {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    static final String WAYSTONES_FILE = "waystones.json";
+    static final String WAYSTONES_BINARY_FILE = "waystones.bin";
+    static final String PLAYERS_FILE = "waystones-players.json";
+    static final String PLAYERS_BINARY_FILE = "waystones-players.bin";
+
+    private final Path directory;
+    // From the last config loaded or saved
+    private volatile boolean binary = false;
+    private volatile int backups = 3;
+    // Encoded records from the last save, reused for waystones whose instance hasn't changed
+    private final WaystoneBinaryFormat.WaystoneEncoder binaryEncoder = new WaystoneBinaryFormat.WaystoneEncoder();
+    private Map<String, RenderedWaystone> renderedCache = new HashMap<>();
+
+    /**
+     * A waystone and its JSON text, rendered to be spliced into the Waystones array.
+     */
+    private record RenderedWaystone(@Nonnull Waystone source, @Nonnull String json) {
+    }
+
+    /**
+     * @param directory Directory holding the data files (the universe folder)
+     */
+    public FileWaystoneStorage(@Nonnull Path directory) {
+        this.directory = directory;
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return binary ? "binary" : "json";
+    }
+
+    /**
+     * {@inheritDoc}
+     * The binary file is memory-mapped and returned as a snapshot, so only its config and record
+     * offsets are read here.
+     */
+    @Nullable
+    @Override
+    public LoadedWaystones loadWaystones() throws IOException {
+        Path path = directory.resolve(WAYSTONES_FILE);
+        Path binaryPath = directory.resolve(WAYSTONES_BINARY_FILE);
+
+        if (WaystoneRegistry.isNewer(binaryPath, path)) {
+            WaystoneSnapshot mapped = WaystoneFiles.read(binaryPath, WaystoneSnapshot::open);
+            if (mapped == null) {
+                return null;
+            }
+            applyConfig(mapped.getConfig());
+            return new LoadedWaystones(mapped.getConfig(), null, mapped);
+        }
+        // Decoded inside the reader, so a file that doesn't decode falls back to a backup
+        LoadedWaystones loaded = WaystoneFiles.read(path, source -> {
+            BsonDocument document = WaystoneFiles.readDocument(source);
+            BsonDocument config = document.containsKey("Config") ? document.getDocument("Config") : new BsonDocument();
+            Waystone[] decoded = document.containsKey("Waystones")
+                    ? decodeWaystones(document.getArray("Waystones")) : new Waystone[0];
+            return new LoadedWaystones(config, decoded, null);
+        });
+        if (loaded != null) {
+            applyConfig(loaded.config());
+        }
+        return loaded;
+    }
+
+    private void applyConfig(@Nonnull BsonDocument config) {
+        if (config.containsKey("binaryStorage")) {
+            binary = config.getBoolean("binaryStorage").getValue();
+        }
+        if (config.containsKey("backups")) {
+            backups = config.get("backups").asNumber().intValue();
+        }
+    }
+
+    /**
+     * Decodes the waystones array, in parallel chunks when it is large.
+     */
+    @Nonnull
+    private static Waystone[] decodeWaystones(@Nonnull BsonArray array) {
+        if (array.size() < WaystoneRegistry.PARALLEL_DECODE_THRESHOLD) {
+            return Waystone.ARRAY_CODEC.decode((BsonValue) array);
+        }
+        Waystone[] decoded = new Waystone[array.size()];
+        Arrays.parallelSetAll(decoded, i -> Waystone.CODEC.decode(array.get(i)));
+        return decoded;
+    }
+
+    @Override
+    public long saveWaystones(@Nonnull BsonDocument config, @Nonnull Waystone[] waystones) throws IOException {
+        applyConfig(config);
+        if (binary) {
+            Path path = directory.resolve(WAYSTONES_BINARY_FILE);
+            long bytes = WaystoneFiles.write(path, backups, binaryEncoder.encode(config, waystones));
+            if (WaystoneRegistry.isDebugEnabled()) {
+                LOGGER.atInfo().log("Saved %d waystones (%d changed) to %s", waystones.length,
+                        binaryEncoder.getLastEncodedCount(), WAYSTONES_BINARY_FILE);
+            }
+            return bytes;
+        }
+
+        BsonDocument document = new BsonDocument();
+        document.put("Config", config);
+        List<String> rendered = new ArrayList<>(waystones.length);
+        int changed = renderChanged(waystones, rendered);
+        byte[] json = WaystoneFiles.toJson(document, "Waystones", rendered).getBytes(StandardCharsets.UTF_8);
+
+        long bytes = WaystoneFiles.write(directory.resolve(WAYSTONES_FILE), backups, json);
+        if (WaystoneRegistry.isDebugEnabled()) {
+            LOGGER.atInfo().log("Saved %d waystones (%d changed) to %s", waystones.length, changed, WAYSTONES_FILE);
+        }
+        return bytes;
+    }
+
+    /**
+     * Renders the waystones for the JSON file, reusing the previous save's text for every waystone
+     * whose instance is unchanged, the way the binary encoder reuses record bytes. Waystones are
+     * immutable, so an update always swaps in a new instance and is picked up here.
+     *
+     * @return Number of waystones that had to be rendered
+     */
+    private int renderChanged(@Nonnull Waystone[] array, @Nonnull List<String> rendered) {
+        Map<String, RenderedWaystone> next = new HashMap<>(array.length * 2);
+        int changed = 0;
+        for (Waystone waystone : array) {
+            RenderedWaystone cached = renderedCache.get(waystone.getId());
+            if (cached == null || cached.source() != waystone) {
+                cached = new RenderedWaystone(waystone,
+                        WaystoneFiles.toJson(Waystone.CODEC.encode(waystone).asDocument(), 2));
+                changed++;
+            }
+            next.put(waystone.getId(), cached);
+            rendered.add(cached.json());
+        }
+        // Removed waystones drop out of the cache here
+        renderedCache = next;
+        return changed;
+    }
+
+    @Nullable
+    @Override
+    public Map<String, List<String>> loadDiscoveries() throws IOException {
+        Path path = directory.resolve(PLAYERS_FILE);
+        Path binaryPath = directory.resolve(PLAYERS_BINARY_FILE);
+
+        if (WaystoneRegistry.isNewer(binaryPath, path)) {
+            Map<String, String[]> decoded = WaystoneFiles.read(binaryPath, source -> {
+                // Decoded in one pass, so the mapping is dropped straight away
+                try (WaystoneBinaryFormat.MappedFile file = WaystoneBinaryFormat.map(source)) {
+                    return WaystoneBinaryFormat.decodeDiscoveries(file.buffer());
+                }
+            });
+            if (decoded == null) {
+                return null;
+            }
+            Map<String, List<String>> players = new HashMap<>(decoded.size() * 2);
+            decoded.forEach((playerUuid, ids) -> players.put(playerUuid, Arrays.asList(ids)));
+            return players;
+        }
+        return WaystoneFiles.read(path, FileWaystoneStorage::readPlayers);
+    }
+
+    /**
+     * Parses the JSON discovery file. Runs inside {@link WaystoneFiles#read}, so a file that doesn't
+     * parse falls back to a backup.
+     */
+    @Nonnull
+    private static Map<String, List<String>> readPlayers(@Nonnull Path source) throws IOException {
+        return decodePlayers(WaystoneFiles.readDocument(source));
+    }
+
+    /**
+     * Reads the discoveries out of a waystones-players.json document.
+     */
+    @Nonnull
+    static Map<String, List<String>> decodePlayers(@Nonnull BsonDocument document) {
+        if (!document.containsKey("Players")) {
+            return new HashMap<>();
+        }
+        BsonDocument playersDoc = document.getDocument("Players");
+        Map<String, List<String>> players = new HashMap<>(playersDoc.size() * 2);
+
+        for (String playerUuid : playersDoc.keySet()) {
+            BsonDocument playerData = playersDoc.getDocument(playerUuid);
+            if (playerData.containsKey("discovered")) {
+                BsonArray discoveredArray = playerData.getArray("discovered");
+                List<String> ids = new ArrayList<>(discoveredArray.size());
+                for (BsonValue value : discoveredArray) {
+                    ids.add(value.asString().getValue());
+                }
+                players.put(playerUuid, ids);
+            }
+        }
+        return players;
+    }
+
+    /**
+     * Builds the waystones-players.json document.
+     */
+    @Nonnull
+    static BsonDocument encodePlayers(@Nonnull Map<String, ? extends Collection<String>> discoveries) {
+        BsonDocument playersDoc = new BsonDocument();
+
+        for (Map.Entry<String, ? extends Collection<String>> entry : discoveries.entrySet()) {
+            BsonArray discoveredArray = new BsonArray();
+            for (String waystoneId : entry.getValue()) {
+                discoveredArray.add(new BsonString(waystoneId));
+            }
+
+            BsonDocument playerData = new BsonDocument();
+            playerData.put("discovered", discoveredArray);
+            playersDoc.put(entry.getKey(), playerData);
+        }
+
+        BsonDocument document = new BsonDocument();
+        document.put("Players", playersDoc);
+        return document;
+    }
+
+    @Override
+    public long saveDiscoveries(@Nonnull Map<String, ? extends Collection<String>> discoveries,
+                                @Nullable List<DiscoveryChange> changes) throws IOException {
+        if (binary) {
+            long bytes = WaystoneFiles.write(directory.resolve(PLAYERS_BINARY_FILE), backups,
+                    WaystoneBinaryFormat.encodeDiscoveries(discoveries));
+            if (WaystoneRegistry.isDebugEnabled()) {
+                LOGGER.atInfo().log("Saved discovery data for %d players to %s", discoveries.size(), PLAYERS_BINARY_FILE);
+            }
+            return bytes;
+        }
+
+        long bytes = WaystoneFiles.write(directory.resolve(PLAYERS_FILE), backups, encodePlayers(discoveries));
+
+        if (WaystoneRegistry.isDebugEnabled()) {
+            LOGGER.atInfo().log("Saved discovery data for %d players to %s", discoveries.size(), PLAYERS_FILE);
+        }
+        return bytes;
+    }
+
+    @Override
+    public boolean isIncremental() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+        // Nothing held open - the registry unmaps a snapshot once it is decoded
+    }
+}
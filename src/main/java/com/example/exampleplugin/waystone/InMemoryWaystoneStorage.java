@@ -0,0 +1,106 @@
+package com.example.exampleplugin.waystone;
+
+import org.bson.BsonDocument;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Storage that keeps the last save in memory and writes nothing to disk.
+ * Lets the registries run on a plain JVM, without a server or a universe folder, e.g. in
+ * benchmarks and load tests. Can be seeded with data so a load starts from a prepared network.
+ */
+public class InMemoryWaystoneStorage implements WaystoneStorage {
+
+    private BsonDocument config;
+    private Waystone[] waystones;
+    private Map<String, List<String>> discoveries;
+    private long waystoneSaves = 0;
+    private long discoverySaves = 0;
+
+    /**
+     * Creates an empty storage; the registries start fresh when loading from it.
+     */
+    public InMemoryWaystoneStorage() {
+    }
+
+    /**
+     * Creates a storage holding the given data, as if it had been saved.
+     */
+    public InMemoryWaystoneStorage(@Nonnull BsonDocument config, @Nonnull Waystone[] waystones,
+                                   @Nonnull Map<String, List<String>> discoveries) {
+        this.config = config.clone();
+        this.waystones = waystones.clone();
+        this.discoveries = copy(discoveries);
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return "memory";
+    }
+
+    @Nullable
+    @Override
+    public synchronized LoadedWaystones loadWaystones() {
+        if (waystones == null) {
+            return null;
+        }
+        // Waystones are immutable, so sharing them with the registry is safe
+        return new LoadedWaystones(config.clone(), waystones.clone(), null);
+    }
+
+    @Override
+    public synchronized long saveWaystones(@Nonnull BsonDocument config, @Nonnull Waystone[] waystones) {
+        this.config = config.clone();
+        this.waystones = waystones.clone();
+        waystoneSaves++;
+        return 0;
+    }
+
+    @Nullable
+    @Override
+    public synchronized Map<String, List<String>> loadDiscoveries() {
+        return discoveries != null ? copy(discoveries) : null;
+    }
+
+    @Override
+    public synchronized long saveDiscoveries(@Nonnull Map<String, ? extends Collection<String>> discoveries,
+                                             @Nullable List<DiscoveryChange> changes) {
+        this.discoveries = copy(discoveries);
+        discoverySaves++;
+        return 0;
+    }
+
+    @Override
+    public boolean isIncremental() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+
+    /**
+     * Gets the number of waystone saves written so far.
+     */
+    public synchronized long getWaystoneSaves() {
+        return waystoneSaves;
+    }
+
+    /**
+     * Gets the number of discovery saves written so far.
+     */
+    public synchronized long getDiscoverySaves() {
+        return discoverySaves;
+    }
+
+    @Nonnull
+    private static Map<String, List<String>> copy(@Nonnull Map<String, ? extends Collection<String>> source) {
+        Map<String, List<String>> copy = new HashMap<>(source.size() * 2);
+        source.forEach((playerUuid, ids) -> copy.put(playerUuid, new ArrayList<>(ids)));
+        return copy;
+    }
+}
@@ -23,12 +23,17 @@ public final class PermissionUtils {
      * @return true if the player is an OP
      */
     public static boolean isOp(@Nonnull UUID uuid) {
-        for (var provider : PermissionsModule.get().getProviders()) {
-            if (provider.getGroupsForUser(uuid).contains(WaystonePermissions.OP_GROUP)) {
-                return true;
+        long start = WaystoneMetrics.start();
+        try {
+            for (var provider : PermissionsModule.get().getProviders()) {
+                if (provider.getGroupsForUser(uuid).contains(WaystonePermissions.OP_GROUP)) {
+                    return true;
+                }
             }
+            return false;
+        } finally {
+            WaystoneMetrics.PERMISSION_LOOKUPS.recordSince(start);
         }
-        return false;
     }
     
     /**
@@ -41,20 +46,25 @@ public final class PermissionUtils {
      * @return true if the player has the permission
      */
     public static boolean hasPermission(@Nonnull UUID uuid, @Nonnull String permission) {
-        for (var provider : PermissionsModule.get().getProviders()) {
-            // Check direct user permissions
-            if (provider.getUserPermissions(uuid).contains(permission)) {
-                return true;
-            }
-            
-            // Check group permissions
-            for (String group : provider.getGroupsForUser(uuid)) {
-                if (provider.getGroupPermissions(group).contains(permission)) {
+        long start = WaystoneMetrics.start();
+        try {
+            for (var provider : PermissionsModule.get().getProviders()) {
+                // Check direct user permissions
+                if (provider.getUserPermissions(uuid).contains(permission)) {
                     return true;
                 }
+
+                // Check group permissions
+                for (String group : provider.getGroupsForUser(uuid)) {
+                    if (provider.getGroupPermissions(group).contains(permission)) {
+                        return true;
+                    }
+                }
             }
+            return false;
+        } finally {
+            WaystoneMetrics.PERMISSION_LOOKUPS.recordSince(start);
         }
-        return false;
     }
     
     /**
@@ -80,30 +90,84 @@ public final class PermissionUtils {
      * @return The max limit, or -1 if no limit is set (unlimited)
      */
     public static int getMaxWaystonesLimit(@Nonnull UUID uuid) {
+        long start = WaystoneMetrics.start();
         int maxLimit = -1; // -1 means no limit set
         
         for (var provider : PermissionsModule.get().getProviders()) {
             // Check direct user permissions
-            maxLimit = Math.max(maxLimit, findMaxWaystonesPerm(provider.getUserPermissions(uuid)));
+            maxLimit = Math.max(maxLimit, findMaxNumericPerm(provider.getUserPermissions(uuid), WaystonePermissions.MAX_WAYSTONES_PREFIX));
             
             // Check group permissions
             for (String group : provider.getGroupsForUser(uuid)) {
-                maxLimit = Math.max(maxLimit, findMaxWaystonesPerm(provider.getGroupPermissions(group)));
+                maxLimit = Math.max(maxLimit, findMaxNumericPerm(provider.getGroupPermissions(group), WaystonePermissions.MAX_WAYSTONES_PREFIX));
             }
         }
         
+        WaystoneMetrics.PERMISSION_LOOKUPS.recordSince(start);
         return maxLimit;
     }
     
     /**
-     * Finds the highest maxWaystones.X permission value from a set of permissions.
+     * Gets the teleport cooldown for a player in seconds.
+     * OPs and players with allowBypassCooldown get no cooldown. Otherwise the lowest
+     * cooldown.X permission wins, falling back to the configured default.
+     * 
+     * @param uuid The player's UUID
+     * @return The cooldown in seconds (0 = none)
+     */
+    public static int getTeleportCooldownSeconds(@Nonnull UUID uuid) {
+        if (hasPermissionOrOp(uuid, WaystonePermissions.ALLOW_BYPASS_COOLDOWN)) {
+            return 0;
+        }
+        int override = getLowestNumericPerm(uuid, WaystonePermissions.COOLDOWN_PREFIX);
+        return override >= 0 ? override : WaystoneRegistry.get().getTeleportCooldownSeconds();
+    }
+    
+    /**
+     * Gets the teleport warm-up for a player in seconds.
+     * OPs and players with allowBypassCooldown get no warm-up. Otherwise the lowest
+     * warmup.X permission wins, falling back to the configured default.
+     * 
+     * @param uuid The player's UUID
+     * @return The warm-up in seconds (0 = teleport immediately)
      */
-    private static int findMaxWaystonesPerm(@Nonnull Set<String> permissions) {
+    public static int getTeleportWarmupSeconds(@Nonnull UUID uuid) {
+        if (hasPermissionOrOp(uuid, WaystonePermissions.ALLOW_BYPASS_COOLDOWN)) {
+            return 0;
+        }
+        int override = getLowestNumericPerm(uuid, WaystonePermissions.WARMUP_PREFIX);
+        return override >= 0 ? override : WaystoneRegistry.get().getTeleportWarmupSeconds();
+    }
+    
+    /**
+     * Finds the lowest value among a player's prefix.X permissions (user and group).
+     * 
+     * @return The lowest value, or -1 if the player has none
+     */
+    private static int getLowestNumericPerm(@Nonnull UUID uuid, @Nonnull String prefix) {
+        long start = WaystoneMetrics.start();
+        int lowest = Integer.MAX_VALUE;
+        
+        for (var provider : PermissionsModule.get().getProviders()) {
+            lowest = Math.min(lowest, findMinNumericPerm(provider.getUserPermissions(uuid), prefix));
+            for (String group : provider.getGroupsForUser(uuid)) {
+                lowest = Math.min(lowest, findMinNumericPerm(provider.getGroupPermissions(group), prefix));
+            }
+        }
+        
+        WaystoneMetrics.PERMISSION_LOOKUPS.recordSince(start);
+        return lowest == Integer.MAX_VALUE ? -1 : lowest;
+    }
+    
+    /**
+     * Finds the highest prefix.X permission value from a set of permissions.
+     */
+    private static int findMaxNumericPerm(@Nonnull Set<String> permissions, @Nonnull String prefix) {
         int max = -1;
         for (String perm : permissions) {
-            if (perm.startsWith(WaystonePermissions.MAX_WAYSTONES_PREFIX)) {
+            if (perm.startsWith(prefix)) {
                 try {
-                    int value = Integer.parseInt(perm.substring(WaystonePermissions.MAX_WAYSTONES_PREFIX.length()));
+                    int value = Integer.parseInt(perm.substring(prefix.length()));
                     max = Math.max(max, value);
                 } catch (NumberFormatException ignored) {
                     // Not a valid number, skip
@@ -112,4 +176,25 @@ public final class PermissionUtils {
         }
         return max;
     }
+    
+    /**
+     * Finds the lowest non-negative prefix.X permission value from a set of permissions.
+     * Returns Integer.MAX_VALUE if there is none.
+     */
+    private static int findMinNumericPerm(@Nonnull Set<String> permissions, @Nonnull String prefix) {
+        int min = Integer.MAX_VALUE;
+        for (String perm : permissions) {
+            if (perm.startsWith(prefix)) {
+                try {
+                    int value = Integer.parseInt(perm.substring(prefix.length()));
+                    if (value >= 0) {
+                        min = Math.min(min, value);
+                    }
+                } catch (NumberFormatException ignored) {
+                    // Not a valid number, skip
+                }
+            }
+        }
+        return min;
+    }
 }
@@ -1,38 +1,55 @@
 package com.example.exampleplugin.waystone;
 
 import com.hypixel.hytale.logger.HytaleLogger;
-import com.hypixel.hytale.server.core.universe.Universe;
-import com.hypixel.hytale.server.core.util.BsonUtil;
-import org.bson.BsonArray;
-import org.bson.BsonDocument;
-import org.bson.BsonString;
-import org.bson.BsonValue;
 
 import javax.annotation.Nonnull;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Registry for managing player waystone discovery data.
  * Tracks which waystones each player has discovered.
+ * Discovery sets are concurrent, so players on different world threads can discover while
+ * the list is built or a save iterates them; reads never lock.
  */
 public class PlayerDiscoveryRegistry {
 
     private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
-    private static final String PLAYERS_FILE = "waystones-players.json";
+    /** How long to wait for the waystone registry before giving up on dropping stale discoveries. */
+    private static final long REGISTRY_WAIT_MILLIS = 30_000;
 
     private static PlayerDiscoveryRegistry instance;
+    // Source of the per-player versions, so a recreated entry never reuses an old one
+    private static final AtomicLong versions = new AtomicLong();
 
-    // Map of player UUID -> Set of discovered waystone IDs
-    private final Map<String, Set<String>> playerDiscoveries = new ConcurrentHashMap<>();
+    // Map of player UUID -> discovered waystone IDs
+    private final Map<String, Discoveries> playerDiscoveries = new ConcurrentHashMap<>();
+    // Reverse index: waystone ID -> UUIDs of players who discovered it
+    private final Map<String, Set<String>> discoverers = new ConcurrentHashMap<>();
     private final AtomicBoolean loaded = new AtomicBoolean(false);
-    private final ReentrantLock saveLock = new ReentrantLock();
-    private final AtomicBoolean postSaveRedo = new AtomicBoolean(false);
+    private final CountDownLatch loadLatch = new CountDownLatch(1);
+    // Why the data failed to load; while set, nothing is saved so the stored discoveries aren't overwritten
+    private volatile String loadFailure;
+    // Discoveries added or removed since the last save, for storages that write only changes
+    private final Queue<WaystoneStorage.DiscoveryChange> pendingChanges = new ConcurrentLinkedQueue<>();
+    // Set when the change list no longer covers everything, e.g. after a clear or a storage switch
+    private final AtomicBoolean fullSave = new AtomicBoolean(true);
+
+    /**
+     * A player's discovered waystone IDs, with a read-only view handed out to callers.
+     */
+    private static final class Discoveries {
+        final Set<String> ids = ConcurrentHashMap.newKeySet();
+        final Set<String> view = Collections.unmodifiableSet(ids);
+        // Changed after every add or remove, see getVersion()
+        volatile long version = versions.incrementAndGet();
+    }
 
     private PlayerDiscoveryRegistry() {
     }
@@ -49,97 +66,163 @@ public class PlayerDiscoveryRegistry {
     }
 
     /**
-     * Checks if the registry has been loaded from disk.
+     * Checks if the registry has been loaded from storage.
      */
     public boolean isLoaded() {
         return loaded.get();
     }
 
     /**
-     * Loads player discovery data from disk.
+     * Waits for {@link #load()} to finish, which runs in the background at startup.
+     *
+     * @return true if the registry is loaded
+     */
+    public boolean awaitLoaded(long timeoutMillis) {
+        if (loaded.get()) {
+            return true;
+        }
+        try {
+            loadLatch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return loaded.get();
+    }
+
+    /**
+     * Checks if the discovery data failed to load, e.g. because no copy of the file was valid.
+     * Like {@link WaystoneRegistry#isLoadFailed()}, the registry then stays empty and saves are
+     * skipped, so the stored discoveries aren't replaced by the ones made since startup.
+     */
+    public boolean isLoadFailed() {
+        return loadFailure != null;
+    }
+
+    /**
+     * Loads player discovery data from storage.
+     * Runs alongside {@link WaystoneRegistry#load()}, and waits for it only after the data is read.
      */
     public void load() {
-        Path universePath = Universe.get().getPath();
-        Path path = universePath.resolve(PLAYERS_FILE);
-
-        if (Files.exists(path)) {
-            try {
-                BsonDocument document = BsonUtil.readDocument(path).join();
-
-                if (document != null && document.containsKey("Players")) {
-                    BsonDocument playersDoc = document.getDocument("Players");
-                    playerDiscoveries.clear();
-
-                    for (String playerUuid : playersDoc.keySet()) {
-                        BsonDocument playerData = playersDoc.getDocument(playerUuid);
-                        if (playerData.containsKey("discovered")) {
-                            BsonArray discoveredArray = playerData.getArray("discovered");
-                            Set<String> discoveredSet = new HashSet<>();
-                            for (BsonValue value : discoveredArray) {
-                                discoveredSet.add(value.asString().getValue());
-                            }
-                            playerDiscoveries.put(playerUuid, discoveredSet);
-                        }
-                    }
-
-                    if (WaystoneRegistry.isDebugEnabled()) {
-                        LOGGER.atInfo().log("Loaded discovery data for %d players", playerDiscoveries.size());
-                    }
-                }
-            } catch (Exception e) {
-                LOGGER.atWarning().log("Failed to load player discoveries: %s", e.getMessage());
-            }
-        } else {
-            if (WaystoneRegistry.isDebugEnabled()) {
+        try {
+            Map<String, List<String>> players = WaystoneRegistry.get().getStorage().loadDiscoveries();
+            if (players != null) {
+                applyDiscoveries(players);
+                // The storage now matches memory apart from the stale entries recorded as changes
+                fullSave.set(false);
+            } else if (WaystoneRegistry.isDebugEnabled()) {
                 LOGGER.atInfo().log("No player discovery file found, starting fresh");
             }
+        } catch (Exception e) {
+            loadFailure = String.valueOf(e.getMessage());
+            LOGGER.atWarning().log("Failed to load player discoveries: %s. Waystones are disabled and nothing will be "
+                    + "saved until the data is fixed or restored from a backup and the server is restarted.", loadFailure);
         }
 
         loaded.set(true);
+        loadLatch.countDown();
+    }
+
+    private void applyDiscoveries(@Nonnull Map<String, List<String>> players) {
+        playerDiscoveries.clear();
+        discoverers.clear();
+        // The waystone registry loads alongside us; once it is done, discoveries of deleted waystones can be dropped
+        // If the waystones failed to load the registry is empty, and every discovery would look stale
+        boolean checkExists = WaystoneRegistry.get().awaitLoaded(REGISTRY_WAIT_MILLIS)
+                && !WaystoneRegistry.get().isLoadFailed();
+        int staleCount = 0;
+
+        for (Map.Entry<String, List<String>> entry : players.entrySet()) {
+            String playerUuid = entry.getKey();
+            Discoveries discovered = new Discoveries();
+            for (String waystoneId : entry.getValue()) {
+                if (checkExists && !WaystoneRegistry.get().exists(waystoneId)) {
+                    recordChange(playerUuid, waystoneId, false);
+                    staleCount++;
+                    continue;
+                }
+                discovered.ids.add(waystoneId);
+                discoverers.computeIfAbsent(waystoneId, k -> ConcurrentHashMap.newKeySet()).add(playerUuid);
+            }
+            playerDiscoveries.put(playerUuid, discovered);
+        }
+
+        if (WaystoneRegistry.isDebugEnabled()) {
+            LOGGER.atInfo().log("Loaded discovery data for %d players (%d stale entries dropped)",
+                    playerDiscoveries.size(), staleCount);
+        }
     }
 
     /**
-     * Saves player discovery data to disk.
+     * Saves player discovery data to storage.
+     * The write happens on the persistence thread; this only queues it.
      */
     public void save() {
-        if (saveLock.tryLock()) {
-            try {
-                saveInternal();
-            } catch (Exception e) {
-                LOGGER.atWarning().log("Failed to save player discoveries: %s", e.getMessage());
-            } finally {
-                saveLock.unlock();
-            }
-            if (postSaveRedo.getAndSet(false)) {
-                save();
-            }
-        } else {
-            postSaveRedo.set(true);
+        if (isLoadFailed()) {
+            return; // Keep the data that failed to load; see isLoadFailed()
         }
+        WaystonePersistence.get().requestSave("player discoveries", this::saveInternal);
     }
 
-    private void saveInternal() {
-        BsonDocument playersDoc = new BsonDocument();
+    /**
+     * Saves every player's discoveries rather than just the changes. Called after switching storage.
+     */
+    public void requestFullSave() {
+        fullSave.set(true);
+        save();
+    }
 
-        for (Map.Entry<String, Set<String>> entry : playerDiscoveries.entrySet()) {
-            BsonArray discoveredArray = new BsonArray();
-            for (String waystoneId : entry.getValue()) {
-                discoveredArray.add(new BsonString(waystoneId));
+    private long saveInternal() throws IOException {
+        if (isLoadFailed()) {
+            throw new IOException("not saving, player discoveries failed to load: " + loadFailure);
+        }
+        WaystoneStorage storage = WaystoneRegistry.get().getStorage();
+        List<WaystoneStorage.DiscoveryChange> changes = null;
+        if (storage.isIncremental()) {
+            changes = new ArrayList<>();
+            WaystoneStorage.DiscoveryChange change;
+            while ((change = pendingChanges.poll()) != null) {
+                changes.add(change);
             }
-
-            BsonDocument playerData = new BsonDocument();
-            playerData.put("discovered", discoveredArray);
-            playersDoc.put(entry.getKey(), playerData);
+        } else {
+            pendingChanges.clear();
+        }
+        if (fullSave.getAndSet(false)) {
+            changes = null;
         }
 
-        BsonDocument document = new BsonDocument();
-        document.put("Players", playersDoc);
-
-        Path path = Universe.get().getPath().resolve(PLAYERS_FILE);
-        BsonUtil.writeDocument(path, document).join();
+        Map<String, Set<String>> players = new HashMap<>(playerDiscoveries.size() * 2);
+        playerDiscoveries.forEach((playerUuid, discovered) -> players.put(playerUuid, discovered.ids));
+        WaystoneEvents.Save event = new WaystoneEvents.Save();
+        event.begin();
+        boolean failed = true;
+        long bytes = 0;
+        try {
+            bytes = storage.saveDiscoveries(players, changes);
+            failed = false;
+            return bytes;
+        } catch (IOException e) {
+            // The drained changes are lost with the failed write; write everything next time
+            fullSave.set(true);
+            throw e;
+        } finally {
+            if (event.shouldCommit()) {
+                event.save = "player discoveries";
+                event.storage = storage.getName();
+                event.records = players.size();
+                event.changes = changes == null ? -1 : changes.size();
+                event.bytes = bytes;
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
 
-        if (WaystoneRegistry.isDebugEnabled()) {
-            LOGGER.atInfo().log("Saved discovery data for %d players to %s", playerDiscoveries.size(), PLAYERS_FILE);
+    /**
+     * Records a discovery change for storages that only write changes.
+     */
+    private void recordChange(@Nonnull String playerUuid, @Nonnull String waystoneId, boolean discovered) {
+        if (WaystoneRegistry.get().getStorage().isIncremental()) {
+            pendingChanges.add(new WaystoneStorage.DiscoveryChange(playerUuid, waystoneId, discovered));
         }
     }
 
@@ -148,15 +231,15 @@ public class PlayerDiscoveryRegistry {
      * Creates an empty discovery set if the player is not already tracked.
      */
     public void ensurePlayerExists(@Nonnull String playerUuid) {
-        playerDiscoveries.computeIfAbsent(playerUuid, k -> new HashSet<>());
+        playerDiscoveries.computeIfAbsent(playerUuid, k -> new Discoveries());
     }
 
     /**
      * Checks if a player has discovered a specific waystone.
      */
     public boolean hasDiscovered(@Nonnull String playerUuid, @Nonnull String waystoneId) {
-        Set<String> discovered = playerDiscoveries.get(playerUuid);
-        return discovered != null && discovered.contains(waystoneId);
+        Discoveries discovered = playerDiscoveries.get(playerUuid);
+        return discovered != null && discovered.ids.contains(waystoneId);
     }
 
     /**
@@ -164,8 +247,16 @@ public class PlayerDiscoveryRegistry {
      * Discovery is always tracked regardless of the requireDiscover config.
      */
     public void discoverWaystone(@Nonnull String playerUuid, @Nonnull String waystoneId) {
-        Set<String> discovered = playerDiscoveries.computeIfAbsent(playerUuid, k -> new HashSet<>());
-        if (discovered.add(waystoneId)) {
+        Discoveries discovered = playerDiscoveries.computeIfAbsent(playerUuid, k -> new Discoveries());
+        if (discovered.ids.add(waystoneId)) {
+            discovered.version = versions.incrementAndGet();
+            recordChange(playerUuid, waystoneId, true);
+            discoverers.computeIfAbsent(waystoneId, k -> ConcurrentHashMap.newKeySet()).add(playerUuid);
+            // The waystone may have been removed while we were adding it
+            if (!WaystoneRegistry.get().exists(waystoneId)) {
+                forgetWaystone(waystoneId);
+                return;
+            }
             save();
             if (WaystoneRegistry.isDebugEnabled()) {
                 LOGGER.atInfo().log("Player %s discovered waystone %s", playerUuid, waystoneId);
@@ -174,34 +265,60 @@ public class PlayerDiscoveryRegistry {
     }
 
     /**
-     * Gets all discovered waystone IDs for a player.
-     * Lazily filters out waystone IDs that no longer exist in WaystoneRegistry.
-     * 
-     * @return Set of valid discovered waystone IDs
+     * Removes a waystone from every player who discovered it.
+     * Uses the reverse index, so only the affected players are touched, with a single save.
+     * Called when the waystone is unregistered.
      */
-    @Nonnull
-    public Set<String> getDiscoveredWaystones(@Nonnull String playerUuid) {
-        Set<String> discovered = playerDiscoveries.get(playerUuid);
-        if (discovered == null) {
-            return Collections.emptySet();
+    public void forgetWaystone(@Nonnull String waystoneId) {
+        Set<String> players = discoverers.remove(waystoneId);
+        if (players == null || players.isEmpty()) {
+            return;
         }
-
-        // Lazily filter out non-existent waystones
-        Set<String> validDiscoveries = discovered.stream()
-                .filter(waystoneId -> WaystoneRegistry.get().exists(waystoneId))
-                .collect(Collectors.toSet());
-
-        // If we filtered out any stale entries, update and save
-        if (validDiscoveries.size() < discovered.size()) {
-            playerDiscoveries.put(playerUuid, validDiscoveries);
+        int removed = 0;
+        for (String playerUuid : players) {
+            Discoveries discovered = playerDiscoveries.get(playerUuid);
+            if (discovered != null && discovered.ids.remove(waystoneId)) {
+                discovered.version = versions.incrementAndGet();
+                recordChange(playerUuid, waystoneId, false);
+                removed++;
+            }
+        }
+        if (removed > 0) {
             save();
             if (WaystoneRegistry.isDebugEnabled()) {
-                LOGGER.atInfo().log("Cleaned up %d stale discovery entries for player %s",
-                        discovered.size() - validDiscoveries.size(), playerUuid);
+                LOGGER.atInfo().log("Removed waystone %s from %d players' discoveries", waystoneId, removed);
             }
         }
+    }
+
+    /**
+     * Gets all discovered waystone IDs for a player.
+     * Removed waystones are purged when they are unregistered, so this is a read-only
+     * live view and does not allocate.
+     *
+     * @return Set of discovered waystone IDs
+     */
+    @Nonnull
+    public Set<String> getDiscoveredWaystones(@Nonnull String playerUuid) {
+        Discoveries discovered = playerDiscoveries.get(playerUuid);
+        return discovered != null ? discovered.view : Collections.emptySet();
+    }
 
-        return Collections.unmodifiableSet(validDiscoveries);
+    /**
+     * Gets a number that changes whenever the player's discoveries do, for caching results that
+     * depend on them. 0 if the player has no discovery data.
+     */
+    public long getVersion(@Nonnull String playerUuid) {
+        Discoveries discovered = playerDiscoveries.get(playerUuid);
+        return discovered != null ? discovered.version : 0;
+    }
+
+    /**
+     * Gets the number of players who have discovered a waystone.
+     */
+    public int getDiscovererCount(@Nonnull String waystoneId) {
+        Set<String> players = discoverers.get(waystoneId);
+        return players != null ? players.size() : 0;
     }
 
     /**
@@ -216,6 +333,7 @@ public class PlayerDiscoveryRegistry {
      */
     public void clear() {
         playerDiscoveries.clear();
-        save();
+        discoverers.clear();
+        requestFullSave();
     }
 }
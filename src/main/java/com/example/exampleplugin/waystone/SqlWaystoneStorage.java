@@ -0,0 +1,379 @@
+package com.example.exampleplugin.waystone;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import org.bson.BsonDocument;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Storage in an embedded H2 database (waystones.mv.db in the universe folder).
+ * Waystones, their editors and viewers, and discoveries are rows keyed by ID, so a save
+ * only writes what changed: waystones whose instance differs from the last save (they are
+ * immutable, so any update is a new instance) and the discovery changes collected by the registry.
+ * Only writes are row-level: a load reads every row, and lookups such as owner counts and name
+ * checks run on the registry's in-memory copy, which is ahead of the database between saves.
+ * Tables have no secondary indexes for that reason; they would only slow the writes down.
+ * Selected with /waystones convert sql, which imports the current data.
+ */
+public class SqlWaystoneStorage implements WaystoneStorage {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    static final String DATABASE_NAME = "waystones";
+    /** File H2 creates for {@link #DATABASE_NAME}. */
+    static final String DATABASE_FILE = "waystones.mv.db";
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS config (k VARCHAR(64) PRIMARY KEY, v CLOB NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS waystones ("
+                    + "id VARCHAR(64) PRIMARY KEY, name VARCHAR(255) NOT NULL, world VARCHAR(255) NOT NULL, "
+                    + "x DOUBLE PRECISION NOT NULL, y DOUBLE PRECISION NOT NULL, z DOUBLE PRECISION NOT NULL, yaw REAL NOT NULL, "
+                    + "owner_uuid VARCHAR(64) NOT NULL, owner_name VARCHAR(255) NOT NULL, is_public BOOLEAN NOT NULL, "
+                    + "priority INT NOT NULL, created_seconds BIGINT, created_nanos INT, text_color VARCHAR(32) NOT NULL, "
+                    + "teleport_direction VARCHAR(16) NOT NULL, player_orientation VARCHAR(16) NOT NULL, "
+                    + "server_owned BOOLEAN NOT NULL, default_discovered BOOLEAN NOT NULL, color VARCHAR(32) NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS waystone_editors (waystone_id VARCHAR(64) NOT NULL, player_uuid VARCHAR(64) NOT NULL, "
+                    + "PRIMARY KEY (waystone_id, player_uuid))",
+            "CREATE TABLE IF NOT EXISTS waystone_viewers (waystone_id VARCHAR(64) NOT NULL, player_uuid VARCHAR(64) NOT NULL, "
+                    + "PRIMARY KEY (waystone_id, player_uuid))",
+            "CREATE TABLE IF NOT EXISTS discoveries (player_uuid VARCHAR(64) NOT NULL, waystone_id VARCHAR(64) NOT NULL, "
+                    + "PRIMARY KEY (player_uuid, waystone_id))",
+            // Created by earlier versions, never read from
+            "DROP INDEX IF EXISTS waystones_owner",
+            "DROP INDEX IF EXISTS waystones_world",
+            "DROP INDEX IF EXISTS waystones_name",
+            "DROP INDEX IF EXISTS discoveries_waystone"
+    };
+
+    private static final String WAYSTONE_COLUMNS = "id, name, world, x, y, z, yaw, owner_uuid, owner_name, is_public, "
+            + "priority, created_seconds, created_nanos, text_color, teleport_direction, player_orientation, "
+            + "server_owned, default_discovered, color";
+
+    private final String url;
+    private Connection connection;
+    // Waystones as of the last load or save, by ID; a different instance means the row must be rewritten
+    private Map<String, Waystone> saved = new HashMap<>();
+    // False until the tables are known to match saved; the first save of an unloaded storage rewrites them
+    private boolean synced = false;
+
+    /**
+     * @param directory Directory holding the database file (the universe folder)
+     */
+    public SqlWaystoneStorage(@Nonnull Path directory) {
+        this.url = "jdbc:h2:file:" + directory.resolve(DATABASE_NAME).toAbsolutePath();
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return "sql";
+    }
+
+    @Nullable
+    @Override
+    public synchronized LoadedWaystones loadWaystones() throws IOException {
+        try {
+            Connection c = connection();
+            BsonDocument config = null;
+            try (Statement st = c.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT v FROM config WHERE k = 'Config'")) {
+                if (rs.next()) {
+                    config = BsonDocument.parse(rs.getString(1));
+                }
+            }
+
+            Map<String, List<String>> editors = loadMembers(c, "waystone_editors");
+            Map<String, List<String>> viewers = loadMembers(c, "waystone_viewers");
+            List<Waystone> loaded = new ArrayList<>();
+            try (Statement st = c.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT " + WAYSTONE_COLUMNS + " FROM waystones")) {
+                while (rs.next()) {
+                    loaded.add(readWaystone(rs, editors, viewers));
+                }
+            }
+            if (config == null && loaded.isEmpty()) {
+                return null;
+            }
+
+            Waystone[] waystones = loaded.toArray(new Waystone[0]);
+            saved = byId(waystones);
+            synced = true;
+            return new LoadedWaystones(config != null ? config : new BsonDocument(), waystones, null);
+        } catch (SQLException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized long saveWaystones(@Nonnull BsonDocument config, @Nonnull Waystone[] waystones) throws IOException {
+        Map<String, Waystone> next = byId(waystones);
+        List<Waystone> changed = new ArrayList<>();
+        for (Waystone waystone : waystones) {
+            if (!synced || saved.get(waystone.getId()) != waystone) {
+                changed.add(waystone);
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        for (String waystoneId : synced ? saved.keySet() : Set.<String>of()) {
+            if (!next.containsKey(waystoneId)) {
+                removed.add(waystoneId);
+            }
+        }
+
+        try {
+            Connection c = connection();
+            c.setAutoCommit(false);
+            try (PreparedStatement configSt = c.prepareStatement("MERGE INTO config (k, v) KEY (k) VALUES ('Config', ?)");
+                 PreparedStatement upsert = c.prepareStatement("MERGE INTO waystones (" + WAYSTONE_COLUMNS + ") KEY (id) "
+                         + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+                 PreparedStatement delete = c.prepareStatement("DELETE FROM waystones WHERE id = ?");
+                 PreparedStatement deleteEditors = c.prepareStatement("DELETE FROM waystone_editors WHERE waystone_id = ?");
+                 PreparedStatement deleteViewers = c.prepareStatement("DELETE FROM waystone_viewers WHERE waystone_id = ?");
+                 PreparedStatement insertEditor = c.prepareStatement("INSERT INTO waystone_editors (waystone_id, player_uuid) VALUES (?, ?)");
+                 PreparedStatement insertViewer = c.prepareStatement("INSERT INTO waystone_viewers (waystone_id, player_uuid) VALUES (?, ?)")) {
+                configSt.setString(1, config.toJson());
+                configSt.executeUpdate();
+                if (!synced) {
+                    // Rows left from an earlier switch to SQL may be out of date
+                    try (Statement st = c.createStatement()) {
+                        st.executeUpdate("DELETE FROM waystones");
+                        st.executeUpdate("DELETE FROM waystone_editors");
+                        st.executeUpdate("DELETE FROM waystone_viewers");
+                    }
+                }
+
+                for (Waystone waystone : changed) {
+                    bindWaystone(upsert, waystone);
+                    upsert.addBatch();
+                    deleteEditors.setString(1, waystone.getId());
+                    deleteEditors.addBatch();
+                    deleteViewers.setString(1, waystone.getId());
+                    deleteViewers.addBatch();
+                    addMembers(insertEditor, waystone.getId(), waystone.getEditors());
+                    addMembers(insertViewer, waystone.getId(), waystone.getViewers());
+                }
+                for (String waystoneId : removed) {
+                    delete.setString(1, waystoneId);
+                    delete.addBatch();
+                    deleteEditors.setString(1, waystoneId);
+                    deleteEditors.addBatch();
+                    deleteViewers.setString(1, waystoneId);
+                    deleteViewers.addBatch();
+                }
+                // Member rows are cleared before they are re-inserted
+                upsert.executeBatch();
+                delete.executeBatch();
+                deleteEditors.executeBatch();
+                deleteViewers.executeBatch();
+                insertEditor.executeBatch();
+                insertViewer.executeBatch();
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+
+        saved = next;
+        synced = true;
+        if (WaystoneRegistry.isDebugEnabled()) {
+            LOGGER.atInfo().log("Saved %d waystones (%d changed, %d removed) to %s",
+                    waystones.length, changed.size(), removed.size(), DATABASE_FILE);
+        }
+        return 0;
+    }
+
+    @Nullable
+    @Override
+    public synchronized Map<String, List<String>> loadDiscoveries() throws IOException {
+        try {
+            Map<String, List<String>> players = loadMembers(connection(), "discoveries", "player_uuid", "waystone_id");
+            return players.isEmpty() ? null : players;
+        } catch (SQLException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized long saveDiscoveries(@Nonnull Map<String, ? extends Collection<String>> discoveries,
+                                             @Nullable List<DiscoveryChange> changes) throws IOException {
+        try {
+            Connection c = connection();
+            c.setAutoCommit(false);
+            try (PreparedStatement insert = c.prepareStatement(
+                         "MERGE INTO discoveries (player_uuid, waystone_id) KEY (player_uuid, waystone_id) VALUES (?, ?)");
+                 PreparedStatement delete = c.prepareStatement(
+                         "DELETE FROM discoveries WHERE player_uuid = ? AND waystone_id = ?")) {
+                int written = 0;
+                if (changes == null) {
+                    try (Statement st = c.createStatement()) {
+                        st.executeUpdate("DELETE FROM discoveries");
+                    }
+                    for (Map.Entry<String, ? extends Collection<String>> entry : discoveries.entrySet()) {
+                        for (String waystoneId : entry.getValue()) {
+                            insert.setString(1, entry.getKey());
+                            insert.setString(2, waystoneId);
+                            insert.addBatch();
+                            written++;
+                        }
+                    }
+                } else {
+                    // Only the last change to each pair matters
+                    Map<DiscoveryChange, Boolean> latest = new LinkedHashMap<>();
+                    for (DiscoveryChange change : changes) {
+                        latest.put(new DiscoveryChange(change.playerUuid(), change.waystoneId(), true), change.discovered());
+                    }
+                    for (Map.Entry<DiscoveryChange, Boolean> entry : latest.entrySet()) {
+                        PreparedStatement st = entry.getValue() ? insert : delete;
+                        st.setString(1, entry.getKey().playerUuid());
+                        st.setString(2, entry.getKey().waystoneId());
+                        st.addBatch();
+                        written++;
+                    }
+                }
+                insert.executeBatch();
+                delete.executeBatch();
+                c.commit();
+                if (WaystoneRegistry.isDebugEnabled()) {
+                    LOGGER.atInfo().log("Saved %d discovery rows (%s) to %s", written,
+                            changes == null ? "full" : "changes", DATABASE_FILE);
+                }
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean isIncremental() {
+        return true;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                LOGGER.atWarning().log("Failed to close waystone database: %s", e.getMessage());
+            }
+            connection = null;
+        }
+    }
+
+    @Nonnull
+    private Connection connection() throws SQLException {
+        if (connection == null || connection.isClosed()) {
+            // The driver is bundled with the plugin; asking it directly avoids DriverManager's class loader lookup
+            connection = new org.h2.Driver().connect(url, new Properties());
+            try (Statement st = connection.createStatement()) {
+                for (String sql : SCHEMA) {
+                    st.execute(sql);
+                }
+            }
+        }
+        return connection;
+    }
+
+    @Nonnull
+    private static Map<String, Waystone> byId(@Nonnull Waystone[] waystones) {
+        Map<String, Waystone> byId = new HashMap<>(waystones.length * 2);
+        for (Waystone waystone : waystones) {
+            byId.put(waystone.getId(), waystone);
+        }
+        return byId;
+    }
+
+    @Nonnull
+    private static Map<String, List<String>> loadMembers(@Nonnull Connection c, @Nonnull String table) throws SQLException {
+        return loadMembers(c, table, "waystone_id", "player_uuid");
+    }
+
+    /**
+     * Loads a two-column table grouped by its first column.
+     */
+    @Nonnull
+    private static Map<String, List<String>> loadMembers(@Nonnull Connection c, @Nonnull String table,
+                                                         @Nonnull String keyColumn, @Nonnull String valueColumn) throws SQLException {
+        Map<String, List<String>> members = new HashMap<>();
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT " + keyColumn + ", " + valueColumn + " FROM " + table)) {
+            while (rs.next()) {
+                members.computeIfAbsent(rs.getString(1), k -> new ArrayList<>()).add(rs.getString(2));
+            }
+        }
+        return members;
+    }
+
+    private static void addMembers(@Nonnull PreparedStatement insert, @Nonnull String waystoneId,
+                                   @Nonnull String[] players) throws SQLException {
+        for (String playerUuid : players) {
+            insert.setString(1, waystoneId);
+            insert.setString(2, playerUuid);
+            insert.addBatch();
+        }
+    }
+
+    @Nonnull
+    private static Waystone readWaystone(@Nonnull ResultSet rs, @Nonnull Map<String, List<String>> editors,
+                                         @Nonnull Map<String, List<String>> viewers) throws SQLException {
+        String id = rs.getString(1);
+        long createdSeconds = rs.getLong(12);
+        Instant createdAt = rs.wasNull() ? null : Instant.ofEpochSecond(createdSeconds, rs.getInt(13));
+        return new Waystone(id, rs.getString(2), rs.getString(3),
+                rs.getDouble(4), rs.getDouble(5), rs.getDouble(6), rs.getFloat(7),
+                rs.getString(8), rs.getString(9), rs.getBoolean(10), rs.getInt(11),
+                editors.getOrDefault(id, List.of()).toArray(new String[0]),
+                viewers.getOrDefault(id, List.of()).toArray(new String[0]),
+                createdAt, rs.getString(14), rs.getString(15), rs.getString(16),
+                rs.getBoolean(17), rs.getBoolean(18), rs.getString(19));
+    }
+
+    private static void bindWaystone(@Nonnull PreparedStatement st, @Nonnull Waystone waystone) throws SQLException {
+        st.setString(1, waystone.getId());
+        st.setString(2, waystone.getName());
+        st.setString(3, waystone.getWorldName());
+        st.setDouble(4, waystone.getX());
+        st.setDouble(5, waystone.getY());
+        st.setDouble(6, waystone.getZ());
+        st.setFloat(7, waystone.getYaw());
+        st.setString(8, waystone.getOwnerUuid());
+        st.setString(9, waystone.getOwnerName());
+        st.setBoolean(10, waystone.isPublic());
+        st.setInt(11, waystone.getPriority());
+        Instant createdAt = waystone.getCreatedAt();
+        if (createdAt != null) {
+            st.setLong(12, createdAt.getEpochSecond());
+            st.setInt(13, createdAt.getNano());
+        } else {
+            st.setNull(12, Types.BIGINT);
+            st.setNull(13, Types.INTEGER);
+        }
+        st.setString(14, waystone.getTextColor());
+        st.setString(15, waystone.getTeleportDirection());
+        st.setString(16, waystone.getPlayerOrientation());
+        st.setBoolean(17, waystone.isServerOwned());
+        st.setBoolean(18, waystone.isDefaultDiscovered());
+        st.setString(19, waystone.getColor());
+    }
+}
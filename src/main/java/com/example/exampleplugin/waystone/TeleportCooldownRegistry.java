@@ -0,0 +1,272 @@
+package com.example.exampleplugin.waystone;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.server.core.universe.Universe;
+import com.hypixel.hytale.server.core.util.BsonUtil;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Registry for per-player teleport cooldowns.
+ * Stores the time each player may next teleport, keyed by the two halves of their UUID
+ * so lookups on the teleport path never allocate.
+ */
+public class TeleportCooldownRegistry {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    private static final String COOLDOWNS_FILE = "waystones-cooldowns.json";
+
+    private static TeleportCooldownRegistry instance;
+
+    // Player UUID -> epoch millis when the player may next teleport
+    private final UuidExpiryMap cooldowns = new UuidExpiryMap();
+    private final AtomicBoolean loaded = new AtomicBoolean(false);
+
+    private TeleportCooldownRegistry() {
+    }
+
+    /**
+     * Gets the singleton instance of the registry.
+     */
+    @Nonnull
+    public static TeleportCooldownRegistry get() {
+        if (instance == null) {
+            instance = new TeleportCooldownRegistry();
+        }
+        return instance;
+    }
+
+    /**
+     * Checks if the registry has been loaded from disk.
+     */
+    public boolean isLoaded() {
+        return loaded.get();
+    }
+
+    /**
+     * Loads active cooldowns from disk. Cooldowns that expired while the server was down are dropped.
+     */
+    public void load() {
+        Path path = Universe.get().getPath().resolve(COOLDOWNS_FILE);
+
+        if (Files.exists(path)) {
+            try {
+                BsonDocument document = BsonUtil.readDocument(path).join();
+
+                if (document != null && document.containsKey("Cooldowns")) {
+                    BsonDocument cooldownsDoc = document.getDocument("Cooldowns");
+                    long now = System.currentTimeMillis();
+                    synchronized (cooldowns) {
+                        // Keeps cooldowns charged while the file was being read
+                        for (String playerUuid : cooldownsDoc.keySet()) {
+                            long expiresAt = cooldownsDoc.get(playerUuid).asNumber().longValue();
+                            UUID uuid = UUID.fromString(playerUuid);
+                            long hi = uuid.getMostSignificantBits();
+                            long lo = uuid.getLeastSignificantBits();
+                            if (expiresAt > now && expiresAt > cooldowns.get(hi, lo)) {
+                                cooldowns.put(hi, lo, expiresAt);
+                            }
+                        }
+                    }
+
+                    if (WaystoneRegistry.isDebugEnabled()) {
+                        LOGGER.atInfo().log("Loaded %d active teleport cooldowns", cooldowns.size());
+                    }
+                }
+            } catch (Exception e) {
+                LOGGER.atWarning().log("Failed to load teleport cooldowns: %s", e.getMessage());
+            }
+        }
+
+        loaded.set(true);
+    }
+
+    /**
+     * Saves active cooldowns to disk.
+     * The write happens on the persistence thread; this only queues it. Requested whenever a
+     * cooldown is charged or reset, so a crash can't be used to skip one.
+     */
+    public void save() {
+        // Until the file is read, a save would replace it with only the cooldowns charged since startup
+        if (!isLoaded()) {
+            return;
+        }
+        WaystonePersistence.get().requestSave(COOLDOWNS_FILE, this::saveInternal);
+    }
+
+    private long saveInternal() throws IOException {
+        BsonDocument cooldownsDoc = new BsonDocument();
+        long now = System.currentTimeMillis();
+        synchronized (cooldowns) {
+            cooldowns.purgeExpired(now);
+            cooldowns.forEach((hi, lo, expiresAt) ->
+                    cooldownsDoc.put(new UUID(hi, lo).toString(), new BsonInt64(expiresAt)));
+        }
+
+        BsonDocument document = new BsonDocument();
+        document.put("Cooldowns", cooldownsDoc);
+
+        Path path = Universe.get().getPath().resolve(COOLDOWNS_FILE);
+        BsonUtil.writeDocument(path, document).join();
+
+        if (WaystoneRegistry.isDebugEnabled()) {
+            LOGGER.atInfo().log("Saved %d teleport cooldowns to %s", cooldownsDoc.size(), COOLDOWNS_FILE);
+        }
+        return Files.size(path);
+    }
+
+    /**
+     * Gets how long a player must still wait before teleporting again.
+     *
+     * @return Remaining cooldown in milliseconds, or 0 if the player may teleport
+     */
+    public long getRemainingMillis(@Nonnull UUID playerUuid) {
+        long expiresAt;
+        synchronized (cooldowns) {
+            expiresAt = cooldowns.get(playerUuid.getMostSignificantBits(), playerUuid.getLeastSignificantBits());
+        }
+        return Math.max(0, expiresAt - System.currentTimeMillis());
+    }
+
+    /**
+     * Starts a player's cooldown. Called once their teleport has actually happened, so a request
+     * that is replaced, cancelled or fails doesn't cost them one.
+     *
+     * @param playerUuid The player who teleported
+     * @param cooldownSeconds The cooldown to apply (0 or less means no cooldown)
+     */
+    public void charge(@Nonnull UUID playerUuid, int cooldownSeconds) {
+        if (cooldownSeconds <= 0) {
+            return;
+        }
+        synchronized (cooldowns) {
+            cooldowns.put(playerUuid.getMostSignificantBits(), playerUuid.getLeastSignificantBits(),
+                    System.currentTimeMillis() + cooldownSeconds * 1000L);
+        }
+        save();
+    }
+
+    /**
+     * Clears the cooldown for a player.
+     */
+    public void reset(@Nonnull UUID playerUuid) {
+        synchronized (cooldowns) {
+            // An already-expired timestamp frees the player now; the entry is dropped at the next purge
+            cooldowns.put(playerUuid.getMostSignificantBits(), playerUuid.getLeastSignificantBits(), 1L);
+        }
+        save();
+    }
+
+    /**
+     * Open-addressing hash map from a UUID (as two longs) to an expiry timestamp.
+     * An expiry of 0 marks an empty slot. Not thread-safe; callers synchronize on the instance.
+     */
+    private static final class UuidExpiryMap {
+
+        interface EntryConsumer {
+            void accept(long hi, long lo, long expiresAt);
+        }
+
+        private long[] his = new long[16];
+        private long[] los = new long[16];
+        private long[] expiries = new long[16];
+        private int size = 0;
+
+        int size() {
+            return size;
+        }
+
+        long get(long hi, long lo) {
+            int mask = expiries.length - 1;
+            for (int i = slot(hi, lo, mask); expiries[i] != 0; i = (i + 1) & mask) {
+                if (his[i] == hi && los[i] == lo) {
+                    return expiries[i];
+                }
+            }
+            return 0;
+        }
+
+        void put(long hi, long lo, long expiresAt) {
+            int mask = expiries.length - 1;
+            int i = slot(hi, lo, mask);
+            while (expiries[i] != 0) {
+                if (his[i] == hi && los[i] == lo) {
+                    expiries[i] = expiresAt;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            his[i] = hi;
+            los[i] = lo;
+            expiries[i] = expiresAt;
+            size++;
+            // Keep the load factor under 0.75, dropping expired entries before growing
+            if (size * 4 >= expiries.length * 3) {
+                purgeExpired(System.currentTimeMillis());
+                if (size * 4 >= expiries.length * 3) {
+                    rehash(expiries.length * 2, Long.MIN_VALUE);
+                }
+            }
+        }
+
+        void clear() {
+            Arrays.fill(expiries, 0);
+            size = 0;
+        }
+
+        /**
+         * Drops every entry that expired at or before the given time.
+         */
+        void purgeExpired(long now) {
+            rehash(expiries.length, now);
+        }
+
+        void forEach(@Nonnull EntryConsumer consumer) {
+            for (int i = 0; i < expiries.length; i++) {
+                if (expiries[i] != 0) {
+                    consumer.accept(his[i], los[i], expiries[i]);
+                }
+            }
+        }
+
+        private void rehash(int capacity, long keepAfter) {
+            long[] oldHis = his;
+            long[] oldLos = los;
+            long[] oldExpiries = expiries;
+            his = new long[capacity];
+            los = new long[capacity];
+            expiries = new long[capacity];
+            size = 0;
+            int mask = capacity - 1;
+            for (int j = 0; j < oldExpiries.length; j++) {
+                if (oldExpiries[j] != 0 && oldExpiries[j] > keepAfter) {
+                    int i = slot(oldHis[j], oldLos[j], mask);
+                    while (expiries[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    his[i] = oldHis[j];
+                    los[i] = oldLos[j];
+                    expiries[i] = oldExpiries[j];
+                    size++;
+                }
+            }
+        }
+
+        private static int slot(long hi, long lo, int mask) {
+            // Random UUIDs are already well mixed, but run a finalizer in case of sequential IDs
+            long h = hi ^ lo;
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            return (int) h & mask;
+        }
+    }
+}
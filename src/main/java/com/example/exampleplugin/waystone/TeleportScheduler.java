@@ -0,0 +1,496 @@
+package com.example.exampleplugin.waystone;
+
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.math.util.ChunkUtil;
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.modules.entity.teleport.Teleport;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.hypixel.hytale.server.core.util.EventTitleUtil;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queues waystone teleports and releases them at a bounded rate.
+ * Arrivals are capped per destination chunk and per destination world on every scheduler tick.
+ * A destination's next batch is only released once the world threads have run the previous one,
+ * so a lagging server applies at most one batch per destination per server tick.
+ * Requests over the cap wait for later ticks, and waiting players are shown their queue position.
+ * Players with a teleport warm-up are held back until the warm-up has elapsed before joining the queue.
+ */
+public class TeleportScheduler {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    /** Length of one scheduler tick in milliseconds. */
+    private static final long TICK_MILLIS = 50;
+    /** How often (in ticks) waiting players are reminded of their queue position. */
+    private static final int POSITION_NOTICE_TICKS = 20;
+    /** How long a released batch may wait for its world threads before it is written off. */
+    private static final long BATCH_TIMEOUT_MILLIS = 10_000;
+
+    private static TeleportScheduler instance;
+
+    private final Object lock = new Object();
+    // Destination world name -> destination chunk index -> waiting requests (FIFO)
+    private final Map<String, LinkedHashMap<Long, ArrayDeque<PendingTeleport>>> queues = new HashMap<>();
+    // Player UUID -> their pending request, so a player only ever holds one slot
+    private final Map<UUID, PendingTeleport> pendingByPlayer = new HashMap<>();
+    // Requests still counting down their warm-up, not yet competing for arrival slots
+    private final List<PendingTeleport> warming = new ArrayList<>();
+    // Destination world name -> the batch released to it that hasn't finished dispatching yet
+    private final Map<String, Batch> inFlight = new HashMap<>();
+    private ScheduledExecutorService executor;
+    private long tickCounter = 0;
+
+    /**
+     * A teleport waiting for an arrival slot at its destination.
+     */
+    private static final class PendingTeleport {
+        final PlayerRef playerRef;
+        final Store<EntityStore> store;
+        final Ref<EntityStore> ref;
+        final String waystoneId;
+        final String waystoneName;
+        final String worldName;
+        final float bannerDuration;
+        final long chunkIndex;
+        long readyAt = 0;
+        int lastNotifiedPosition = -1;
+        long lastNotifiedSecond = -1;
+        Batch batch;
+
+        PendingTeleport(PlayerRef playerRef, Store<EntityStore> store, Ref<EntityStore> ref,
+                        Waystone waystone, float bannerDuration, long chunkIndex) {
+            this.playerRef = playerRef;
+            this.store = store;
+            this.ref = ref;
+            this.waystoneId = waystone.getId();
+            this.waystoneName = waystone.getName();
+            this.worldName = waystone.getWorldName();
+            this.bannerDuration = bannerDuration;
+            this.chunkIndex = chunkIndex;
+        }
+    }
+
+    /**
+     * The teleports released to one destination world in one tick, counted down as they are dispatched.
+     */
+    private static final class Batch {
+        final long releasedAt;
+        int remaining;
+
+        Batch(long releasedAt) {
+            this.releasedAt = releasedAt;
+        }
+    }
+
+    private TeleportScheduler() {
+    }
+
+    /**
+     * Gets the singleton instance of the scheduler.
+     */
+    @Nonnull
+    public static TeleportScheduler get() {
+        if (instance == null) {
+            instance = new TeleportScheduler();
+        }
+        return instance;
+    }
+
+    /**
+     * Starts the scheduler tick. Called once during plugin setup.
+     */
+    public void start() {
+        synchronized (lock) {
+            if (executor != null) {
+                return;
+            }
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "Waystones-TeleportScheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleAtFixedRate(this::tickSafely, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the scheduler and drops any teleports still waiting.
+     */
+    public void stop() {
+        synchronized (lock) {
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+            queues.clear();
+            pendingByPlayer.clear();
+            warming.clear();
+            inFlight.clear();
+        }
+    }
+
+    /**
+     * Queues a teleport to the given waystone.
+     * If the player already has a pending teleport, it is replaced by this one.
+     * The player's warm-up (if any) is resolved from their permissions.
+     *
+     * @param playerRef The player being teleported
+     * @param store The entity store the player currently lives in
+     * @param ref The player's entity reference
+     * @param waystone The destination waystone
+     * @param bannerDuration How long the arrival banner stays on screen
+     */
+    public void request(@Nonnull PlayerRef playerRef,
+                        @Nonnull Store<EntityStore> store,
+                        @Nonnull Ref<EntityStore> ref,
+                        @Nonnull Waystone waystone,
+                        float bannerDuration) {
+        // Chunks in Hytale are 32x32, so we use >> 5 (divide by 32)
+        int blockX = (int) Math.floor(waystone.getX());
+        int blockZ = (int) Math.floor(waystone.getZ());
+        long chunkIndex = ChunkUtil.indexChunk(blockX >> 5, blockZ >> 5);
+
+        WaystoneMetrics.TELEPORTS_REQUESTED.increment();
+        PendingTeleport pending = new PendingTeleport(playerRef, store, ref, waystone, bannerDuration, chunkIndex);
+        int warmupSeconds = PermissionUtils.getTeleportWarmupSeconds(playerRef.getUuid());
+        int position = 0;
+        synchronized (lock) {
+            PendingTeleport previous = pendingByPlayer.put(playerRef.getUuid(), pending);
+            if (previous != null) {
+                removeFromQueue(previous);
+            }
+            if (warmupSeconds > 0) {
+                pending.readyAt = System.currentTimeMillis() + warmupSeconds * 1000L;
+                warming.add(pending);
+            } else {
+                position = enqueue(pending);
+            }
+        }
+
+        if (WaystoneRegistry.isDebugEnabled()) {
+            LOGGER.atInfo().log("Queued teleport for %s to '%s' (world '%s', chunk %d, position %d, warm-up %ds)",
+                    playerRef.getUsername(), waystone.getName(), waystone.getWorldName(), chunkIndex, position, warmupSeconds);
+        }
+
+        if (warmupSeconds > 0) {
+            notifyWarmup(pending, warmupSeconds);
+        } else if (position > WaystoneRegistry.get().getArrivalsPerChunkPerTick()) {
+            // Only tell the player about the queue if they will actually have to wait
+            notifyPosition(pending, position);
+        }
+    }
+
+    /**
+     * Cancels a player's pending teleport, if any.
+     *
+     * @return true if a teleport was cancelled
+     */
+    public boolean cancel(@Nonnull UUID playerUuid) {
+        synchronized (lock) {
+            PendingTeleport pending = pendingByPlayer.remove(playerUuid);
+            if (pending == null) {
+                return false;
+            }
+            removeFromQueue(pending);
+            return true;
+        }
+    }
+
+    /**
+     * Gets the number of teleports currently waiting for an arrival slot.
+     */
+    public int getQueuedCount() {
+        synchronized (lock) {
+            return pendingByPlayer.size();
+        }
+    }
+
+    private void tickSafely() {
+        try {
+            tick();
+        } catch (Exception e) {
+            LOGGER.atWarning().log("Teleport scheduler tick failed: %s", e.getMessage());
+        }
+    }
+
+    private void tick() {
+        int perChunk = Math.max(1, WaystoneRegistry.get().getArrivalsPerChunkPerTick());
+        int perWorld = Math.max(1, WaystoneRegistry.get().getArrivalsPerWorldPerTick());
+        List<PendingTeleport> ready = new ArrayList<>();
+        List<PendingTeleport> toNotify = new ArrayList<>();
+        List<Integer> notifyPositions = new ArrayList<>();
+        List<PendingTeleport> warmupNotices = new ArrayList<>();
+        List<Integer> warmupSeconds = new ArrayList<>();
+
+        synchronized (lock) {
+            if (pendingByPlayer.isEmpty()) {
+                return;
+            }
+            tickCounter++;
+            boolean sendNotices = tickCounter % POSITION_NOTICE_TICKS == 0;
+
+            long now = System.currentTimeMillis();
+            // Move finished warm-ups into the arrival queues, count down the rest
+            if (!warming.isEmpty()) {
+                Iterator<PendingTeleport> warmIt = warming.iterator();
+                while (warmIt.hasNext()) {
+                    PendingTeleport pending = warmIt.next();
+                    if (now >= pending.readyAt) {
+                        warmIt.remove();
+                        enqueue(pending);
+                    } else {
+                        int secondsLeft = (int) ((pending.readyAt - now + 999) / 1000);
+                        if (secondsLeft != pending.lastNotifiedSecond) {
+                            warmupNotices.add(pending);
+                            warmupSeconds.add(secondsLeft);
+                        }
+                    }
+                }
+            }
+
+            Iterator<Map.Entry<String, LinkedHashMap<Long, ArrayDeque<PendingTeleport>>>> worldIt =
+                    queues.entrySet().iterator();
+            while (worldIt.hasNext()) {
+                Map.Entry<String, LinkedHashMap<Long, ArrayDeque<PendingTeleport>>> worldEntry = worldIt.next();
+                String worldName = worldEntry.getKey();
+                LinkedHashMap<Long, ArrayDeque<PendingTeleport>> chunkQueues = worldEntry.getValue();
+                Batch previous = inFlight.get(worldName);
+                if (previous != null && now - previous.releasedAt >= BATCH_TIMEOUT_MILLIS) {
+                    // A world that never runs its tasks (e.g. one that was unloaded) mustn't block the queue forever
+                    LOGGER.atWarning().log("%d teleports to world '%s' were not dispatched after %dms, releasing the next batch",
+                            previous.remaining, worldName, BATCH_TIMEOUT_MILLIS);
+                    inFlight.remove(worldName);
+                    previous = null;
+                }
+                // Release nothing until the world threads have run the last batch, so the caps hold per
+                // server tick even when the world lags behind the scheduler
+                Batch batch = new Batch(now);
+                int worldBudget = previous == null ? perWorld : 0;
+
+                // Walk the chunks in insertion order; chunks that still have waiters are moved to
+                // the back so a single busy chunk cannot starve the rest of the world
+                List<Long> rotate = new ArrayList<>();
+                Iterator<Map.Entry<Long, ArrayDeque<PendingTeleport>>> chunkIt = chunkQueues.entrySet().iterator();
+                while (chunkIt.hasNext()) {
+                    Map.Entry<Long, ArrayDeque<PendingTeleport>> entry = chunkIt.next();
+                    ArrayDeque<PendingTeleport> queue = entry.getValue();
+                    int taken = 0;
+                    while (!queue.isEmpty() && taken < perChunk && worldBudget > 0) {
+                        PendingTeleport pending = queue.pollFirst();
+                        pendingByPlayer.remove(pending.playerRef.getUuid(), pending);
+                        pending.batch = batch;
+                        batch.remaining++;
+                        ready.add(pending);
+                        taken++;
+                        worldBudget--;
+                    }
+                    if (queue.isEmpty()) {
+                        chunkIt.remove();
+                    } else {
+                        if (taken > 0) {
+                            rotate.add(entry.getKey());
+                        }
+                        if (sendNotices) {
+                            int position = 1;
+                            for (PendingTeleport waiting : queue) {
+                                if (waiting.lastNotifiedPosition != position) {
+                                    toNotify.add(waiting);
+                                    notifyPositions.add(position);
+                                }
+                                position++;
+                            }
+                        }
+                    }
+                }
+                if (batch.remaining > 0) {
+                    inFlight.put(worldName, batch);
+                }
+                for (Long chunkIndex : rotate) {
+                    ArrayDeque<PendingTeleport> queue = chunkQueues.remove(chunkIndex);
+                    if (queue != null) {
+                        chunkQueues.put(chunkIndex, queue);
+                    }
+                }
+                if (chunkQueues.isEmpty()) {
+                    worldIt.remove();
+                }
+            }
+        }
+
+        for (int i = 0; i < warmupNotices.size(); i++) {
+            notifyWarmup(warmupNotices.get(i), warmupSeconds.get(i));
+        }
+        for (int i = 0; i < toNotify.size(); i++) {
+            notifyPosition(toNotify.get(i), notifyPositions.get(i));
+        }
+        for (PendingTeleport pending : ready) {
+            dispatch(pending);
+        }
+    }
+
+    /**
+     * Applies the teleport on the world thread that owns the player's entity store.
+     * However it ends, the teleport's slot in its batch is freed once it has run.
+     */
+    private void dispatch(@Nonnull PendingTeleport pending) {
+        try {
+            World sourceWorld = pending.store.getExternalData().getWorld();
+            sourceWorld.execute(() -> {
+                try {
+                    apply(pending);
+                } finally {
+                    finish(pending);
+                }
+            });
+        } catch (Exception e) {
+            finish(pending);
+            WaystoneMetrics.TELEPORTS_DROPPED.increment();
+            LOGGER.atWarning().log("Failed to dispatch teleport for %s to '%s': %s",
+                    pending.playerRef.getUsername(), pending.waystoneName, e.getMessage());
+        }
+    }
+
+    /**
+     * Frees a dispatched teleport's slot in its batch; the destination's next batch is released once all are free.
+     */
+    private void finish(@Nonnull PendingTeleport pending) {
+        synchronized (lock) {
+            Batch batch = pending.batch;
+            if (batch != null && --batch.remaining == 0) {
+                inFlight.remove(pending.worldName, batch);
+            }
+            pending.batch = null;
+        }
+    }
+
+    /**
+     * Runs a dispatched teleport on the world thread, unless it is no longer possible.
+     */
+    private void apply(@Nonnull PendingTeleport pending) {
+        if (!pending.ref.isValid()) {
+            // Player left or changed worlds while waiting; the finally in dispatch frees the slot
+            WaystoneMetrics.TELEPORTS_DROPPED.increment();
+            LOGGER.atInfo().log("Dropped teleport for %s to '%s': the player left or changed worlds while queued",
+                    pending.playerRef.getUsername(), pending.waystoneName);
+            return;
+        }
+        // Re-read the waystone - it may have been edited or removed while queued
+        Waystone waystone = WaystoneRegistry.get().get(pending.waystoneId);
+        if (waystone == null) {
+            EventTitleUtil.showEventTitleToPlayer(pending.playerRef, Message.raw(pending.waystoneName),
+                    Message.raw("Waystone no longer exists"), false, null, 2.0f, 0.5f, 0.5f);
+            return;
+        }
+        // A teleport committed since this one was requested may have started a cooldown
+        UUID playerUuid = pending.playerRef.getUuid();
+        long remainingMillis = TeleportCooldownRegistry.get().getRemainingMillis(playerUuid);
+        if (remainingMillis > 0) {
+            EventTitleUtil.showEventTitleToPlayer(pending.playerRef, Message.raw(pending.waystoneName),
+                    Message.raw("You can teleport again in " + ((remainingMillis + 999) / 1000) + "s"),
+                    false, null, 2.0f, 0.5f, 0.5f);
+            return;
+        }
+        WaystoneEvents.Teleport event = new WaystoneEvents.Teleport();
+        event.begin();
+        Teleport teleport = waystone.toTeleport();
+        if (teleport != null) {
+            pending.store.addComponent(pending.ref, Teleport.getComponentType(), teleport);
+        }
+        if (event.shouldCommit()) {
+            event.player = pending.playerRef.getUuid().toString();
+            event.waystone = waystone.getId();
+            event.world = waystone.getWorldName();
+            event.resolved = teleport != null;
+            event.commit();
+        }
+        if (teleport == null) {
+            WaystoneMetrics.TELEPORTS_FAILED.increment();
+            LOGGER.atWarning().log("toTeleport returned null for waystone '%s'", waystone.getName());
+            return;
+        }
+        WaystoneMetrics.TELEPORTS_COMMITTED.increment();
+        TeleportCooldownRegistry.get().charge(playerUuid, PermissionUtils.getTeleportCooldownSeconds(playerUuid));
+
+        // Show arrival banner
+        EventTitleUtil.showEventTitleToPlayer(
+                pending.playerRef,
+                Message.raw(waystone.getName()),           // Primary title: waystone name
+                Message.raw("Waystone"),                   // Secondary title: placeholder
+                true,                                      // isMajor: large banner style
+                null,                                      // icon: none for now
+                pending.bannerDuration,                    // duration
+                1.0f,                                      // fadeInDuration
+                1.0f                                       // fadeOutDuration
+        );
+    }
+
+    private void notifyWarmup(@Nonnull PendingTeleport pending, int secondsLeft) {
+        pending.lastNotifiedSecond = secondsLeft;
+        EventTitleUtil.showEventTitleToPlayer(
+                pending.playerRef,
+                Message.raw(pending.waystoneName),
+                Message.raw("Teleporting in " + secondsLeft + "..."),
+                false,                                         // isMajor: small notice
+                null,
+                1.0f,
+                0.2f,
+                0.2f
+        );
+    }
+
+    private void notifyPosition(@Nonnull PendingTeleport pending, int position) {
+        pending.lastNotifiedPosition = position;
+        EventTitleUtil.showEventTitleToPlayer(
+                pending.playerRef,
+                Message.raw(pending.waystoneName),
+                Message.raw("Waystone busy - you are #" + position + " in line"),
+                false,                                         // isMajor: small notice
+                null,
+                1.0f,
+                0.2f,
+                0.2f
+        );
+    }
+
+    /**
+     * Adds a request to the back of its destination chunk queue.
+     * @return The request's position in that queue (1-based)
+     */
+    private int enqueue(@Nonnull PendingTeleport pending) {
+        ArrayDeque<PendingTeleport> queue = queues
+                .computeIfAbsent(pending.worldName, k -> new LinkedHashMap<>())
+                .computeIfAbsent(pending.chunkIndex, k -> new ArrayDeque<>());
+        queue.addLast(pending);
+        return queue.size();
+    }
+
+    private void removeFromQueue(@Nonnull PendingTeleport pending) {
+        if (warming.remove(pending)) {
+            return;
+        }
+        LinkedHashMap<Long, ArrayDeque<PendingTeleport>> chunkQueues = queues.get(pending.worldName);
+        if (chunkQueues == null) {
+            return;
+        }
+        ArrayDeque<PendingTeleport> queue = chunkQueues.get(pending.chunkIndex);
+        if (queue != null) {
+            queue.remove(pending);
+            if (queue.isEmpty()) {
+                chunkQueues.remove(pending.chunkIndex);
+            }
+        }
+        if (chunkQueues.isEmpty()) {
+            queues.remove(pending.worldName);
+        }
+    }
+}
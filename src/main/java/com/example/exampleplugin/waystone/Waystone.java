@@ -21,6 +21,8 @@ import java.util.*;
 /**
  * Represents a Waystone teleportation point in the world.
  * Each placed waystone block creates one of these entries.
+ * Instances are immutable once created: changes are made with the with* methods, which return
+ * a modified copy that the registry swaps in. Readers can hold on to an instance without locking.
  */
 public class Waystone {
 
@@ -115,6 +117,54 @@ public class Waystone {
         this.createdAt = createdAt;
     }
 
+    /**
+     * Creates a Waystone with every field set. Used by the binary format and the SQL storage.
+     */
+    Waystone(@Nonnull String id, @Nonnull String name, @Nonnull String worldName,
+             double x, double y, double z, float yaw,
+             @Nonnull String ownerUuid, @Nonnull String ownerName,
+             boolean isPublic, int priority, @Nonnull String[] editors, @Nonnull String[] viewers,
+             @Nullable Instant createdAt, @Nonnull String textColor, @Nonnull String teleportDirection,
+             @Nonnull String playerOrientation, boolean serverOwned, boolean defaultDiscovered,
+             @Nonnull String color) {
+        this(id, name, worldName, x, y, z, yaw, ownerUuid, ownerName, isPublic, createdAt);
+        this.priority = priority;
+        this.editors = editors;
+        this.viewers = viewers;
+        this.textColor = textColor;
+        this.teleportDirection = teleportDirection;
+        this.playerOrientation = playerOrientation;
+        this.serverOwned = serverOwned;
+        this.defaultDiscovered = defaultDiscovered;
+        this.color = color;
+    }
+
+    /**
+     * Copy constructor used by the with* methods.
+     */
+    private Waystone(@Nonnull Waystone other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.worldName = other.worldName;
+        this.x = other.x;
+        this.y = other.y;
+        this.z = other.z;
+        this.yaw = other.yaw;
+        this.ownerUuid = other.ownerUuid;
+        this.ownerName = other.ownerName;
+        this.isPublic = other.isPublic;
+        this.priority = other.priority;
+        this.editors = other.editors;
+        this.viewers = other.viewers;
+        this.createdAt = other.createdAt;
+        this.textColor = other.textColor;
+        this.teleportDirection = other.teleportDirection;
+        this.playerOrientation = other.playerOrientation;
+        this.serverOwned = other.serverOwned;
+        this.defaultDiscovered = other.defaultDiscovered;
+        this.color = other.color;
+    }
+
     /**
      * Creates a new Waystone with a generated UUID.
      */
@@ -148,10 +198,6 @@ public class Waystone {
         return name;
     }
 
-    public void setName(@Nonnull String name) {
-        this.name = name;
-    }
-
     @Nonnull
     public String getWorldName() {
         return worldName;
@@ -188,30 +234,14 @@ public class Waystone {
         return ownerName;
     }
 
-    public void setOwnerUuid(@Nonnull String ownerUuid) {
-        this.ownerUuid = ownerUuid;
-    }
-
-    public void setOwnerName(@Nonnull String ownerName) {
-        this.ownerName = ownerName;
-    }
-
     public boolean isPublic() {
         return isPublic;
     }
 
-    public void setPublic(boolean isPublic) {
-        this.isPublic = isPublic;
-    }
-
     public int getPriority() {
         return priority;
     }
 
-    public void setPriority(int priority) {
-        this.priority = priority;
-    }
-
     @Nonnull
     public Instant getCreatedAt() {
         return createdAt;
@@ -222,44 +252,24 @@ public class Waystone {
         return textColor != null ? textColor : "#ffffff";
     }
 
-    public void setTextColor(@Nonnull String textColor) {
-        this.textColor = textColor;
-    }
-
     @Nonnull
     public String getTeleportDirection() {
         return teleportDirection != null ? teleportDirection : "north";
     }
 
-    public void setTeleportDirection(@Nonnull String teleportDirection) {
-        this.teleportDirection = teleportDirection;
-    }
-
     @Nonnull
     public String getPlayerOrientation() {
         return playerOrientation != null ? playerOrientation : "away";
     }
 
-    public void setPlayerOrientation(@Nonnull String playerOrientation) {
-        this.playerOrientation = playerOrientation;
-    }
-
     public boolean isServerOwned() {
         return serverOwned;
     }
 
-    public void setServerOwned(boolean serverOwned) {
-        this.serverOwned = serverOwned;
-    }
-
     public boolean isDefaultDiscovered() {
         return defaultDiscovered;
     }
 
-    public void setDefaultDiscovered(boolean defaultDiscovered) {
-        this.defaultDiscovered = defaultDiscovered;
-    }
-
     /**
      * Gets the color variant of this waystone.
      * @return "default", "red", or "green"
@@ -269,14 +279,6 @@ public class Waystone {
         return color != null ? color : "default";
     }
 
-    /**
-     * Sets the color variant of this waystone.
-     * @param color "default", "red", or "green"
-     */
-    public void setColor(@Nonnull String color) {
-        this.color = color;
-    }
-
     /**
      * Gets the block ID for this waystone's color variant.
      * @return The block type ID (e.g., "Warp_Block", "Warp_Block_Red", "Warp_Block_Green")
@@ -341,69 +343,150 @@ public class Waystone {
      */
     @Nonnull
     public String[] getEditors() {
-        return editors;
+        return editors.clone();
     }
 
     /**
-     * Sets the list of editor UUIDs.
+     * Gets the list of viewer UUIDs.
      */
-    public void setEditors(@Nonnull String[] editors) {
-        this.editors = editors;
+    @Nonnull
+    public String[] getViewers() {
+        return viewers.clone();
     }
 
-    /**
-     * Adds an editor by UUID.
-     */
-    public void addEditor(@Nonnull String playerUuid) {
-        if (!isEditor(playerUuid)) {
-            String[] newEditors = Arrays.copyOf(editors, editors.length + 1);
-            newEditors[editors.length] = playerUuid;
-            this.editors = newEditors;
-        }
+    // Copy-on-write updates - each returns a modified copy and leaves this instance unchanged
+
+    @Nonnull
+    public Waystone withName(@Nonnull String name) {
+        Waystone copy = new Waystone(this);
+        copy.name = name;
+        return copy;
+    }
+
+    @Nonnull
+    public Waystone withOwnerUuid(@Nonnull String ownerUuid) {
+        Waystone copy = new Waystone(this);
+        copy.ownerUuid = ownerUuid;
+        return copy;
+    }
+
+    @Nonnull
+    public Waystone withOwnerName(@Nonnull String ownerName) {
+        Waystone copy = new Waystone(this);
+        copy.ownerName = ownerName;
+        return copy;
+    }
+
+    @Nonnull
+    public Waystone withPublic(boolean isPublic) {
+        Waystone copy = new Waystone(this);
+        copy.isPublic = isPublic;
+        return copy;
+    }
+
+    @Nonnull
+    public Waystone withPriority(int priority) {
+        Waystone copy = new Waystone(this);
+        copy.priority = priority;
+        return copy;
+    }
+
+    @Nonnull
+    public Waystone withTextColor(@Nonnull String textColor) {
+        Waystone copy = new Waystone(this);
+        copy.textColor = textColor;
+        return copy;
+    }
+
+    @Nonnull
+    public Waystone withTeleportDirection(@Nonnull String teleportDirection) {
+        Waystone copy = new Waystone(this);
+        copy.teleportDirection = teleportDirection;
+        return copy;
+    }
+
+    @Nonnull
+    public Waystone withPlayerOrientation(@Nonnull String playerOrientation) {
+        Waystone copy = new Waystone(this);
+        copy.playerOrientation = playerOrientation;
+        return copy;
+    }
+
+    @Nonnull
+    public Waystone withServerOwned(boolean serverOwned) {
+        Waystone copy = new Waystone(this);
+        copy.serverOwned = serverOwned;
+        return copy;
+    }
+
+    @Nonnull
+    public Waystone withDefaultDiscovered(boolean defaultDiscovered) {
+        Waystone copy = new Waystone(this);
+        copy.defaultDiscovered = defaultDiscovered;
+        return copy;
     }
 
     /**
-     * Removes an editor by UUID.
+     * Returns a copy with a different color variant.
+     * @param color "default", "red", or "green"
      */
-    public void removeEditor(@Nonnull String playerUuid) {
-        List<String> list = new ArrayList<>(Arrays.asList(editors));
-        list.remove(playerUuid);
-        this.editors = list.toArray(new String[0]);
+    @Nonnull
+    public Waystone withColor(@Nonnull String color) {
+        Waystone copy = new Waystone(this);
+        copy.color = color;
+        return copy;
     }
 
     /**
-     * Gets the list of viewer UUIDs.
+     * Returns a copy with the editor added, or this waystone if they already are one.
      */
     @Nonnull
-    public String[] getViewers() {
-        return viewers;
+    public Waystone withEditorAdded(@Nonnull String playerUuid) {
+        if (isEditor(playerUuid)) {
+            return this;
+        }
+        Waystone copy = new Waystone(this);
+        copy.editors = Arrays.copyOf(editors, editors.length + 1);
+        copy.editors[editors.length] = playerUuid;
+        return copy;
     }
 
     /**
-     * Sets the list of viewer UUIDs.
+     * Returns a copy with the editor removed.
      */
-    public void setViewers(@Nonnull String[] viewers) {
-        this.viewers = viewers;
+    @Nonnull
+    public Waystone withEditorRemoved(@Nonnull String playerUuid) {
+        List<String> list = new ArrayList<>(Arrays.asList(editors));
+        list.remove(playerUuid);
+        Waystone copy = new Waystone(this);
+        copy.editors = list.toArray(new String[0]);
+        return copy;
     }
 
     /**
-     * Adds a viewer by UUID.
+     * Returns a copy with the viewer added, or this waystone if they already are one.
      */
-    public void addViewer(@Nonnull String playerUuid) {
-        if (!isViewer(playerUuid)) {
-            String[] newViewers = Arrays.copyOf(viewers, viewers.length + 1);
-            newViewers[viewers.length] = playerUuid;
-            this.viewers = newViewers;
+    @Nonnull
+    public Waystone withViewerAdded(@Nonnull String playerUuid) {
+        if (isViewer(playerUuid)) {
+            return this;
         }
+        Waystone copy = new Waystone(this);
+        copy.viewers = Arrays.copyOf(viewers, viewers.length + 1);
+        copy.viewers[viewers.length] = playerUuid;
+        return copy;
     }
 
     /**
-     * Removes a viewer by UUID.
+     * Returns a copy with the viewer removed.
      */
-    public void removeViewer(@Nonnull String playerUuid) {
+    @Nonnull
+    public Waystone withViewerRemoved(@Nonnull String playerUuid) {
         List<String> list = new ArrayList<>(Arrays.asList(viewers));
         list.remove(playerUuid);
-        this.viewers = list.toArray(new String[0]);
+        Waystone copy = new Waystone(this);
+        copy.viewers = list.toArray(new String[0]);
+        return copy;
     }
 
     /**
@@ -413,6 +496,19 @@ public class Waystone {
      * @return true if safe to teleport, false if blocked
      */
     public boolean isSafeDestination() {
+        WaystoneEvents.SafetyCheck event = new WaystoneEvents.SafetyCheck();
+        event.begin();
+        boolean safe = checkSafeDestination();
+        if (event.shouldCommit()) {
+            event.waystone = id;
+            event.world = worldName;
+            event.safe = safe;
+            event.commit();
+        }
+        return safe;
+    }
+
+    private boolean checkSafeDestination() {
         World world = Universe.get().getWorld(worldName);
         if (world == null) {
             return false; // Can't check, assume unsafe
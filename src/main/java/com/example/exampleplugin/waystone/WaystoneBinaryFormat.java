@@ -0,0 +1,612 @@
+package com.example.exampleplugin.waystone;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.DecoderContext;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Compact binary storage format for waystones and discovery data.
+ * Used instead of the JSON files when the binaryStorage config option is enabled.
+ *
+ * Layout: a header (magic, version, file kind), a string table, then the records.
+ * Every string is written once in the table and referenced by index, UUIDs are written
+ * as two longs, and the fixed-choice settings (direction, orientation, color) as one byte.
+ * Counts and string indexes are varints.
+ * Since version 2 the waystone records are preceded by a table of their offsets, so a
+ * memory-mapped file can decode single records on demand (see {@link WaystoneSnapshot}).
+ */
+public final class WaystoneBinaryFormat {
+
+    /** "WYST" */
+    private static final int MAGIC = 0x57595354;
+    private static final short VERSION = 2;
+    /** Version 1 files have no record offset table. */
+    static final short VERSION_SEQUENTIAL = 1;
+    static final byte KIND_WAYSTONES = 1;
+    static final byte KIND_DISCOVERIES = 2;
+
+    // Record flags
+    private static final int FLAG_PUBLIC = 1;
+    private static final int FLAG_SERVER_OWNED = 1 << 1;
+    private static final int FLAG_DEFAULT_DISCOVERED = 1 << 2;
+    private static final int FLAG_HAS_CREATED_AT = 1 << 3;
+
+    // Tags for IDs that may or may not be UUIDs
+    private static final byte ID_UUID = 0;
+    private static final byte ID_STRING = 1;
+
+    /** Enum byte meaning "value not in the table, string index follows". */
+    private static final int ENUM_OTHER = 0xFF;
+    private static final String[] DIRECTIONS = {"north", "south", "east", "west"};
+    private static final String[] ORIENTATIONS = {"away", "towards"};
+    private static final String[] COLORS = {"default", "red", "green"};
+
+    /**
+     * Waystones file contents.
+     */
+    public record WaystoneData(@Nonnull BsonDocument config, @Nonnull Waystone[] waystones) {
+    }
+
+    /**
+     * File header: format version and string table.
+     */
+    record Header(short version, @Nonnull String[] strings) {
+    }
+
+    private WaystoneBinaryFormat() {
+    }
+
+    // ---------------------------------------------------------------- waystones
+
+    /**
+     * Encodes the config section and waystones.
+     */
+    @Nonnull
+    public static byte[] encodeWaystones(@Nonnull BsonDocument config, @Nonnull Waystone[] waystones) {
+        return new WaystoneEncoder().encode(config, waystones);
+    }
+
+    /**
+     * Waystones encoder that keeps each record's bytes between saves.
+     * Waystones are immutable, so a record is only re-encoded when the registry holds a different
+     * instance for its ID; the rest are copied from the cache.
+     * Strings are numbered in a table that only grows, which keeps cached records valid; the table
+     * and cache are rebuilt once the table has doubled since the last rebuild, bounding the strings
+     * left behind by renames and removals.
+     * Not thread-safe - callers encode one save at a time.
+     */
+    public static final class WaystoneEncoder {
+        private static final int MIN_REBUILD_SIZE = 64;
+
+        private StringTable strings = new StringTable();
+        private Map<String, EncodedRecord> cache = new HashMap<>();
+        private int rebuildAt = MIN_REBUILD_SIZE;
+        private int lastEncodedCount = 0;
+
+        private record EncodedRecord(@Nonnull Waystone source, @Nonnull byte[] bytes) {
+        }
+
+        /**
+         * Encodes the config section and waystones.
+         */
+        @Nonnull
+        public byte[] encode(@Nonnull BsonDocument config, @Nonnull Waystone[] waystones) {
+            if (strings.values.size() > rebuildAt) {
+                strings = new StringTable();
+                cache = new HashMap<>();
+            }
+            boolean fresh = cache.isEmpty();
+
+            Map<String, EncodedRecord> next = new HashMap<>(waystones.length * 2);
+            byte[][] records = new byte[waystones.length][];
+            int recordsSize = 0;
+            lastEncodedCount = 0;
+            for (int i = 0; i < waystones.length; i++) {
+                Waystone waystone = waystones[i];
+                EncodedRecord record = cache.get(waystone.getId());
+                if (record == null || record.source() != waystone) {
+                    Output out = new Output(96);
+                    writeWaystone(out, strings, waystone);
+                    record = new EncodedRecord(waystone, out.toByteArray());
+                    lastEncodedCount++;
+                }
+                next.put(waystone.getId(), record);
+                records[i] = record.bytes();
+                recordsSize += record.bytes().length;
+            }
+            cache = next;
+            if (fresh) {
+                rebuildAt = Math.max(MIN_REBUILD_SIZE, strings.values.size() * 2);
+            }
+
+            byte[] configBytes = toBytes(config);
+            Output body = new Output(16 + configBytes.length + waystones.length * 4 + recordsSize);
+            body.varint(configBytes.length);
+            body.bytes(configBytes);
+
+            body.varint(waystones.length);
+            // Fixed-width offsets (relative to the first record) so a reader can jump to any record
+            int offset = 0;
+            for (byte[] record : records) {
+                body.i32(offset);
+                offset += record.length;
+            }
+            for (byte[] record : records) {
+                body.bytes(record);
+            }
+
+            return withHeader(KIND_WAYSTONES, strings, body);
+        }
+
+        /**
+         * Gets the number of records encoded (rather than copied from the cache) by the last {@link #encode}.
+         */
+        public int getLastEncodedCount() {
+            return lastEncodedCount;
+        }
+    }
+
+    private static void writeWaystone(@Nonnull Output out, @Nonnull StringTable strings, @Nonnull Waystone waystone) {
+        int flags = 0;
+        if (waystone.isPublic()) flags |= FLAG_PUBLIC;
+        if (waystone.isServerOwned()) flags |= FLAG_SERVER_OWNED;
+        if (waystone.isDefaultDiscovered()) flags |= FLAG_DEFAULT_DISCOVERED;
+        Instant createdAt = waystone.getCreatedAt();
+        if (createdAt != null) flags |= FLAG_HAS_CREATED_AT;
+        out.u8(flags);
+
+        writeId(out, strings, waystone.getId());
+        out.varint(strings.indexOf(waystone.getName()));
+        out.varint(strings.indexOf(waystone.getWorldName()));
+        out.f64(waystone.getX());
+        out.f64(waystone.getY());
+        out.f64(waystone.getZ());
+        out.f32(waystone.getYaw());
+        writeId(out, strings, waystone.getOwnerUuid());
+        out.varint(strings.indexOf(waystone.getOwnerName()));
+        out.zigzag(waystone.getPriority());
+        writeStrings(out, strings, waystone.getEditors());
+        writeStrings(out, strings, waystone.getViewers());
+        if (createdAt != null) {
+            out.i64(createdAt.getEpochSecond());
+            out.varint(createdAt.getNano());
+        }
+        out.varint(strings.indexOf(waystone.getTextColor()));
+        writeEnum(out, strings, DIRECTIONS, waystone.getTeleportDirection());
+        writeEnum(out, strings, ORIENTATIONS, waystone.getPlayerOrientation());
+        writeEnum(out, strings, COLORS, waystone.getColor());
+    }
+
+    /**
+     * Decodes data written by {@link #encodeWaystones}.
+     *
+     * @throws IOException if the data is not a waystones file of a supported version
+     */
+    @Nonnull
+    public static WaystoneData decodeWaystones(@Nonnull ByteBuffer buffer) throws IOException {
+        Input in = new Input(buffer);
+        Header header = readHeader(in, KIND_WAYSTONES);
+        String[] strings = header.strings();
+        BsonDocument config = readConfig(in);
+
+        int count = in.varint();
+        if (header.version() != VERSION_SEQUENTIAL) {
+            // Reading everything in order - the offset table isn't needed
+            in.buffer.position(in.buffer.position() + count * 4);
+        }
+        Waystone[] waystones = new Waystone[count];
+        for (int i = 0; i < count; i++) {
+            waystones[i] = readWaystone(in, strings);
+        }
+        return new WaystoneData(config, waystones);
+    }
+
+    @Nonnull
+    static BsonDocument readConfig(@Nonnull Input in) {
+        byte[] configBytes = new byte[in.varint()];
+        in.buffer.get(configBytes);
+        return fromBytes(configBytes);
+    }
+
+    @Nonnull
+    static Waystone readWaystone(@Nonnull Input in, @Nonnull String[] strings) {
+        int flags = in.u8();
+        String id = readId(in, strings);
+        String name = strings[in.varint()];
+        String worldName = strings[in.varint()];
+        double x = in.buffer.getDouble();
+        double y = in.buffer.getDouble();
+        double z = in.buffer.getDouble();
+        float yaw = in.buffer.getFloat();
+        String ownerUuid = readId(in, strings);
+        String ownerName = strings[in.varint()];
+        int priority = in.zigzag();
+        String[] editors = readStrings(in, strings);
+        String[] viewers = readStrings(in, strings);
+        Instant createdAt = null;
+        if ((flags & FLAG_HAS_CREATED_AT) != 0) {
+            long seconds = in.buffer.getLong();
+            createdAt = Instant.ofEpochSecond(seconds, in.varint());
+        }
+        String textColor = strings[in.varint()];
+        String direction = readEnum(in, strings, DIRECTIONS);
+        String orientation = readEnum(in, strings, ORIENTATIONS);
+        String color = readEnum(in, strings, COLORS);
+
+        return new Waystone(id, name, worldName, x, y, z, yaw, ownerUuid, ownerName,
+                (flags & FLAG_PUBLIC) != 0, priority, editors, viewers, createdAt, textColor,
+                direction, orientation, (flags & FLAG_SERVER_OWNED) != 0,
+                (flags & FLAG_DEFAULT_DISCOVERED) != 0, color);
+    }
+
+    // ---------------------------------------------------------------- discoveries
+
+    /**
+     * Encodes player discoveries (player UUID -> discovered waystone IDs).
+     */
+    @Nonnull
+    public static byte[] encodeDiscoveries(@Nonnull Map<String, ? extends Collection<String>> discoveries) {
+        StringTable strings = new StringTable();
+        Output body = new Output(64 + discoveries.size() * 64);
+
+        // Sizes may change while we iterate live sets, so write each player's IDs from a snapshot
+        List<Map.Entry<String, ? extends Collection<String>>> entries = new ArrayList<>(discoveries.entrySet());
+        body.varint(entries.size());
+        for (Map.Entry<String, ? extends Collection<String>> entry : entries) {
+            String[] ids = entry.getValue().toArray(new String[0]);
+            writeId(body, strings, entry.getKey());
+            body.varint(ids.length);
+            for (String waystoneId : ids) {
+                writeId(body, strings, waystoneId);
+            }
+        }
+
+        return withHeader(KIND_DISCOVERIES, strings, body);
+    }
+
+    /**
+     * Decodes data written by {@link #encodeDiscoveries}.
+     *
+     * @throws IOException if the data is not a discoveries file of a supported version
+     */
+    @Nonnull
+    public static Map<String, String[]> decodeDiscoveries(@Nonnull ByteBuffer buffer) throws IOException {
+        Input in = new Input(buffer);
+        String[] strings = readHeader(in, KIND_DISCOVERIES).strings();
+
+        int players = in.varint();
+        Map<String, String[]> discoveries = new HashMap<>(players * 2);
+        for (int i = 0; i < players; i++) {
+            String playerUuid = readId(in, strings);
+            String[] ids = new String[in.varint()];
+            for (int j = 0; j < ids.length; j++) {
+                ids[j] = readId(in, strings);
+            }
+            discoveries.put(playerUuid, ids);
+        }
+        return discoveries;
+    }
+
+    // ---------------------------------------------------------------- files
+
+    /**
+     * A file mapped into memory for decoding.
+     * Closing it unmaps the file right away instead of whenever the buffer is collected: on Windows
+     * a mapped file can't be renamed over or rotated, so saves would fail until then.
+     * The buffer must not be used once closed.
+     */
+    public static final class MappedFile implements AutoCloseable {
+        private final Arena arena;
+        private final ByteBuffer buffer;
+
+        private MappedFile(@Nonnull Arena arena, @Nonnull ByteBuffer buffer) {
+            this.arena = arena;
+            this.buffer = buffer;
+        }
+
+        @Nonnull
+        public ByteBuffer buffer() {
+            return buffer;
+        }
+
+        @Override
+        public void close() {
+            arena.close();
+        }
+    }
+
+    /**
+     * Maps a file into memory for decoding. The mapping stays valid after the channel is closed,
+     * until the returned file is.
+     */
+    @Nonnull
+    public static MappedFile map(@Nonnull Path path) throws IOException {
+        Arena arena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new MappedFile(arena, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena).asByteBuffer());
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    @Nonnull
+    private static byte[] withHeader(byte kind, @Nonnull StringTable strings, @Nonnull Output body) {
+        Output out = new Output(16 + strings.byteSize() + body.size());
+        out.i32(MAGIC);
+        out.i16(VERSION);
+        out.u8(kind);
+        out.varint(strings.values.size());
+        for (String value : strings.values) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            out.varint(utf8.length);
+            out.bytes(utf8);
+        }
+        out.bytes(body.buffer, body.size());
+        return out.toByteArray();
+    }
+
+    @Nonnull
+    static Header readHeader(@Nonnull Input in, byte expectedKind) throws IOException {
+        if (in.buffer.remaining() < 7 || in.buffer.getInt() != MAGIC) {
+            throw new IOException("Not a waystone binary file");
+        }
+        short version = in.buffer.getShort();
+        if (version != VERSION && version != VERSION_SEQUENTIAL) {
+            throw new IOException("Unsupported waystone binary version " + version);
+        }
+        byte kind = in.buffer.get();
+        if (kind != expectedKind) {
+            throw new IOException("Unexpected waystone binary file kind " + kind);
+        }
+        String[] strings = new String[in.varint()];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] utf8 = new byte[in.varint()];
+            in.buffer.get(utf8);
+            strings[i] = new String(utf8, StandardCharsets.UTF_8);
+        }
+        return new Header(version, strings);
+    }
+
+    private static void writeId(@Nonnull Output out, @Nonnull StringTable strings, @Nonnull String id) {
+        UUID uuid = parseUuid(id);
+        if (uuid != null) {
+            out.u8(ID_UUID);
+            out.i64(uuid.getMostSignificantBits());
+            out.i64(uuid.getLeastSignificantBits());
+        } else {
+            out.u8(ID_STRING);
+            out.varint(strings.indexOf(id));
+        }
+    }
+
+    @Nonnull
+    static String readId(@Nonnull Input in, @Nonnull String[] strings) {
+        if (in.u8() == ID_UUID) {
+            return new UUID(in.buffer.getLong(), in.buffer.getLong()).toString();
+        }
+        return strings[in.varint()];
+    }
+
+    private static void writeStrings(@Nonnull Output out, @Nonnull StringTable strings, @Nonnull String[] values) {
+        out.varint(values.length);
+        for (String value : values) {
+            out.varint(strings.indexOf(value));
+        }
+    }
+
+    @Nonnull
+    private static String[] readStrings(@Nonnull Input in, @Nonnull String[] strings) {
+        String[] values = new String[in.varint()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = strings[in.varint()];
+        }
+        return values;
+    }
+
+    private static void writeEnum(@Nonnull Output out, @Nonnull StringTable strings,
+                                  @Nonnull String[] choices, @Nonnull String value) {
+        for (int i = 0; i < choices.length; i++) {
+            if (choices[i].equals(value)) {
+                out.u8(i);
+                return;
+            }
+        }
+        // Hand-edited or future value - keep it verbatim
+        out.u8(ENUM_OTHER);
+        out.varint(strings.indexOf(value));
+    }
+
+    @Nonnull
+    private static String readEnum(@Nonnull Input in, @Nonnull String[] strings, @Nonnull String[] choices) {
+        int ordinal = in.u8();
+        return ordinal == ENUM_OTHER ? strings[in.varint()] : choices[ordinal];
+    }
+
+    /**
+     * Parses a UUID only if it round-trips to the same string, so IDs are restored exactly.
+     */
+    @Nullable
+    private static UUID parseUuid(@Nonnull String value) {
+        if (value.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(value);
+            return uuid.toString().equals(value) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Nonnull
+    private static byte[] toBytes(@Nonnull BsonDocument document) {
+        RawBsonDocument raw = new RawBsonDocument(document, new BsonDocumentCodec());
+        ByteBuffer buffer = raw.getByteBuffer().asNIO();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Nonnull
+    private static BsonDocument fromBytes(@Nonnull byte[] bytes) {
+        try (BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(bytes))) {
+            return new BsonDocumentCodec().decode(reader, DecoderContext.builder().build());
+        }
+    }
+
+    /**
+     * Deduplicating string table; strings are numbered in order of first use.
+     */
+    private static final class StringTable {
+        final List<String> values = new ArrayList<>();
+        final Map<String, Integer> indexes = new HashMap<>();
+        int byteSize = 0;
+
+        int indexOf(@Nonnull String value) {
+            Integer index = indexes.get(value);
+            if (index == null) {
+                index = values.size();
+                values.add(value);
+                indexes.put(value, index);
+                byteSize += value.length() * 3 + 5;
+            }
+            return index;
+        }
+
+        int byteSize() {
+            return byteSize;
+        }
+    }
+
+    /**
+     * Growable big-endian byte buffer with varint support.
+     */
+    private static final class Output {
+        byte[] buffer;
+        int size = 0;
+
+        Output(int capacity) {
+            buffer = new byte[Math.max(16, capacity)];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void u8(int value) {
+            ensure(1);
+            buffer[size++] = (byte) value;
+        }
+
+        void i16(int value) {
+            ensure(2);
+            buffer[size++] = (byte) (value >>> 8);
+            buffer[size++] = (byte) value;
+        }
+
+        void i32(int value) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        void i64(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        void f32(float value) {
+            i32(Float.floatToIntBits(value));
+        }
+
+        void f64(double value) {
+            i64(Double.doubleToLongBits(value));
+        }
+
+        void varint(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void zigzag(int value) {
+            varint((value << 1) ^ (value >> 31));
+        }
+
+        void bytes(@Nonnull byte[] bytes) {
+            bytes(bytes, bytes.length);
+        }
+
+        void bytes(@Nonnull byte[] bytes, int length) {
+            ensure(length);
+            System.arraycopy(bytes, 0, buffer, size, length);
+            size += length;
+        }
+
+        @Nonnull
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+    }
+
+    /**
+     * Reader over a big-endian buffer with varint support.
+     */
+    static final class Input {
+        final ByteBuffer buffer;
+
+        Input(@Nonnull ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        int u8() {
+            return buffer.get() & 0xFF;
+        }
+
+        int varint() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = buffer.get();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("Malformed varint");
+        }
+
+        int zigzag() {
+            int raw = varint();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+    }
+}
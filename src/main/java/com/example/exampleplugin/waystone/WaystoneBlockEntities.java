@@ -0,0 +1,149 @@
+package com.example.exampleplugin.waystone;
+
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.math.util.ChunkUtil;
+import com.hypixel.hytale.server.core.modules.block.BlockModule;
+import com.hypixel.hytale.server.core.universe.Universe;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+import com.hypixel.hytale.server.core.universe.world.storage.ChunkStore;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Utility class for the WaystoneComponent stored on waystone block entities.
+ * The component links a placed block to its waystone ID, so resolving the waystone for a
+ * block is a chunk lookup instead of a registry search, and the link is saved with the chunk.
+ * Must be called on the world's thread.
+ */
+public final class WaystoneBlockEntities {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    // All waystone block variants (base + colors)
+    private static final String WAYSTONE_BLOCK_ID = "Warp_Block";
+    private static final String WAYSTONE_BLOCK_ID_RED = "Warp_Block_Red";
+    private static final String WAYSTONE_BLOCK_ID_GREEN = "Warp_Block_Green";
+
+    private WaystoneBlockEntities() {
+        // Utility class - prevent instantiation
+    }
+
+    /**
+     * Checks if a block type ID is any waystone variant.
+     */
+    public static boolean isWaystoneBlock(@Nonnull String blockTypeId) {
+        // Check for exact match or namespace-prefixed match (e.g., "exampleplugin:Warp_Block")
+        return blockTypeId.equals(WAYSTONE_BLOCK_ID) || blockTypeId.endsWith(":" + WAYSTONE_BLOCK_ID)
+                || blockTypeId.equals(WAYSTONE_BLOCK_ID_RED) || blockTypeId.endsWith(":" + WAYSTONE_BLOCK_ID_RED)
+                || blockTypeId.equals(WAYSTONE_BLOCK_ID_GREEN) || blockTypeId.endsWith(":" + WAYSTONE_BLOCK_ID_GREEN);
+    }
+
+    /**
+     * Resolves the waystone standing on a block.
+     * Reads the block's WaystoneComponent first; blocks placed before components were attached
+     * fall back to a registry lookup and get their component added on the way.
+     */
+    @Nullable
+    public static Waystone resolve(@Nonnull World world, int x, int y, int z) {
+        String waystoneId = getWaystoneId(world, x, y, z);
+        if (waystoneId != null) {
+            Waystone waystone = WaystoneRegistry.get().get(waystoneId);
+            if (waystone != null) {
+                return waystone;
+            }
+        }
+
+        Waystone waystone = WaystoneRegistry.get().getByPosition(world.getName(), x, y, z);
+        if (waystone != null) {
+            attach(world, waystone);
+        }
+        return waystone;
+    }
+
+    /**
+     * Resolves the waystone standing on a block without adding a missing component.
+     * Used when the block is about to be removed anyway.
+     */
+    @Nullable
+    public static Waystone find(@Nonnull World world, int x, int y, int z) {
+        String waystoneId = getWaystoneId(world, x, y, z);
+        Waystone waystone = waystoneId != null ? WaystoneRegistry.get().get(waystoneId) : null;
+        return waystone != null ? waystone : WaystoneRegistry.get().getByPosition(world.getName(), x, y, z);
+    }
+
+    /**
+     * Gets the waystone ID stored on a block, or null if the block has none or its chunk isn't loaded.
+     */
+    @Nullable
+    public static String getWaystoneId(@Nonnull World world, int x, int y, int z) {
+        WorldChunk chunk = getChunk(world, x, z);
+        if (chunk == null) {
+            return null;
+        }
+        Ref<ChunkStore> blockRef = chunk.getBlockComponentEntity(x & 0x1F, y, z & 0x1F);
+        if (blockRef == null || !blockRef.isValid()) {
+            return null;
+        }
+        WaystoneComponent component = blockRef.getStore().getComponent(blockRef, WaystoneComponent.getComponentType());
+        return component != null ? component.getWaystoneId() : null;
+    }
+
+    /**
+     * Attaches a WaystoneComponent for the waystone to its block, creating the block entity if needed.
+     * Does nothing if the waystone's chunk isn't loaded.
+     *
+     * @return true if the block now carries the waystone's ID
+     */
+    public static boolean attach(@Nonnull Waystone waystone) {
+        World world = Universe.get().getWorld(waystone.getWorldName());
+        return world != null && attach(world, waystone);
+    }
+
+    /**
+     * Attaches a WaystoneComponent for the waystone to its block in the given world.
+     */
+    public static boolean attach(@Nonnull World world, @Nonnull Waystone waystone) {
+        int x = (int) Math.floor(waystone.getX());
+        int y = (int) Math.floor(waystone.getY());
+        int z = (int) Math.floor(waystone.getZ());
+        WorldChunk chunk = getChunk(world, x, z);
+        if (chunk == null) {
+            return false;
+        }
+
+        Ref<ChunkStore> blockRef = BlockModule.ensureBlockEntity(chunk, x & 0x1F, y, z & 0x1F);
+        if (blockRef == null || !blockRef.isValid()) {
+            if (WaystoneRegistry.isDebugEnabled()) {
+                LOGGER.atWarning().log("Could not create block entity for waystone '%s' at (%d, %d, %d)",
+                        waystone.getName(), x, y, z);
+            }
+            return false;
+        }
+
+        Store<ChunkStore> store = blockRef.getStore();
+        WaystoneComponent existing = store.getComponent(blockRef, WaystoneComponent.getComponentType());
+        if (existing != null) {
+            if (existing.getWaystoneId().equals(waystone.getId())) {
+                return true;
+            }
+            store.removeComponent(blockRef, WaystoneComponent.getComponentType());
+        }
+        store.addComponent(blockRef, WaystoneComponent.getComponentType(), new WaystoneComponent(waystone.getId()));
+
+        if (WaystoneRegistry.isDebugEnabled()) {
+            LOGGER.atInfo().log("Attached waystone '%s' (ID: %s) to block at (%d, %d, %d)",
+                    waystone.getName(), waystone.getId(), x, y, z);
+        }
+        return true;
+    }
+
+    @Nullable
+    private static WorldChunk getChunk(@Nonnull World world, int x, int z) {
+        // Chunks in Hytale are 32x32, so we use >> 5 (divide by 32)
+        return world.getChunkIfInMemory(ChunkUtil.indexChunk(x >> 5, z >> 5));
+    }
+}
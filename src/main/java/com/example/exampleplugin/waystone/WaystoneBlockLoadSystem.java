@@ -0,0 +1,60 @@
+package com.example.exampleplugin.waystone;
+
+import com.hypixel.hytale.component.AddReason;
+import com.hypixel.hytale.component.CommandBuffer;
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.RemoveReason;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.query.Query;
+import com.hypixel.hytale.component.system.RefSystem;
+import com.hypixel.hytale.server.core.universe.world.storage.ChunkStore;
+
+import javax.annotation.Nonnull;
+
+/**
+ * ECS system that checks waystone block entities as their chunk loads.
+ * A block whose WaystoneComponent points at a waystone missing from the registry has the
+ * component removed and is reported to the {@link WaystoneReconciler}.
+ */
+public class WaystoneBlockLoadSystem extends RefSystem<ChunkStore> {
+
+    @Nonnull
+    @Override
+    public Query<ChunkStore> getQuery() {
+        return WaystoneComponent.getComponentType();
+    }
+
+    @Override
+    public void onEntityAdded(@Nonnull Ref<ChunkStore> ref,
+                              @Nonnull AddReason reason,
+                              @Nonnull Store<ChunkStore> store,
+                              @Nonnull CommandBuffer<ChunkStore> commandBuffer) {
+        try (WaystoneWatchdog.Watch ignored = WaystoneWatchdog.watch("block load", null)) {
+            checkBlock(ref, reason, store, commandBuffer);
+        }
+    }
+
+    private void checkBlock(@Nonnull Ref<ChunkStore> ref,
+                            @Nonnull AddReason reason,
+                            @Nonnull Store<ChunkStore> store,
+                            @Nonnull CommandBuffer<ChunkStore> commandBuffer) {
+        // Until the registry is loaded there is nothing to compare against
+        if (!WaystoneRegistry.get().isLoaded()) {
+            return;
+        }
+        WaystoneComponent component = store.getComponent(ref, WaystoneComponent.getComponentType());
+        if (component == null || WaystoneRegistry.get().exists(component.getWaystoneId())) {
+            return;
+        }
+        commandBuffer.removeComponent(ref, WaystoneComponent.getComponentType());
+        WaystoneReconciler.get().recordBlockOrphan(component.getWaystoneId());
+    }
+
+    @Override
+    public void onEntityRemove(@Nonnull Ref<ChunkStore> ref,
+                               @Nonnull RemoveReason reason,
+                               @Nonnull Store<ChunkStore> store,
+                               @Nonnull CommandBuffer<ChunkStore> commandBuffer) {
+        // Nothing to do - registry entries are removed by WaystoneBreakHandler or the reconciler
+    }
+}
@@ -10,6 +10,7 @@ import com.hypixel.hytale.server.core.Message;
 import com.hypixel.hytale.server.core.entity.UUIDComponent;
 import com.hypixel.hytale.server.core.entity.entities.Player;
 import com.hypixel.hytale.server.core.event.events.ecs.BreakBlockEvent;
+import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
 import javax.annotation.Nonnull;
@@ -23,26 +24,11 @@ import java.util.UUID;
 public class WaystoneBreakHandler extends EntityEventSystem<EntityStore, BreakBlockEvent> {
 
     private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
-    
-    // All waystone block variants (base + colors)
-    private static final String WAYSTONE_BLOCK_ID = "Warp_Block";
-    private static final String WAYSTONE_BLOCK_ID_RED = "Warp_Block_Red";
-    private static final String WAYSTONE_BLOCK_ID_GREEN = "Warp_Block_Green";
 
     public WaystoneBreakHandler() {
         super(BreakBlockEvent.class);
     }
 
-    /**
-     * Checks if a block type ID is any waystone variant.
-     */
-    private boolean isWaystoneBlock(String blockTypeId) {
-        // Check for exact match or namespace-prefixed match (e.g., "exampleplugin:Warp_Block")
-        return blockTypeId.equals(WAYSTONE_BLOCK_ID) || blockTypeId.endsWith(":" + WAYSTONE_BLOCK_ID)
-                || blockTypeId.equals(WAYSTONE_BLOCK_ID_RED) || blockTypeId.endsWith(":" + WAYSTONE_BLOCK_ID_RED)
-                || blockTypeId.equals(WAYSTONE_BLOCK_ID_GREEN) || blockTypeId.endsWith(":" + WAYSTONE_BLOCK_ID_GREEN);
-    }
-
     @Nullable
     @Override
     public Query<EntityStore> getQuery() {
@@ -55,14 +41,36 @@ public class WaystoneBreakHandler extends EntityEventSystem<EntityStore, BreakBl
                        @Nonnull Store<EntityStore> store,
                        @Nonnull CommandBuffer<EntityStore> commandBuffer,
                        @Nonnull BreakBlockEvent event) {
-        String blockTypeId = event.getBlockType().getId();
-        
-        // Only process waystone blocks (all color variants)
-        if (!isWaystoneBlock(blockTypeId)) {
+        long start = WaystoneMetrics.start();
+        try {
+            // Only process waystone blocks (all color variants)
+            if (!WaystoneBlockEntities.isWaystoneBlock(event.getBlockType().getId())) {
+                return;
+            }
+            try (WaystoneWatchdog.Watch ignored = WaystoneWatchdog.watch("block break", null)) {
+                handleEvent(index, archetypeChunk, store, event);
+            }
+        } finally {
+            WaystoneMetrics.BREAK_HANDLER.recordSince(start);
+        }
+    }
+
+    private void handleEvent(int index,
+                             @Nonnull ArchetypeChunk<EntityStore> archetypeChunk,
+                             @Nonnull Store<EntityStore> store,
+                             @Nonnull BreakBlockEvent event) {
+        // Ownership can't be checked until the registry is loaded
+        if (!WaystoneRegistry.awaitStartupLoad()) {
+            event.setCancelled(true);
+            Player playerComponent = archetypeChunk.getComponent(index, Player.getComponentType());
+            if (playerComponent != null) {
+                playerComponent.sendMessage(Message.raw(WaystoneRegistry.getUnavailableMessage()));
+            }
             return;
         }
         
-        String worldName = store.getExternalData().getWorld().getName();
+        World world = store.getExternalData().getWorld();
+        String worldName = world.getName();
         var position = event.getTargetBlock();
         
         // Get the player's UUID from the entity
@@ -75,7 +83,7 @@ public class WaystoneBreakHandler extends EntityEventSystem<EntityStore, BreakBl
         boolean playerIsOp = PermissionUtils.isOp(playerUuid);
         
         // Get the waystone at this position (if any)
-        Waystone waystone = WaystoneRegistry.get().getByPosition(worldName, position.x, position.y, position.z);
+        Waystone waystone = WaystoneBlockEntities.find(world, position.x, position.y, position.z);
         
         // Check if waystone is server-owned - only OPs can break server-owned waystones
         if (waystone != null && waystone.isServerOwned() && !playerIsOp) {
@@ -0,0 +1,50 @@
+package com.example.exampleplugin.waystone;
+
+import com.hypixel.hytale.component.AddReason;
+import com.hypixel.hytale.component.CommandBuffer;
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.RemoveReason;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.query.Query;
+import com.hypixel.hytale.component.system.RefSystem;
+import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+import com.hypixel.hytale.server.core.universe.world.storage.ChunkStore;
+
+import javax.annotation.Nonnull;
+
+/**
+ * ECS system that hands every chunk to the {@link WaystoneReconciler} as it loads, so waystone blocks
+ * without a registry entry are found. Bare blocks have no block entity, so {@link WaystoneBlockLoadSystem}
+ * never sees them; the reconciler reads the chunk's blocks a few columns per tick instead.
+ */
+public class WaystoneChunkScanSystem extends RefSystem<ChunkStore> {
+
+    @Nonnull
+    @Override
+    public Query<ChunkStore> getQuery() {
+        return WorldChunk.getComponentType();
+    }
+
+    @Override
+    public void onEntityAdded(@Nonnull Ref<ChunkStore> ref,
+                              @Nonnull AddReason reason,
+                              @Nonnull Store<ChunkStore> store,
+                              @Nonnull CommandBuffer<ChunkStore> commandBuffer) {
+        // Until the registry is loaded every block would look bare
+        if (!WaystoneRegistry.get().isLoaded()) {
+            return;
+        }
+        WorldChunk chunk = store.getComponent(ref, WorldChunk.getComponentType());
+        if (chunk != null) {
+            WaystoneReconciler.get().queueChunkScan(store.getExternalData().getWorld(), chunk);
+        }
+    }
+
+    @Override
+    public void onEntityRemove(@Nonnull Ref<ChunkStore> ref,
+                               @Nonnull RemoveReason reason,
+                               @Nonnull Store<ChunkStore> store,
+                               @Nonnull CommandBuffer<ChunkStore> commandBuffer) {
+        // Nothing to do - scans of unloaded chunks are dropped by the reconciler
+    }
+}
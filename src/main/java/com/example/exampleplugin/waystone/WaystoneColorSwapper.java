@@ -41,6 +41,20 @@ public class WaystoneColorSwapper {
      * @return true if the block was swapped successfully
      */
     public static boolean swapBlock(@Nonnull Waystone waystone) {
+        WaystoneEvents.BlockSwap event = new WaystoneEvents.BlockSwap();
+        event.begin();
+        boolean swapped = swap(waystone);
+        if (event.shouldCommit()) {
+            event.waystone = waystone.getId();
+            event.world = waystone.getWorldName();
+            event.block = waystone.getBlockId();
+            event.swapped = swapped;
+            event.commit();
+        }
+        return swapped;
+    }
+
+    private static boolean swap(@Nonnull Waystone waystone) {
         LOGGER.atInfo().log("[ColorSwapper] Starting swap for waystone '%s' to color '%s'", 
                 waystone.getName(), waystone.getColor());
         
@@ -107,6 +121,11 @@ public class WaystoneColorSwapper {
         LOGGER.atInfo().log("[ColorSwapper] Swapped waystone '%s' block to %s at world (%d, %d, %d): %s",
                 waystone.getName(), newBlockId, worldX, worldY, worldZ, success ? "success" : "failed");
 
+        // Replacing the block drops its block entity, so re-link the new block to the waystone
+        if (success) {
+            WaystoneBlockEntities.attach(world, waystone);
+        }
+
         return success;
     }
 }
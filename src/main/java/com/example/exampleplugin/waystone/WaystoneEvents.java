@@ -0,0 +1,130 @@
+package com.example.exampleplugin.waystone;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for waystone work, shown under "Waystones" in JDK Mission Control.
+ * All are off until enabled in the recording settings, e.g.
+ * {@code -XX:StartFlightRecording:settings=profile,+com.example.waystones.ListBuild#enabled=true}
+ * or a .jfc file. When an event is off, {@code begin()}/{@code shouldCommit()} are folded away by
+ * the JIT and the fields are never filled in.
+ */
+public final class WaystoneEvents {
+
+    private static final String CATEGORY = "Waystones";
+
+    private WaystoneEvents() {
+    }
+
+    @Name("com.example.waystones.Save")
+    @Label("Waystone Save")
+    @Description("A save of the waystones or player discoveries, on the persistence thread")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class Save extends Event {
+        @Label("Save")
+        @Description("Which registry was saved")
+        public String save;
+
+        @Label("Storage")
+        public String storage;
+
+        @Label("Records")
+        @Description("Waystones or players written")
+        public int records;
+
+        @Label("Changes")
+        @Description("Discovery changes written incrementally, or -1 for a full save")
+        public int changes = -1;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+
+        @Label("Failed")
+        public boolean failed;
+    }
+
+    @Name("com.example.waystones.ListBuild")
+    @Label("Waystone List Build")
+    @Description("Building the waystone list page for a player")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class ListBuild extends Event {
+        @Label("Player")
+        public String player;
+
+        @Label("Tab")
+        public String tab;
+
+        @Label("Sort")
+        public String sort;
+
+        @Label("Search")
+        public String search;
+
+        @Label("Rows")
+        public int rows;
+    }
+
+    @Name("com.example.waystones.Teleport")
+    @Label("Waystone Teleport")
+    @Description("Resolving a waystone to a teleport destination and applying it to the player")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class Teleport extends Event {
+        @Label("Player")
+        public String player;
+
+        @Label("Waystone")
+        public String waystone;
+
+        @Label("World")
+        public String world;
+
+        @Label("Resolved")
+        @Description("False if the destination world wasn't loaded")
+        public boolean resolved;
+    }
+
+    @Name("com.example.waystones.SafetyCheck")
+    @Label("Waystone Safety Check")
+    @Description("Checking that the blocks above a waystone are clear")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class SafetyCheck extends Event {
+        @Label("Waystone")
+        public String waystone;
+
+        @Label("World")
+        public String world;
+
+        @Label("Safe")
+        public boolean safe;
+    }
+
+    @Name("com.example.waystones.BlockSwap")
+    @Label("Waystone Block Swap")
+    @Description("Replacing a waystone block to match its color")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class BlockSwap extends Event {
+        @Label("Waystone")
+        public String waystone;
+
+        @Label("World")
+        public String world;
+
+        @Label("Block")
+        public String block;
+
+        @Label("Swapped")
+        public boolean swapped;
+    }
+}
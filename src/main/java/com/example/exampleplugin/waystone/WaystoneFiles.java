@@ -0,0 +1,341 @@
+package com.example.exampleplugin.waystone;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import org.bson.BsonDocument;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Crash-safe file writes with rolling backups.
+ * A save goes to a temp file that is fsynced and then renamed over the live file, so the live
+ * file always exists and is either the old or the new version, never half of each. The previous
+ * versions are kept as name.1 (newest) to name.N, each with a name.crc checksum file next to it.
+ * Reads take the newest generation whose checksum matches and which parses. A file edited by hand
+ * after its checksum was written is trusted if it parses.
+ */
+public final class WaystoneFiles {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String CHECKSUM_SUFFIX = ".crc";
+    /** Most backups that can be kept. Load probes all of them, since the configured count isn't known yet. */
+    public static final int MAX_BACKUPS = 10;
+    /** Readable JSON, with numbers and dates written the way the server's own data files write them. */
+    private static final JsonWriterSettings JSON_SETTINGS = JsonWriterSettings.builder()
+            .outputMode(JsonMode.RELAXED)
+            .indent(true)
+            .build();
+
+    /**
+     * Writes the new contents of a file to the given temp path.
+     */
+    @FunctionalInterface
+    public interface Writer {
+        void write(@Nonnull Path target) throws IOException;
+    }
+
+    /**
+     * Parses one generation of a file. Throwing marks the generation as invalid.
+     */
+    @FunctionalInterface
+    public interface Reader<T> {
+        @Nonnull
+        T read(@Nonnull Path source) throws Exception;
+    }
+
+    private WaystoneFiles() {
+    }
+
+    /**
+     * Atomically replaces a file, keeping the previous version as a backup.
+     *
+     * @param backups Number of previous versions to keep (0 = none)
+     * @return Size of the new file in bytes
+     */
+    public static long write(@Nonnull Path path, int backups, @Nonnull Writer writer) throws IOException {
+        Path temp = sibling(path, TEMP_SUFFIX);
+        Path tempChecksum = sibling(temp, CHECKSUM_SUFFIX);
+        writer.write(temp);
+        long size = Files.size(temp);
+        String checksum = checksum(temp, true);
+        writeSynced(tempChecksum, checksum.getBytes(StandardCharsets.UTF_8));
+
+        // Shift the generations up: name.(N-1) -> name.N, ..., name.1 -> name.2, then name.1 becomes
+        // a second link to the live file, so there is no moment without a live file
+        if (backups > 0) {
+            for (int i = backups - 1; i >= 1; i--) {
+                moveIfExists(generation(path, i), generation(path, i + 1));
+            }
+            if (Files.exists(path)) {
+                linkOrCopy(path, generation(path, 1));
+                Path checksumFile = sibling(path, CHECKSUM_SUFFIX);
+                if (Files.exists(checksumFile)) {
+                    Files.copy(checksumFile, sibling(generation(path, 1), CHECKSUM_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+                } else {
+                    Files.deleteIfExists(sibling(generation(path, 1), CHECKSUM_SUFFIX));
+                }
+            }
+        }
+        for (int i = backups + 1; i <= MAX_BACKUPS; i++) {
+            // Drop generations beyond the configured count, e.g. after it was lowered
+            Files.deleteIfExists(generation(path, i));
+            Files.deleteIfExists(sibling(generation(path, i), CHECKSUM_SUFFIX));
+        }
+
+        move(temp, path);
+        move(tempChecksum, sibling(path, CHECKSUM_SUFFIX));
+        syncDirectory(path);
+        return size;
+    }
+
+    /**
+     * Writes bytes with {@link #write(Path, int, Writer)}.
+     */
+    public static long write(@Nonnull Path path, int backups, @Nonnull byte[] data) throws IOException {
+        return write(path, backups, target -> writeSynced(target, data));
+    }
+
+    /**
+     * Writes a BSON document as JSON with {@link #write(Path, int, Writer)}.
+     * Uses the BSON library directly rather than the server's BsonUtil, so it works without a running server.
+     */
+    public static long write(@Nonnull Path path, int backups, @Nonnull BsonDocument document) throws IOException {
+        return write(path, backups, target -> writeSynced(target, toJson(document).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Renders a document the way {@link #write(Path, int, BsonDocument)} writes it.
+     */
+    @Nonnull
+    static String toJson(@Nonnull BsonDocument document) {
+        return document.toJson(JSON_SETTINGS);
+    }
+
+    /**
+     * Renders a document indented as if it were nested {@code depth} levels deep, so it can be spliced
+     * into a document rendered by {@link #toJson(BsonDocument, String, List)}. Array elements of a
+     * top-level field are at depth 2.
+     */
+    @Nonnull
+    static String toJson(@Nonnull BsonDocument document, int depth) {
+        String newLine = JSON_SETTINGS.getNewLineCharacters();
+        // JSON strings escape line breaks, so every raw line break is layout
+        return toJson(document).replace(newLine, newLine + JSON_SETTINGS.getIndentCharacters().repeat(depth));
+    }
+
+    /**
+     * Renders a document the way {@link #toJson(BsonDocument)} does, with one more field at the end
+     * holding an array of documents rendered separately at depth 2. Lets a save reuse the rendered
+     * text of every element that hasn't changed instead of rendering the whole document again.
+     */
+    @Nonnull
+    static String toJson(@Nonnull BsonDocument document, @Nonnull String arrayField, @Nonnull List<String> elements) {
+        String newLine = JSON_SETTINGS.getNewLineCharacters();
+        String indent = JSON_SETTINGS.getIndentCharacters();
+        String head = toJson(document);
+        int size = head.length() + 32;
+        for (String element : elements) {
+            size += element.length() + newLine.length() + 2 * indent.length() + 1;
+        }
+
+        StringBuilder json = new StringBuilder(size);
+        if (document.isEmpty()) {
+            json.append('{');
+        } else {
+            // Reopen the rendered document: drop the line break and brace that close it
+            json.append(head, 0, head.length() - newLine.length() - 1).append(',');
+        }
+        json.append(newLine).append(indent).append('"').append(arrayField).append("\": [");
+        for (int i = 0; i < elements.size(); i++) {
+            json.append(i == 0 ? "" : ",").append(newLine).append(indent).append(indent).append(elements.get(i));
+        }
+        if (!elements.isEmpty()) {
+            json.append(newLine).append(indent);
+        }
+        return json.append(']').append(newLine).append('}').toString();
+    }
+
+    /**
+     * Reads the newest valid generation of a file.
+     * Generations with a checksum mismatch or that fail to parse are skipped with a warning.
+     * If none is valid, the live file is copied aside as name.corrupt so later saves don't rotate it away.
+     *
+     * @return The parsed contents, or null if no generation of the file exists
+     * @throws IOException if generations exist but none of them is valid
+     */
+    @Nullable
+    public static <T> T read(@Nonnull Path path, @Nonnull Reader<T> reader) throws IOException {
+        boolean found = false;
+        for (int i = 0; i <= MAX_BACKUPS; i++) {
+            Path candidate = i == 0 ? path : generation(path, i);
+            if (!Files.exists(candidate)) {
+                continue;
+            }
+            found = true;
+            try {
+                Path checksumFile = sibling(candidate, CHECKSUM_SUFFIX);
+                // Files from before checksums were written have none, and hand-edited files are newer
+                // than theirs; both are trusted if they parse
+                if (Files.exists(checksumFile) && !isModifiedAfter(candidate, checksumFile)) {
+                    String expected = Files.readString(checksumFile, StandardCharsets.UTF_8).trim();
+                    if (!expected.equals(checksum(candidate, false))) {
+                        throw new IOException("checksum mismatch");
+                    }
+                }
+                T value = reader.read(candidate);
+                if (i > 0) {
+                    LOGGER.atWarning().log("Recovered %s from backup %s", path.getFileName(), candidate.getFileName());
+                }
+                return value;
+            } catch (Exception e) {
+                LOGGER.atWarning().log("Skipping invalid %s: %s", candidate.getFileName(), e.getMessage());
+            }
+        }
+        if (!found) {
+            return null;
+        }
+        if (Files.exists(path)) {
+            Files.copy(path, sibling(path, ".corrupt"), StandardCopyOption.REPLACE_EXISTING);
+        }
+        throw new IOException("No valid copy of " + path.getFileName() + " found");
+    }
+
+    /**
+     * Checks if the file or any of its backups exists.
+     */
+    public static boolean exists(@Nonnull Path path) {
+        if (Files.exists(path)) {
+            return true;
+        }
+        for (int i = 1; i <= MAX_BACKUPS; i++) {
+            if (Files.exists(generation(path, i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads a JSON document, treating an empty or unreadable file as invalid.
+     */
+    @Nonnull
+    public static BsonDocument readDocument(@Nonnull Path path) throws IOException {
+        String json = Files.readString(path, StandardCharsets.UTF_8);
+        if (json.isBlank()) {
+            throw new IOException("empty document");
+        }
+        return BsonDocument.parse(json);
+    }
+
+    private static boolean isModifiedAfter(@Nonnull Path file, @Nonnull Path checksumFile) throws IOException {
+        return Files.getLastModifiedTime(file).compareTo(Files.getLastModifiedTime(checksumFile)) > 0;
+    }
+
+    @Nonnull
+    private static Path generation(@Nonnull Path path, int generation) {
+        return sibling(path, "." + generation);
+    }
+
+    @Nonnull
+    private static Path sibling(@Nonnull Path path, @Nonnull String suffix) {
+        return path.resolveSibling(path.getFileName() + suffix);
+    }
+
+    /**
+     * CRC32C of a file's contents, optionally forcing the file to disk first.
+     */
+    @Nonnull
+    private static String checksum(@Nonnull Path path, boolean sync) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, sync
+                ? new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE}
+                : new StandardOpenOption[]{StandardOpenOption.READ})) {
+            if (sync) {
+                channel.force(true);
+            }
+            CRC32C crc = new CRC32C();
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+            return Long.toHexString(crc.getValue()) + " " + channel.size();
+        }
+    }
+
+    private static void writeSynced(@Nonnull Path path, @Nonnull byte[] data) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+    }
+
+    private static void moveIfExists(@Nonnull Path from, @Nonnull Path to) throws IOException {
+        if (!Files.exists(from)) {
+            return;
+        }
+        move(from, to);
+        Path fromChecksum = sibling(from, CHECKSUM_SUFFIX);
+        Path toChecksum = sibling(to, CHECKSUM_SUFFIX);
+        if (Files.exists(fromChecksum)) {
+            move(fromChecksum, toChecksum);
+        } else {
+            // Don't leave an older checksum next to a file it doesn't belong to
+            Files.deleteIfExists(toChecksum);
+        }
+    }
+
+    /**
+     * Hard-links the file when the file system supports it (the rename that follows gives the live
+     * name a new file), otherwise copies it.
+     */
+    private static void linkOrCopy(@Nonnull Path from, @Nonnull Path to) throws IOException {
+        Files.deleteIfExists(to);
+        try {
+            Files.createLink(to, from);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void move(@Nonnull Path from, @Nonnull Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Makes the renames durable. Not supported on every platform (e.g. Windows), where it is skipped.
+     */
+    private static void syncDirectory(@Nonnull Path path) {
+        Path directory = path.toAbsolutePath().getParent();
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // Best effort - the data itself is already synced
+        }
+    }
+}
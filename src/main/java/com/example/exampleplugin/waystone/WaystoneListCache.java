@@ -0,0 +1,79 @@
+package com.example.exampleplugin.waystone;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Each player's last filtered and sorted waystone list, so reopening the menu or rebuilding it
+ * (tab switch, sort toggle, status message) skips the visibility, discovery and search pipeline.
+ * <p>
+ * Entries are never invalidated; the key holds the {@link WaystoneRegistry#getVersion() registry version}
+ * and the player's {@link PlayerDiscoveryRegistry#getVersion(String) discovery version}, so any change
+ * makes the next lookup miss. The least recently used players are evicted past {@link #MAX_PLAYERS}.
+ */
+final class WaystoneListCache {
+
+    /** Players whose last list is kept. */
+    static final int MAX_PLAYERS = 256;
+
+    private static final WaystoneListCache instance = new WaystoneListCache();
+
+    // Player UUID -> last list, in access order for LRU eviction
+    private final Map<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_PLAYERS;
+        }
+    };
+
+    /**
+     * What a list depends on besides the player.
+     *
+     * @param query Lower-cased search query, empty for none
+     */
+    record Key(long registryVersion, long discoveryVersion, boolean canSeeAllPrivate,
+               boolean bypassesDiscovery, @Nonnull String query) {
+    }
+
+    /**
+     * A filtered list in priority order, split the way the page shows it.
+     */
+    record Result(@Nonnull List<Waystone> all, @Nonnull List<Waystone> publicWaystones,
+                  @Nonnull List<Waystone> privateWaystones) {
+    }
+
+    private record Entry(Key key, Result result) {
+    }
+
+    private WaystoneListCache() {
+    }
+
+    @Nonnull
+    static WaystoneListCache get() {
+        return instance;
+    }
+
+    /**
+     * Gets the player's cached list if it was built for the same key.
+     */
+    @Nullable
+    synchronized Result get(@Nonnull String playerUuid, @Nonnull Key key) {
+        Entry entry = entries.get(playerUuid);
+        return entry != null && entry.key().equals(key) ? entry.result() : null;
+    }
+
+    synchronized void put(@Nonnull String playerUuid, @Nonnull Key key, @Nonnull Result result) {
+        entries.put(playerUuid, new Entry(key, result));
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+}
@@ -7,9 +7,11 @@ import com.hypixel.hytale.codec.builder.BuilderCodec;
 import com.hypixel.hytale.codec.util.RawJsonReader;
 import com.hypixel.hytale.component.Ref;
 import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.math.vector.Vector3d;
 import com.hypixel.hytale.protocol.packets.interface_.CustomPageLifetime;
 import com.hypixel.hytale.protocol.packets.interface_.CustomUIEventBindingType;
 import com.hypixel.hytale.server.core.entity.entities.player.pages.CustomUIPage;
+import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
 import com.hypixel.hytale.server.core.ui.builder.EventData;
 import com.hypixel.hytale.server.core.ui.builder.UICommandBuilder;
 import com.hypixel.hytale.server.core.ui.builder.UIEventBuilder;
@@ -19,7 +21,10 @@ import com.hypixel.hytale.server.core.entity.entities.Player;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.function.Consumer;
 
@@ -106,10 +111,14 @@ public class WaystoneListPage extends CustomUIPage {
     private final boolean canSeeAllPrivate;
     private final boolean bypassesDiscovery;
     private String searchQuery = "";
+    // Set when a teleport was refused for cooldown; the notice is shown until the cooldown runs out
+    private boolean cooldownRefused = false;
     // Cache the current list of waystones for index-based lookup
     private List<Waystone> currentWaystones = List.of();
     // Track which tab is currently selected: "public" or "private"
     private String currentTab = "public";
+    // Track the list order: "priority" or "distance" (nearest to the player first)
+    private String sortMode = "priority";
 
     /**
      * Creates a new WaystoneListPage.
@@ -143,69 +152,274 @@ public class WaystoneListPage extends CustomUIPage {
         this.bypassesDiscovery = PermissionUtils.hasPermissionOrOp(uuid, WaystonePermissions.ALLOW_SHOW_UNDISCOVERED);
     }
 
+    /**
+     * Where the list is rendered to: the page's UI builders in game, or a recording stand-in in
+     * the benchmarks, which run without a server.
+     */
+    interface ListOutput {
+        void append(@Nonnull String document);
+
+        void append(@Nonnull String selector, @Nonnull String document);
+
+        void set(@Nonnull String selector, @Nonnull String value);
+
+        void set(@Nonnull String selector, boolean value);
+
+        void clear(@Nonnull String selector);
+
+        /**
+         * Binds a button activation to an event carrying one key/value pair.
+         */
+        void bind(@Nonnull String selector, @Nonnull String key, @Nonnull String value);
+    }
+
+    /**
+     * Everything about the viewer and the page's current state that the list depends on.
+     *
+     * @param showGearButtons Whether each entry gets an edit button (ops with an edit callback)
+     */
+    record ListState(@Nonnull String playerUuid, @Nullable String currentWaystoneId,
+                     boolean hasEditPermission, boolean canSeeAllPrivate, boolean bypassesDiscovery,
+                     boolean showGearButtons, @Nullable String searchQuery, @Nullable String statusMessage,
+                     @Nonnull String currentTab, @Nonnull String sortMode) {
+    }
+
     @Override
     public void build(@Nonnull Ref<EntityStore> ref,
                       @Nonnull UICommandBuilder commandBuilder,
                       @Nonnull UIEventBuilder eventBuilder,
                       @Nonnull Store<EntityStore> store) {
+        try (WaystoneWatchdog.Watch ignored = WaystoneWatchdog.watch("list build", playerUuid)) {
+            buildPage(ref, commandBuilder, eventBuilder, store);
+        }
+    }
+
+    private void buildPage(@Nonnull Ref<EntityStore> ref,
+                           @Nonnull UICommandBuilder commandBuilder,
+                           @Nonnull UIEventBuilder eventBuilder,
+                           @Nonnull Store<EntityStore> store) {
+        long start = WaystoneMetrics.start();
+        WaystoneEvents.ListBuild event = new WaystoneEvents.ListBuild();
+        event.begin();
+        // Only the distance sort needs the player's position
+        String worldName = null;
+        Vector3d position = null;
+        if ("distance".equals(sortMode)) {
+            TransformComponent transform = (TransformComponent) store.getComponent(ref, TransformComponent.getComponentType());
+            if (transform != null) {
+                worldName = ((EntityStore) store.getExternalData()).getWorld().getName();
+                position = transform.getPosition();
+            }
+        }
+
+        // Recomputed on every build, so the notice neither goes stale nor outlives the cooldown
+        String statusMessage = null;
+        if (cooldownRefused) {
+            long remainingMillis = TeleportCooldownRegistry.get().getRemainingMillis(UUID.fromString(playerUuid));
+            if (remainingMillis > 0) {
+                statusMessage = "You can teleport again in " + ((remainingMillis + 999) / 1000) + "s";
+            } else {
+                cooldownRefused = false;
+            }
+        }
+
+        ListState state = new ListState(playerUuid, currentWaystoneId, hasEditPermission, canSeeAllPrivate,
+                bypassesDiscovery, hasEditPermission && onEditWaystone != null, searchQuery, statusMessage,
+                currentTab, sortMode);
+        this.currentWaystones = render(state, new ListOutput() {
+            @Override
+            public void append(@Nonnull String document) {
+                commandBuilder.append(document);
+            }
+
+            @Override
+            public void append(@Nonnull String selector, @Nonnull String document) {
+                commandBuilder.append(selector, document);
+            }
+
+            @Override
+            public void set(@Nonnull String selector, @Nonnull String value) {
+                commandBuilder.set(selector, value);
+            }
+
+            @Override
+            public void set(@Nonnull String selector, boolean value) {
+                commandBuilder.set(selector, value);
+            }
+
+            @Override
+            public void clear(@Nonnull String selector) {
+                commandBuilder.clear(selector);
+            }
+
+            @Override
+            public void bind(@Nonnull String selector, @Nonnull String key, @Nonnull String value) {
+                eventBuilder.addEventBinding(CustomUIEventBindingType.Activating, selector, EventData.of(key, value));
+            }
+        }, worldName, position);
+        WaystoneMetrics.LIST_BUILDS.recordSince(start);
+        WaystoneMetrics.LIST_ROWS.record(currentWaystones.size());
+        if (event.shouldCommit()) {
+            event.player = playerUuid;
+            event.tab = currentTab;
+            event.sort = sortMode;
+            event.search = searchQuery;
+            event.rows = currentWaystones.size();
+            event.commit();
+        }
+    }
+
+    /**
+     * Renders the page for a viewer.
+     *
+     * @param worldName World the viewer is in, for the distance sort (null to keep the priority order)
+     * @param position  Viewer's position, for the distance sort
+     * @return The listed waystones in index order (public first, then private), for event lookups
+     */
+    @Nonnull
+    static List<Waystone> render(@Nonnull ListState state, @Nonnull ListOutput ui,
+                                 @Nullable String worldName, @Nullable Vector3d position) {
+        String playerUuid = state.playerUuid();
+
         // Load the UI template
-        commandBuilder.append("Pages/WaystoneListPage.ui");
+        ui.append("Pages/WaystoneListPage.ui");
 
         // Set the title to the current waystone's name and show/hide edit button
-        if (currentWaystoneId != null) {
-            Waystone currentWaystone = WaystoneRegistry.get().get(currentWaystoneId);
+        if (state.currentWaystoneId() != null) {
+            Waystone currentWaystone = WaystoneRegistry.get().get(state.currentWaystoneId());
             if (currentWaystone != null) {
-                commandBuilder.set("#TitleText.Text", currentWaystone.getName());
+                ui.set("#TitleText.Text", currentWaystone.getName());
                 
                 // Show warning if the waystone is private and the player doesn't own it
                 boolean isPrivateNotOwned = !currentWaystone.isPublic() && !currentWaystone.isOwnedBy(playerUuid);
-                commandBuilder.set("#PrivateWarning.Visible", isPrivateNotOwned);
+                ui.set("#PrivateWarning.Visible", isPrivateNotOwned);
                 
                 // Only show edit button if user owns the waystone or has edit permission
-                boolean canEdit = currentWaystone.isOwnedBy(playerUuid) || hasEditPermission;
-                commandBuilder.set("#EditButtonGroup.Visible", canEdit);
+                boolean canEdit = currentWaystone.isOwnedBy(playerUuid) || state.hasEditPermission();
+                ui.set("#EditButtonGroup.Visible", canEdit);
                 
                 if (canEdit) {
-                    eventBuilder.addEventBinding(
-                            CustomUIEventBindingType.Activating,
-                            "#SettingsButton",
-                            EventData.of("Action", "settings")
-                    );
+                    ui.bind("#SettingsButton", "Action", "settings");
                 }
             } else {
-                commandBuilder.set("#EditButtonGroup.Visible", false);
+                ui.set("#EditButtonGroup.Visible", false);
             }
         } else {
             // Hide edit button group when opened via command (no current waystone)
-            commandBuilder.set("#EditButtonGroup.Visible", false);
+            ui.set("#EditButtonGroup.Visible", false);
+        }
+
+        // Show status message if there is one
+        if (state.statusMessage() != null) {
+            ui.set("#StatusText.Text", state.statusMessage());
+            ui.set("#StatusText.Visible", true);
         }
 
         // Bind exit button
-        eventBuilder.addEventBinding(
-                CustomUIEventBindingType.Activating,
-                "#CloseButton",
-                EventData.of("Action", "close")
-        );
+        ui.bind("#CloseButton", "Action", "close");
 
         // Bind tab buttons
-        eventBuilder.addEventBinding(
-                CustomUIEventBindingType.Activating,
-                "#TabPublic",
-                EventData.of("Action", "tab_public")
-        );
-        eventBuilder.addEventBinding(
-                CustomUIEventBindingType.Activating,
-                "#TabPrivate",
-                EventData.of("Action", "tab_private")
-        );
+        ui.bind("#TabPublic", "Action", "tab_public");
+        ui.bind("#TabPrivate", "Action", "tab_private");
+
+        // Bind sort toggle button
+        ui.set("#SortButton.Text", "distance".equals(state.sortMode()) ? "Sort: Distance" : "Sort: Priority");
+        ui.bind("#SortButton", "Action", "sort_toggle");
 
         // Set tab visibility based on current tab
-        commandBuilder.set("#PublicContent.Visible", "public".equals(currentTab));
-        commandBuilder.set("#PrivateContent.Visible", "private".equals(currentTab));
+        ui.set("#PublicContent.Visible", "public".equals(state.currentTab()));
+        ui.set("#PrivateContent.Visible", "private".equals(state.currentTab()));
+
+        WaystoneListCache.Result lists = filterWaystones(state);
+        List<Waystone> publicWaystones = lists.publicWaystones();
+        List<Waystone> privateWaystones = lists.privateWaystones();
+
+        // Reorder by distance from the player if requested
+        if ("distance".equals(state.sortMode()) && worldName != null && position != null) {
+            List<Waystone> sorted = sortByDistance(lists.all(), worldName, position);
+            publicWaystones = sorted.stream().filter(Waystone::isPublic).toList();
+            privateWaystones = sorted.stream().filter(w -> !w.isPublic()).toList();
+        }
+
+        // Store combined list for index-based lookup (public first, then private)
+        List<Waystone> combinedList = new java.util.ArrayList<>(publicWaystones.size() + privateWaystones.size());
+        combinedList.addAll(publicWaystones);
+        combinedList.addAll(privateWaystones);
+
+        // Clear the lists
+        ui.clear("#PublicContent #PublicList");
+        ui.clear("#PrivateContent #PrivateList");
+
+        // Populate public waystones
+        if (publicWaystones.isEmpty()) {
+            ui.set("#PublicContent #NoPublic.Visible", true);
+        } else {
+            ui.set("#PublicContent #NoPublic.Visible", false);
+            renderRows(ui, WaystoneListRows.PUBLIC, publicWaystones, 0, state.showGearButtons());
+        }
+
+        // Populate private waystones
+        if (privateWaystones.isEmpty()) {
+            ui.set("#PrivateContent #NoPrivate.Visible", true);
+        } else {
+            ui.set("#PrivateContent #NoPrivate.Visible", false);
+            renderRows(ui, WaystoneListRows.PRIVATE, privateWaystones, publicWaystones.size(), state.showGearButtons());
+        }
+        return combinedList;
+    }
+
+    /**
+     * Appends one row per waystone to a row list, using the shared selectors.
+     *
+     * @param firstIndex Index of the first row in the combined list (public first, then private)
+     */
+    private static void renderRows(@Nonnull ListOutput ui, @Nonnull WaystoneListRows rows,
+                                   @Nonnull List<Waystone> waystones, int firstIndex, boolean showGearButtons) {
+        for (int i = 0; i < waystones.size(); i++) {
+            Waystone waystone = waystones.get(i);
+            WaystoneListRows.Row row = rows.row(i);
+            String globalIndex = WaystoneListRows.index(firstIndex + i); // Index in combined list
+
+            ui.append(rows.list(), "Pages/WaystoneEntryButton.ui");
+            ui.set(row.name(), waystone.getName());
+            // Hide owner name if server owned
+            ui.set(row.owner(), waystone.isServerOwned() ? "" : waystone.getOwnerName());
+            String worldDisplay = waystone.getWorldName().equals("default") ? "" : waystone.getWorldName();
+            ui.set(row.world(), worldDisplay);
+
+            // Show gear button for ops
+            if (showGearButtons) {
+                ui.set(row.gearVisible(), true);
+                ui.bind(row.gearButton(), "EditIndex", globalIndex);
+            }
+
+            ui.bind(row.button(), "Index", globalIndex);
+        }
+    }
+
+    /**
+     * Gets the waystones the viewer can see, after the discovery and search filters, in priority order.
+     * Reuses the player's last result from {@link WaystoneListCache} if nothing it depends on has changed.
+     */
+    @Nonnull
+    private static WaystoneListCache.Result filterWaystones(@Nonnull ListState state) {
+        String playerUuid = state.playerUuid();
+        String searchQuery = state.searchQuery();
+        // Read the versions first: they are bumped after a change, so a list built while a change is
+        // being made is stored under the old version and won't be reused
+        WaystoneListCache.Key key = new WaystoneListCache.Key(WaystoneRegistry.get().getVersion(),
+                PlayerDiscoveryRegistry.get().getVersion(playerUuid), state.canSeeAllPrivate(),
+                state.bypassesDiscovery(), searchQuery == null ? "" : searchQuery.toLowerCase());
+        WaystoneListCache.Result cached = WaystoneListCache.get().get(playerUuid, key);
+        if (cached != null) {
+            WaystoneMetrics.LIST_CACHE_HITS.increment();
+            return cached;
+        }
+        WaystoneMetrics.LIST_CACHE_MISSES.increment();
 
         // Get waystones visible to this player (or all if they have seeAllPrivate permission)
         List<Waystone> allWaystones;
-        if (canSeeAllPrivate) {
+        if (state.canSeeAllPrivate()) {
             // Can see all waystones including private ones they don't own
             allWaystones = WaystoneRegistry.get().getAll().stream()
                     .sorted(java.util.Comparator.comparingInt(Waystone::getPriority).reversed()
@@ -216,15 +430,15 @@ public class WaystoneListPage extends CustomUIPage {
         }
 
         // Apply discovery filter if requireDiscover is enabled and player doesn't bypass it
-        if (WaystoneRegistry.isRequireDiscoverEnabled() && !bypassesDiscovery) {
+        if (WaystoneRegistry.isRequireDiscoverEnabled() && !state.bypassesDiscovery()) {
             allWaystones = allWaystones.stream()
                     .filter(w -> w.isDefaultDiscovered() || PlayerDiscoveryRegistry.get().hasDiscovered(playerUuid, w.getId()))
                     .toList();
         }
 
         // Filter by search query if present
-        if (searchQuery != null && !searchQuery.isEmpty()) {
-            String query = searchQuery.toLowerCase();
+        if (!key.query().isEmpty()) {
+            String query = key.query();
             allWaystones = allWaystones.stream()
                     .filter(w -> w.getName().toLowerCase().contains(query) ||
                                  w.getOwnerName().toLowerCase().contains(query))
@@ -232,98 +446,59 @@ public class WaystoneListPage extends CustomUIPage {
         }
 
         // Split into public and private lists
-        List<Waystone> publicWaystones = allWaystones.stream()
-                .filter(Waystone::isPublic)
-                .toList();
-        List<Waystone> privateWaystones = allWaystones.stream()
-                .filter(w -> !w.isPublic())
-                .toList();
-
-        // Store combined list for index-based lookup (public first, then private)
-        List<Waystone> combinedList = new java.util.ArrayList<>();
-        combinedList.addAll(publicWaystones);
-        combinedList.addAll(privateWaystones);
-        this.currentWaystones = combinedList;
-
-        // Clear the lists
-        commandBuilder.clear("#PublicContent #PublicList");
-        commandBuilder.clear("#PrivateContent #PrivateList");
-
-        // Populate public waystones
-        if (publicWaystones.isEmpty()) {
-            commandBuilder.set("#PublicContent #NoPublic.Visible", true);
-        } else {
-            commandBuilder.set("#PublicContent #NoPublic.Visible", false);
-            for (int i = 0; i < publicWaystones.size(); i++) {
-                Waystone waystone = publicWaystones.get(i);
-                String selector = "#PublicContent #PublicList[" + i + "]";
-                int globalIndex = i; // Index in combined list
-
-                commandBuilder.append("#PublicContent #PublicList", "Pages/WaystoneEntryButton.ui");
-                commandBuilder.set(selector + " #Name.Text", waystone.getName());
-                // Hide owner name if server owned
-                commandBuilder.set(selector + " #Owner.Text", waystone.isServerOwned() ? "" : waystone.getOwnerName());
-                String worldDisplay = waystone.getWorldName().equals("default") ? "" : waystone.getWorldName();
-                commandBuilder.set(selector + " #World.Text", worldDisplay);
-
-                // Show gear button for ops
-                if (hasEditPermission && onEditWaystone != null) {
-                    commandBuilder.set(selector + " #GearButton.Visible", true);
-                    eventBuilder.addEventBinding(
-                            CustomUIEventBindingType.Activating,
-                            selector + " #GearButton",
-                            EventData.of("EditIndex", String.valueOf(globalIndex))
-                    );
-                }
+        WaystoneListCache.Result result = new WaystoneListCache.Result(List.copyOf(allWaystones),
+                allWaystones.stream().filter(Waystone::isPublic).toList(),
+                allWaystones.stream().filter(w -> !w.isPublic()).toList());
+        WaystoneListCache.get().put(playerUuid, key, result);
+        return result;
+    }
 
-                eventBuilder.addEventBinding(
-                        CustomUIEventBindingType.Activating,
-                        selector + " #Button",
-                        EventData.of("Index", String.valueOf(globalIndex))
-                );
+    /**
+     * Orders waystones nearest-first using the world's spatial index.
+     * Waystones in other worlds keep their existing order and go after the ones in the player's world.
+     */
+    @Nonnull
+    private static List<Waystone> sortByDistance(@Nonnull List<Waystone> waystones,
+                                                 @Nonnull String worldName,
+                                                 @Nonnull Vector3d position) {
+        Map<String, Waystone> candidates = new HashMap<>();
+        for (Waystone waystone : waystones) {
+            if (waystone.getWorldName().equals(worldName)) {
+                candidates.put(waystone.getId(), waystone);
             }
         }
 
-        // Populate private waystones
-        if (privateWaystones.isEmpty()) {
-            commandBuilder.set("#PrivateContent #NoPrivate.Visible", true);
-        } else {
-            commandBuilder.set("#PrivateContent #NoPrivate.Visible", false);
-            for (int i = 0; i < privateWaystones.size(); i++) {
-                Waystone waystone = privateWaystones.get(i);
-                String selector = "#PrivateContent #PrivateList[" + i + "]";
-                int globalIndex = publicWaystones.size() + i; // Index in combined list
-
-                commandBuilder.append("#PrivateContent #PrivateList", "Pages/WaystoneEntryButton.ui");
-                commandBuilder.set(selector + " #Name.Text", waystone.getName());
-                // Hide owner name if server owned
-                commandBuilder.set(selector + " #Owner.Text", waystone.isServerOwned() ? "" : waystone.getOwnerName());
-                String worldDisplay = waystone.getWorldName().equals("default") ? "" : waystone.getWorldName();
-                commandBuilder.set(selector + " #World.Text", worldDisplay);
-
-                // Show gear button for ops
-                if (hasEditPermission && onEditWaystone != null) {
-                    commandBuilder.set(selector + " #GearButton.Visible", true);
-                    eventBuilder.addEventBinding(
-                            CustomUIEventBindingType.Activating,
-                            selector + " #GearButton",
-                            EventData.of("EditIndex", String.valueOf(globalIndex))
-                    );
-                }
+        List<WaystoneSpatialIndex.Hit> hits = WaystoneRegistry.get().getNearest(
+                worldName, position.x, position.y, position.z, candidates.size(),
+                w -> candidates.containsKey(w.getId()));
 
-                eventBuilder.addEventBinding(
-                        CustomUIEventBindingType.Activating,
-                        selector + " #Button",
-                        EventData.of("Index", String.valueOf(globalIndex))
-                );
+        List<Waystone> sorted = new ArrayList<>(waystones.size());
+        for (WaystoneSpatialIndex.Hit hit : hits) {
+            Waystone waystone = candidates.remove(hit.waystoneId());
+            if (waystone != null) {
+                sorted.add(waystone);
+            }
+        }
+        for (Waystone waystone : waystones) {
+            if (!waystone.getWorldName().equals(worldName) || candidates.containsKey(waystone.getId())) {
+                sorted.add(waystone);
             }
         }
+        return sorted;
     }
 
     @Override
     public void handleDataEvent(@Nonnull Ref<EntityStore> ref,
                                 @Nonnull Store<EntityStore> store,
                                 String rawData) {
+        try (WaystoneWatchdog.Watch ignored = WaystoneWatchdog.watch("list event", rawData)) {
+            handleEvent(ref, store, rawData);
+        }
+    }
+
+    private void handleEvent(@Nonnull Ref<EntityStore> ref,
+                             @Nonnull Store<EntityStore> store,
+                             String rawData) {
         try {
             ExtraInfo extraInfo = ExtraInfo.THREAD_LOCAL.get();
             WaystoneEventData event = WaystoneEventData.CODEC.decodeJson(new RawJsonReader(rawData.toCharArray()), extraInfo);
@@ -358,6 +533,13 @@ public class WaystoneListPage extends CustomUIPage {
                         Waystone waystone = currentWaystones.get(index);
                         // Allow teleport if waystone is visible to player OR they have seeAllPrivate permission
                         if (waystone != null && (waystone.isVisibleTo(playerUuid) || canSeeAllPrivate)) {
+                            // Refuse while on cooldown; the scheduler charges a new one once the teleport happens
+                            if (TeleportCooldownRegistry.get().getRemainingMillis(UUID.fromString(playerUuid)) > 0) {
+                                cooldownRefused = true;
+                                rebuild();
+                                return;
+                            }
+                            cooldownRefused = false;
                             // Close BEFORE teleport - important for cross-world teleports
                             // where the player ref becomes invalid after world change
                             close();
@@ -394,6 +576,10 @@ public class WaystoneListPage extends CustomUIPage {
                     currentTab = "private";
                     rebuild();
                 }
+                case "sort_toggle" -> {
+                    sortMode = "distance".equals(sortMode) ? "priority" : "distance";
+                    rebuild();
+                }
             }
         } catch (Exception e) {
             // Log error but don't crash
@@ -0,0 +1,89 @@
+package com.example.exampleplugin.waystone;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+
+/**
+ * The selectors of one of the list page's row lists, built once per row index and shared by every
+ * player's build. A build sets six properties per row, so without this a 500-row list concatenated
+ * 3,000 selector strings on every open, sort toggle and search keystroke.
+ * <p>
+ * Selectors only depend on the row index, not on which waystone is in the row, so the cache never
+ * needs invalidating; it grows to the longest list shown.
+ */
+final class WaystoneListRows {
+
+    static final WaystoneListRows PUBLIC = new WaystoneListRows("#PublicContent #PublicList");
+    static final WaystoneListRows PRIVATE = new WaystoneListRows("#PrivateContent #PrivateList");
+
+    // Index -> event value for the combined list, shared by both row lists
+    private static volatile String[] indexes = new String[0];
+
+    private final String list;
+    private volatile Row[] rows = new Row[0];
+
+    /**
+     * Selectors for the elements of one row.
+     */
+    record Row(@Nonnull String name, @Nonnull String owner, @Nonnull String world,
+               @Nonnull String gearVisible, @Nonnull String gearButton, @Nonnull String button) {
+    }
+
+    private WaystoneListRows(@Nonnull String list) {
+        this.list = list;
+    }
+
+    /**
+     * Gets the selector of the list the rows are appended to.
+     */
+    @Nonnull
+    String list() {
+        return list;
+    }
+
+    /**
+     * Gets the selectors for a row.
+     */
+    @Nonnull
+    Row row(int index) {
+        Row[] current = rows;
+        return index < current.length ? current[index] : grow(index);
+    }
+
+    private synchronized Row grow(int index) {
+        Row[] current = rows;
+        if (index < current.length) {
+            return current[index];
+        }
+        Row[] grown = Arrays.copyOf(current, Math.max(index + 1, current.length * 2));
+        for (int i = current.length; i < grown.length; i++) {
+            String selector = list + "[" + i + "]";
+            grown[i] = new Row(selector + " #Name.Text", selector + " #Owner.Text", selector + " #World.Text",
+                    selector + " #GearButton.Visible", selector + " #GearButton", selector + " #Button");
+        }
+        rows = grown;
+        return grown[index];
+    }
+
+    /**
+     * Gets the event value for an index in the combined list.
+     */
+    @Nonnull
+    static String index(int index) {
+        String[] current = indexes;
+        return index < current.length ? current[index] : growIndexes(index);
+    }
+
+    private static synchronized String growIndexes(int index) {
+        String[] current = indexes;
+        if (index < current.length) {
+            return current[index];
+        }
+        String[] grown = Arrays.copyOf(current, Math.max(index + 1, current.length * 2));
+        for (int i = current.length; i < grown.length; i++) {
+            grown[i] = String.valueOf(i);
+        }
+        indexes = grown;
+        return grown[index];
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.exampleplugin.waystone;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for the waystone subsystem, shown by /waystones stats and
+ * logged every few minutes. Off unless the metrics config option is on; when off, recording is a
+ * single volatile read, so the instrumented paths cost nothing measurable.
+ * Recording never locks: counters are {@link LongAdder}s and histograms are power-of-two buckets.
+ */
+public final class WaystoneMetrics {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    /** How often the summary is logged while metrics are on. */
+    private static final long LOG_INTERVAL_MINUTES = 5;
+
+    private static volatile boolean enabled = false;
+    private static final Object lock = new Object();
+    private static ScheduledExecutorService executor;
+
+    /** Time to build the waystone list page, in nanoseconds. */
+    public static final Histogram LIST_BUILDS = new Histogram();
+    /** Rows shown per list page build. */
+    public static final Histogram LIST_ROWS = new Histogram();
+    /** List builds that reused the player's cached list (see {@link WaystoneListCache}). */
+    public static final Counter LIST_CACHE_HITS = new Counter();
+    public static final Counter LIST_CACHE_MISSES = new Counter();
+    /** Time spent scanning permission providers, in nanoseconds. */
+    public static final Histogram PERMISSION_LOOKUPS = new Histogram();
+    /** Time spent in the block break handler (every break, not just waystones), in nanoseconds. */
+    public static final Histogram BREAK_HANDLER = new Histogram();
+    /** Time spent in the block place handler (every placement), in nanoseconds. */
+    public static final Histogram PLACE_HANDLER = new Histogram();
+    public static final Counter TELEPORTS_REQUESTED = new Counter();
+    public static final Counter TELEPORTS_COMMITTED = new Counter();
+    /** Teleports dropped because the destination couldn't be resolved (toTeleport returned null). */
+    public static final Counter TELEPORTS_FAILED = new Counter();
+    /** Teleports dropped before they ran, e.g. because the player left or changed worlds while queued. */
+    public static final Counter TELEPORTS_DROPPED = new Counter();
+    // Save name -> save stats, one per registry
+    private static final Map<String, SaveMetrics> SAVES = new ConcurrentSkipListMap<>();
+
+    /**
+     * A monotonically increasing count.
+     */
+    public static final class Counter {
+        private final LongAdder count = new LongAdder();
+
+        public void increment() {
+            if (enabled) {
+                count.increment();
+            }
+        }
+
+        public long get() {
+            return count.sum();
+        }
+
+        void reset() {
+            count.reset();
+        }
+    }
+
+    /**
+     * Distribution of values in power-of-two buckets; percentiles are accurate to a factor of two.
+     */
+    public static final class Histogram {
+        private final LongAdder[] buckets = new LongAdder[64];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void record(long value) {
+            if (!enabled) {
+                return;
+            }
+            long clamped = Math.max(0, value);
+            buckets[63 - Long.numberOfLeadingZeros(clamped | 1)].increment();
+            count.increment();
+            sum.add(clamped);
+            max.accumulate(clamped);
+        }
+
+        /**
+         * Records the time since a {@link WaystoneMetrics#start()} timestamp. Does nothing if metrics
+         * were off when the timestamp was taken.
+         */
+        public void recordSince(long startNanos) {
+            if (startNanos != 0) {
+                record(System.nanoTime() - startNanos);
+            }
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public long max() {
+            return max.get();
+        }
+
+        public long mean() {
+            long n = count.sum();
+            return n == 0 ? 0 : sum.sum() / n;
+        }
+
+        /**
+         * Gets an upper bound for the given percentile (0-100).
+         */
+        public long percentile(double percentile) {
+            long n = count.sum();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(n * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i].sum();
+                if (seen >= rank) {
+                    long upper = i == 63 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+                    return Math.min(upper, max.get());
+                }
+            }
+            return max.get();
+        }
+
+        void reset() {
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+            count.reset();
+            sum.reset();
+            max.reset();
+        }
+    }
+
+    private record SaveMetrics(Histogram durations, Counter bytes, Counter failures) {
+    }
+
+    private WaystoneMetrics() {
+    }
+
+    /**
+     * Checks if metrics are being recorded.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns recording on or off. Called from the registry config; values recorded so far are kept.
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * Gets a timestamp for {@link Histogram#recordSince}, or 0 if metrics are off.
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records a finished save of one of the registries.
+     *
+     * @param name Save name, as passed to {@link WaystonePersistence#requestSave}
+     */
+    public static void recordSave(@Nonnull String name, long nanos, long bytes, boolean failed) {
+        if (!enabled) {
+            return;
+        }
+        SaveMetrics metrics = SAVES.computeIfAbsent(name, k -> new SaveMetrics(new Histogram(), new Counter(), new Counter()));
+        if (failed) {
+            metrics.failures().increment();
+        } else {
+            metrics.durations().record(nanos);
+            metrics.bytes().count.add(bytes);
+        }
+    }
+
+    /**
+     * Clears everything recorded so far.
+     */
+    public static void reset() {
+        for (Histogram histogram : List.of(LIST_BUILDS, LIST_ROWS, PERMISSION_LOOKUPS, BREAK_HANDLER, PLACE_HANDLER)) {
+            histogram.reset();
+        }
+        for (Counter counter : List.of(TELEPORTS_REQUESTED, TELEPORTS_COMMITTED, TELEPORTS_FAILED,
+                TELEPORTS_DROPPED, LIST_CACHE_HITS, LIST_CACHE_MISSES)) {
+            counter.reset();
+        }
+        SAVES.clear();
+    }
+
+    /**
+     * Describes the recorded metrics, one line per group.
+     */
+    @Nonnull
+    public static List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        SAVES.forEach((name, save) -> lines.add("Saves (" + name + "): " + describeTimes(save.durations())
+                + ", " + save.bytes().get() + " bytes, " + save.failures().get() + " failed"));
+        lines.add("Teleports: " + TELEPORTS_REQUESTED.get() + " requested, " + TELEPORTS_COMMITTED.get()
+                + " committed, " + TELEPORTS_FAILED.get() + " failed, " + TELEPORTS_DROPPED.get() + " dropped");
+        lines.add("List builds: " + describeTimes(LIST_BUILDS) + ", rows p50 " + LIST_ROWS.percentile(50)
+                + " max " + LIST_ROWS.max() + ", cache " + LIST_CACHE_HITS.get() + " hits / "
+                + LIST_CACHE_MISSES.get() + " misses (" + WaystoneListCache.get().size() + " players)");
+        lines.add("Permission lookups: " + describeTimes(PERMISSION_LOOKUPS));
+        lines.add("Break handler: " + describeTimes(BREAK_HANDLER));
+        lines.add("Place handler: " + describeTimes(PLACE_HANDLER));
+        return lines;
+    }
+
+    @Nonnull
+    private static String describeTimes(@Nonnull Histogram histogram) {
+        return String.format("%d (p50 %.2f ms, p99 %.2f ms, max %.2f ms)", histogram.count(),
+                histogram.percentile(50) / 1_000_000.0, histogram.percentile(99) / 1_000_000.0,
+                histogram.max() / 1_000_000.0);
+    }
+
+    /**
+     * Starts logging the summary periodically. Called once during plugin setup.
+     */
+    public static void startLogging() {
+        synchronized (lock) {
+            if (executor != null) {
+                return;
+            }
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "Waystones-Metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleAtFixedRate(WaystoneMetrics::logSummary,
+                    LOG_INTERVAL_MINUTES, LOG_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Stops the periodic log.
+     */
+    public static void stopLogging() {
+        synchronized (lock) {
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+        }
+    }
+
+    private static void logSummary() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LOGGER.atInfo().log("Waystone metrics: %s", String.join(" | ", describe()));
+        } catch (Exception e) {
+            LOGGER.atWarning().log("Failed to log waystone metrics: %s", e.getMessage());
+        }
+    }
+}
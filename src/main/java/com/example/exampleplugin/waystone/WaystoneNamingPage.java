@@ -100,6 +100,15 @@ public class WaystoneNamingPage extends InteractiveCustomUIPage<WaystoneNamingPa
                       @Nonnull UICommandBuilder commandBuilder,
                       @Nonnull UIEventBuilder eventBuilder,
                       @Nonnull Store<EntityStore> store) {
+        try (WaystoneWatchdog.Watch ignored = WaystoneWatchdog.watch("naming build", waystoneId)) {
+            buildPage(ref, commandBuilder, eventBuilder, store);
+        }
+    }
+
+    private void buildPage(@Nonnull Ref<EntityStore> ref,
+                           @Nonnull UICommandBuilder commandBuilder,
+                           @Nonnull UIEventBuilder eventBuilder,
+                           @Nonnull Store<EntityStore> store) {
         // Load our custom UI template
         commandBuilder.append("Pages/WaystoneNamingPage.ui");
 
@@ -144,6 +153,14 @@ public class WaystoneNamingPage extends InteractiveCustomUIPage<WaystoneNamingPa
     public void handleDataEvent(@Nonnull Ref<EntityStore> ref,
                                 @Nonnull Store<EntityStore> store,
                                 @Nonnull NamingEventData event) {
+        try (WaystoneWatchdog.Watch ignored = WaystoneWatchdog.watch("naming event", waystoneId)) {
+            handleEvent(ref, store, event);
+        }
+    }
+
+    private void handleEvent(@Nonnull Ref<EntityStore> ref,
+                             @Nonnull Store<EntityStore> store,
+                             @Nonnull NamingEventData event) {
         // If we received a name value (from ValueChanged on TextField), store it
         if (event.getName() != null) {
             pendingName = event.getName();
@@ -167,23 +184,23 @@ public class WaystoneNamingPage extends InteractiveCustomUIPage<WaystoneNamingPa
                     rebuild();
                     return;
                 }
-                
+
                 String nameToSubmit = pendingName.trim();
-                
+
                 // Check name length (max 100 characters)
                 if (nameToSubmit.length() > 100) {
                     errorMessage = "Name must be 100 characters or less";
                     rebuild();
                     return;
                 }
-                
+
                 // Check if name is already taken (exclude current waystone for renaming)
                 if (WaystoneRegistry.get().isNameTaken(nameToSubmit, waystoneId)) {
                     errorMessage = "A waystone with this name already exists";
                     rebuild();
                     return;
                 }
-                
+
                 onNameSubmit.accept(nameToSubmit);
                 close();
             }
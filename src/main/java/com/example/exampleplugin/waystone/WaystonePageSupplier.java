@@ -5,14 +5,12 @@ import com.hypixel.hytale.component.Ref;
 import com.hypixel.hytale.component.Store;
 import com.hypixel.hytale.math.vector.Vector3d;
 import com.hypixel.hytale.protocol.BlockPosition;
+import com.hypixel.hytale.server.core.Message;
 import com.hypixel.hytale.server.core.entity.InteractionContext;
 import com.hypixel.hytale.server.core.entity.entities.Player;
 import com.hypixel.hytale.server.core.entity.entities.player.pages.CustomUIPage;
-import com.hypixel.hytale.server.core.modules.entity.teleport.Teleport;
 import com.hypixel.hytale.server.core.modules.interaction.interaction.config.server.OpenCustomUIInteraction;
 import com.hypixel.hytale.server.core.universe.PlayerRef;
-import com.hypixel.hytale.server.core.util.EventTitleUtil;
-import com.hypixel.hytale.server.core.Message;
 import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
@@ -31,6 +29,15 @@ public class WaystonePageSupplier implements OpenCustomUIInteraction.CustomPageS
                                    @Nonnull ComponentAccessor<EntityStore> componentAccessor,
                                    @Nonnull PlayerRef playerRef,
                                    @Nonnull InteractionContext context) {
+        try (WaystoneWatchdog.Watch ignored = WaystoneWatchdog.watch("list interaction", playerRef.getUsername())) {
+            return createPage(ref, componentAccessor, playerRef, context);
+        }
+    }
+
+    private CustomUIPage createPage(@Nonnull Ref<EntityStore> ref,
+                                     @Nonnull ComponentAccessor<EntityStore> componentAccessor,
+                                     @Nonnull PlayerRef playerRef,
+                                     @Nonnull InteractionContext context) {
         BlockPosition targetBlock = context.getTargetBlock();
         if (targetBlock == null) {
             return null;
@@ -42,17 +49,18 @@ public class WaystonePageSupplier implements OpenCustomUIInteraction.CustomPageS
             return null;
         }
 
+        // Don't show an empty list while the data is still loading
+        if (!WaystoneRegistry.awaitStartupLoad()) {
+            playerComponent.sendMessage(Message.raw(WaystoneRegistry.getUnavailableMessage()));
+            return null;
+        }
+
         String playerUuid = playerRef.getUuid().toString();
         Store<EntityStore> store = ref.getStore();
         World world = ((EntityStore) store.getExternalData()).getWorld();
 
-        // Find the waystone at this position
-        Waystone currentWaystone = WaystoneRegistry.get().getByPosition(
-                world.getName(),
-                targetBlock.x,
-                targetBlock.y,
-                targetBlock.z
-        );
+        // Find the waystone at this position (read from the block's WaystoneComponent)
+        Waystone currentWaystone = WaystoneBlockEntities.resolve(world, targetBlock.x, targetBlock.y, targetBlock.z);
 
         String currentWaystoneId = currentWaystone != null ? currentWaystone.getId() : null;
 
@@ -66,25 +74,8 @@ public class WaystonePageSupplier implements OpenCustomUIInteraction.CustomPageS
                 playerRef,
                 playerUuid,
                 currentWaystoneId,
-                // On teleport callback
-                waystone -> {
-                    Teleport teleport = waystone.toTeleport();
-                    if (teleport != null) {
-                        store.addComponent(ref, Teleport.getComponentType(), teleport);
-                        
-                        // Show arrival banner
-                        EventTitleUtil.showEventTitleToPlayer(
-                                playerRef,
-                                Message.raw(waystone.getName()),           // Primary title: waystone name
-                                Message.raw("Waystone"),                   // Secondary title: placeholder
-                                true,                                      // isMajor: large banner style
-                                null,                                      // icon: none for now
-                                3.0f,                                      // duration
-                                1.0f,                                      // fadeInDuration
-                                1.0f                                       // fadeOutDuration
-                        );
-                    }
-                },
+                // On teleport callback - arrivals are rate limited by the scheduler
+                waystone -> TeleportScheduler.get().request(playerRef, store, ref, waystone, 3.0f),
                 // On rename callback - opens the naming page
                 () -> {
                     if (currentWaystoneId != null && currentWaystone != null) {
@@ -41,6 +41,11 @@ public final class WaystonePermissions {
      */
     public static final String ALLOW_SHOW_UNDISCOVERED = "hytale.command.waystones.allowShowUndiscovered";
     
+    /**
+     * Skips the teleport cooldown and warm-up entirely.
+     */
+    public static final String ALLOW_BYPASS_COOLDOWN = "hytale.command.waystones.allowBypassCooldown";
+    
     // ============================================
     // BLOCK PERMISSIONS (deny/restrict access)
     // OPs bypass all block permissions
@@ -71,6 +76,18 @@ public final class WaystonePermissions {
      */
     public static final String MAX_WAYSTONES_PREFIX = "hytale.command.waystones.maxWaystones.";
     
+    /**
+     * Prefix for teleport cooldown override permissions, in seconds.
+     * Append a number, e.g., "hytale.command.waystones.cooldown.10"
+     */
+    public static final String COOLDOWN_PREFIX = "hytale.command.waystones.cooldown.";
+    
+    /**
+     * Prefix for teleport warm-up override permissions, in seconds.
+     * Append a number, e.g., "hytale.command.waystones.warmup.3"
+     */
+    public static final String WARMUP_PREFIX = "hytale.command.waystones.warmup.";
+    
     // ============================================
     // GROUP NAMES
     // ============================================
@@ -0,0 +1,261 @@
+package com.example.exampleplugin.waystone;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Single thread that does all disk writes for the waystone and discovery registries.
+ * Registries request a save instead of writing on the calling thread (world threads, commands,
+ * UI events). A request for a file that already has a save queued is merged into it, since the
+ * queued save writes the latest state when it runs. The queue is bounded; when it is full, callers
+ * block until there is room. {@link #flush(long)} waits for everything queued so far.
+ * A save that fails is requested again after a delay that doubles with each failure, until one succeeds.
+ */
+public class WaystonePersistence {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    /** Maximum queued tasks before callers block. */
+    private static final int QUEUE_CAPACITY = 32;
+    /** How long shutdown waits for queued saves. */
+    private static final long SHUTDOWN_FLUSH_MILLIS = 10_000;
+    /** How often the idle worker checks whether it has been stopped or a retry is due. */
+    private static final long POLL_MILLIS = 500;
+    /** Delay before retrying a failed save; doubled after each further failure. */
+    private static final long RETRY_MIN_MILLIS = 1_000;
+    private static final long RETRY_MAX_MILLIS = 60_000;
+
+    private static WaystonePersistence instance;
+
+    /**
+     * Writes one file.
+     *
+     * @return Bytes written
+     */
+    @FunctionalInterface
+    public interface SaveAction {
+        long save() throws Exception;
+    }
+
+    /**
+     * Snapshot of the persistence metrics.
+     */
+    public record Stats(int queueDepth, long flushes, long failures, long merged, long bytesWritten,
+                        long lastFlushNanos, long maxFlushNanos, long totalFlushNanos) {
+
+        /**
+         * Gets the average flush latency in nanoseconds.
+         */
+        public long averageFlushNanos() {
+            return flushes == 0 ? 0 : totalFlushNanos / flushes;
+        }
+    }
+
+    /**
+     * A failed save waiting to be requested again.
+     */
+    private record Retry(@Nonnull SaveAction action, long delayMillis, long dueNanos) {
+    }
+
+    private final BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    // File name -> whether a save for it is queued and not yet started
+    private final Map<String, AtomicBoolean> queued = new ConcurrentHashMap<>();
+    // File name -> its last save failed and hasn't been written since
+    private final Map<String, Retry> retries = new ConcurrentHashMap<>();
+    // Serializes saves that run inline (before start or after stop) with the worker
+    private final Object writeLock = new Object();
+    private final Object statsLock = new Object();
+    private volatile Thread worker;
+    private volatile boolean running = false;
+    private long flushes = 0;
+    private long failures = 0;
+    private long merged = 0;
+    private long bytesWritten = 0;
+    private long lastFlushNanos = 0;
+    private long maxFlushNanos = 0;
+    private long totalFlushNanos = 0;
+
+    private WaystonePersistence() {
+    }
+
+    /**
+     * Gets the singleton instance.
+     */
+    @Nonnull
+    public static WaystonePersistence get() {
+        if (instance == null) {
+            instance = new WaystonePersistence();
+        }
+        return instance;
+    }
+
+    /**
+     * Starts the persistence thread. Called once during plugin setup.
+     */
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(this::run, "Waystones-Persistence");
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+    }
+
+    /**
+     * Writes everything still queued and stops the thread. Called on shutdown.
+     * Saves requested afterwards run on the calling thread.
+     */
+    public void stop() {
+        // Give saves still waiting out their retry delay a last attempt
+        retries.forEach((name, retry) -> requestSave(name, retry.action()));
+        if (!flush(SHUTDOWN_FLUSH_MILLIS)) {
+            LOGGER.atWarning().log("Timed out waiting for %d queued waystone saves", queue.size());
+        }
+        synchronized (this) {
+            running = false;
+            worker = null;
+        }
+    }
+
+    /**
+     * Requests a save of a file. Returns immediately unless the queue is full.
+     *
+     * @param name File name, used to merge requests and in log messages
+     */
+    public void requestSave(@Nonnull String name, @Nonnull SaveAction action) {
+        AtomicBoolean pending = queued.computeIfAbsent(name, k -> new AtomicBoolean(false));
+        if (!pending.compareAndSet(false, true)) {
+            synchronized (statsLock) {
+                merged++;
+            }
+            return;
+        }
+        enqueue(() -> {
+            // Cleared before writing, so changes made during the write queue another save
+            pending.set(false);
+            runSave(name, action);
+        });
+    }
+
+    /**
+     * Waits until every task queued before this call has run.
+     *
+     * @return true if everything was written within the timeout
+     */
+    public boolean flush(long timeoutMillis) {
+        CountDownLatch barrier = new CountDownLatch(1);
+        enqueue(barrier::countDown);
+        try {
+            return barrier.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Gets the current metrics.
+     */
+    @Nonnull
+    public Stats getStats() {
+        synchronized (statsLock) {
+            return new Stats(queue.size(), flushes, failures, merged, bytesWritten,
+                    lastFlushNanos, maxFlushNanos, totalFlushNanos);
+        }
+    }
+
+    private void enqueue(@Nonnull Runnable task) {
+        Thread thread = worker;
+        // Nothing to hand off to, or a save asking for another save - run it here
+        if (thread == null || Thread.currentThread() == thread) {
+            task.run();
+            return;
+        }
+        try {
+            // Blocks while the queue is full, slowing callers down to the disk's pace
+            queue.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.run();
+        }
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Runnable task = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (task != null) {
+                    task.run();
+                }
+                retryDue();
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                LOGGER.atWarning().log("Waystone persistence task failed: %s", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Requests the failed saves whose delay is over. Runs on the worker.
+     */
+    private void retryDue() {
+        if (retries.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        retries.forEach((name, retry) -> {
+            if (now - retry.dueNanos() >= 0) {
+                // Pushed back first, so a request merged into an already queued save isn't repeated every poll
+                retries.put(name, new Retry(retry.action(), retry.delayMillis(),
+                        now + TimeUnit.MILLISECONDS.toNanos(retry.delayMillis())));
+                requestSave(name, retry.action());
+            }
+        });
+    }
+
+    private void runSave(@Nonnull String name, @Nonnull SaveAction action) {
+        synchronized (writeLock) {
+            long start = System.nanoTime();
+            try {
+                long bytes = action.save();
+                long elapsed = System.nanoTime() - start;
+                synchronized (statsLock) {
+                    flushes++;
+                    bytesWritten += bytes;
+                    lastFlushNanos = elapsed;
+                    maxFlushNanos = Math.max(maxFlushNanos, elapsed);
+                    totalFlushNanos += elapsed;
+                }
+                WaystoneMetrics.recordSave(name, elapsed, bytes, false);
+                if (retries.remove(name) != null) {
+                    LOGGER.atInfo().log("Saved %s after earlier failures", name);
+                }
+                if (WaystoneRegistry.isDebugEnabled()) {
+                    LOGGER.atInfo().log("Wrote %s (%d bytes) in %.1f ms, %d saves queued",
+                            name, bytes, elapsed / 1_000_000.0, queue.size());
+                }
+            } catch (Exception e) {
+                synchronized (statsLock) {
+                    failures++;
+                }
+                WaystoneMetrics.recordSave(name, System.nanoTime() - start, 0, true);
+                // Keep the save around so the data isn't left unwritten until something else changes
+                Retry previous = retries.get(name);
+                long delay = previous == null ? RETRY_MIN_MILLIS : Math.min(previous.delayMillis() * 2, RETRY_MAX_MILLIS);
+                retries.put(name, new Retry(action, delay, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay)));
+                LOGGER.atWarning().log("Failed to save %s: %s. Retrying in %ds", name, e.getMessage(), delay / 1000);
+            }
+        }
+    }
+}
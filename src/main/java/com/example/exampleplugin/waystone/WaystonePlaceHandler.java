@@ -39,18 +39,35 @@ public class WaystonePlaceHandler extends EntityEventSystem<EntityStore, PlaceBl
                        @Nonnull Store<EntityStore> store,
                        @Nonnull CommandBuffer<EntityStore> commandBuffer,
                        @Nonnull PlaceBlockEvent event) {
+        long start = WaystoneMetrics.start();
+        try {
+            if (!isWaystoneItem(event)) {
+                return;
+            }
+            try (WaystoneWatchdog.Watch ignored = WaystoneWatchdog.watch("block place", null)) {
+                handleEvent(index, archetypeChunk, store, event);
+            }
+        } finally {
+            WaystoneMetrics.PLACE_HANDLER.recordSince(start);
+        }
+    }
+
+    /**
+     * Checks if the block being placed is a waystone.
+     */
+    private static boolean isWaystoneItem(@Nonnull PlaceBlockEvent event) {
         var itemInHand = event.getItemInHand();
         if (itemInHand == null) {
-            return;
+            return false;
         }
-        
         String itemId = itemInHand.getItemId();
-        
-        // Only process waystone blocks
-        if (!itemId.equals(WAYSTONE_BLOCK_ID) && !itemId.endsWith(":" + WAYSTONE_BLOCK_ID)) {
-            return;
-        }
-        
+        return itemId.equals(WAYSTONE_BLOCK_ID) || itemId.endsWith(":" + WAYSTONE_BLOCK_ID);
+    }
+
+    private void handleEvent(int index,
+                             @Nonnull ArchetypeChunk<EntityStore> archetypeChunk,
+                             @Nonnull Store<EntityStore> store,
+                             @Nonnull PlaceBlockEvent event) {
         var position = event.getTargetBlock();
         String worldName = store.getExternalData().getWorld().getName();
         
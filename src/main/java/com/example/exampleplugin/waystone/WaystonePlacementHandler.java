@@ -13,7 +13,6 @@ import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 import com.hypixel.hytale.server.core.Message;
-import com.hypixel.hytale.server.core.util.EventTitleUtil;
 import com.hypixel.hytale.logger.HytaleLogger;
 
 import javax.annotation.Nonnull;
@@ -36,6 +35,15 @@ public class WaystonePlacementHandler implements OpenCustomUIInteraction.CustomP
                                    @Nonnull ComponentAccessor<EntityStore> componentAccessor,
                                    @Nonnull PlayerRef playerRef,
                                    @Nonnull InteractionContext context) {
+        try (WaystoneWatchdog.Watch ignored = WaystoneWatchdog.watch("waystone interaction", playerRef.getUsername())) {
+            return createPage(ref, componentAccessor, playerRef, context);
+        }
+    }
+
+    private CustomUIPage createPage(@Nonnull Ref<EntityStore> ref,
+                                     @Nonnull ComponentAccessor<EntityStore> componentAccessor,
+                                     @Nonnull PlayerRef playerRef,
+                                     @Nonnull InteractionContext context) {
         BlockPosition targetBlock = context.getTargetBlock();
         if (targetBlock == null) {
             return null;
@@ -47,18 +55,19 @@ public class WaystonePlacementHandler implements OpenCustomUIInteraction.CustomP
             return null;
         }
 
+        // Don't show empty lists or register into a registry that is about to be replaced by the load
+        if (!WaystoneRegistry.awaitStartupLoad()) {
+            playerComponent.sendMessage(Message.raw(WaystoneRegistry.getUnavailableMessage()));
+            return null;
+        }
+
         String playerUuid = playerRef.getUuid().toString();
         String playerName = playerRef.getUsername();
         Store<EntityStore> store = ref.getStore();
         World world = ((EntityStore) store.getExternalData()).getWorld();
 
-        // Check if a waystone already exists at this position
-        Waystone existingWaystone = WaystoneRegistry.get().getByPosition(
-                world.getName(),
-                targetBlock.x,
-                targetBlock.y,
-                targetBlock.z
-        );
+        // Check if a waystone already exists at this position (read from the block's WaystoneComponent)
+        Waystone existingWaystone = WaystoneBlockEntities.resolve(world, targetBlock.x, targetBlock.y, targetBlock.z);
 
         if (existingWaystone != null) {
             // Existing waystone - mark as discovered and open the list page
@@ -67,7 +76,7 @@ public class WaystonePlacementHandler implements OpenCustomUIInteraction.CustomP
         } else {
             // New waystone - check max waystones limit first
             UUID playerUuidObj = UUID.fromString(playerUuid);
-            
+
             // OPs bypass the limit
             if (!PermissionUtils.isOp(playerUuidObj)) {
                 int maxWaystones = PermissionUtils.getMaxWaystonesLimit(playerUuidObj);
@@ -80,7 +89,7 @@ public class WaystonePlacementHandler implements OpenCustomUIInteraction.CustomP
                     }
                 }
             }
-            
+
             // Create new waystone and open naming page
             return createNewWaystoneAndNamingPage(
                     playerRef,
@@ -110,31 +119,13 @@ public class WaystonePlacementHandler implements OpenCustomUIInteraction.CustomP
                 playerUuid,
                 currentWaystoneId,
                 waystone -> {
-                    // Teleport to selected waystone
-                    var teleport = waystone.toTeleport();
-                    if (teleport != null) {
-                        if (WaystoneRegistry.isDebugEnabled()) {
-                            boolean isCrossWorld = !waystone.getWorldName().equals(currentWorld.getName());
-                            LOGGER.atInfo().log("Teleport request: '%s' (ID: %s) to world '%s' (cross-world: %s) at (%.1f, %.1f, %.1f)",
-                                    waystone.getName(), waystone.getId(), waystone.getWorldName(), isCrossWorld,
-                                    teleport.getPosition().x, teleport.getPosition().y, teleport.getPosition().z);
-                        }
-                        store.addComponent(ref, com.hypixel.hytale.server.core.modules.entity.teleport.Teleport.getComponentType(), teleport);
-                        
-                        // Show arrival banner
-                        EventTitleUtil.showEventTitleToPlayer(
-                                playerRef,
-                                Message.raw(waystone.getName()),           // Primary title: waystone name
-                                Message.raw("Waystone"),                   // Secondary title: placeholder
-                                true,                                      // isMajor: large banner style
-                                null,                                      // icon: none for now
-                                3.0f,                                      // duration
-                                1.0f,                                      // fadeInDuration
-                                1.0f                                       // fadeOutDuration
-                        );
-                    } else {
-                        LOGGER.atWarning().log("toTeleport returned null for waystone '%s'", waystone.getName());
+                    // Teleport to selected waystone - arrivals are rate limited by the scheduler
+                    if (WaystoneRegistry.isDebugEnabled()) {
+                        boolean isCrossWorld = !waystone.getWorldName().equals(currentWorld.getName());
+                        LOGGER.atInfo().log("Teleport request: '%s' (ID: %s) to world '%s' (cross-world: %s)",
+                                waystone.getName(), waystone.getId(), waystone.getWorldName(), isCrossWorld);
                     }
+                    TeleportScheduler.get().request(playerRef, store, ref, waystone, 3.0f);
                 },
                 () -> {
                     // Rename callback
@@ -193,6 +184,8 @@ public class WaystonePlacementHandler implements OpenCustomUIInteraction.CustomP
                             defaultToPublic
                     );
                     WaystoneRegistry.get().register(newWaystone);
+                    // Link the block to the new waystone so later lookups read it from the chunk
+                    world.execute(() -> WaystoneBlockEntities.attach(world, newWaystone));
                     // Auto-discover the waystone for its creator
                     PlayerDiscoveryRegistry.get().discoverWaystone(finalPlayerUuid, newWaystone.getId());
                     if (WaystoneRegistry.isDebugEnabled()) {
@@ -0,0 +1,435 @@
+package com.example.exampleplugin.waystone;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.math.util.ChunkUtil;
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+import com.hypixel.hytale.server.core.universe.Universe;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+
+import javax.annotation.Nonnull;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the registry in step with the blocks in the world.
+ * Registry entries are checked against their block in the background, a few per tick, whenever
+ * their chunk is loaded. Entries whose block is gone (world edits, rollbacks) are reported once the
+ * block has been missing on two separate sweeps, and only removed after an admin confirms with
+ * /waystones reconcile remove, or automatically when autoRemoveOrphans is on.
+ * <p>
+ * The other direction is covered as chunks load: blocks carrying the ID of a waystone that no longer
+ * exists are reported by {@link WaystoneBlockLoadSystem}, and {@link WaystoneChunkScanSystem} queues
+ * each loaded chunk for a budgeted scan that reports waystone blocks without a registry entry.
+ */
+public class WaystoneReconciler {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    /** Length of one reconciler tick in milliseconds. */
+    private static final long TICK_MILLIS = 50;
+    /** Maximum registry entries checked per tick. */
+    private static final int CHECKS_PER_TICK = 16;
+    /** Maximum queued repairs applied per tick. */
+    private static final int REPAIRS_PER_TICK = 4;
+    /** Minimum time between the starts of two sweeps over the registry. */
+    private static final long SWEEP_INTERVAL_MILLIS = 30_000;
+    /** Sweeps a block must be found missing on before its registry entry is reported as orphaned. */
+    private static final int MISSING_CONFIRMATIONS = 2;
+    /** Block columns in a chunk; chunks in Hytale are 32x32. */
+    private static final int CHUNK_COLUMNS = 32 * 32;
+    /** Height of a chunk column in blocks. */
+    private static final int WORLD_HEIGHT = 320;
+    /** Block columns read per chunk scan batch; each column is the full world height. */
+    private static final int COLUMNS_PER_SCAN = 64;
+    /** Loaded chunks waiting to be scanned; chunks loaded past this are scanned the next time they load. */
+    private static final int MAX_QUEUED_SCANS = 4096;
+    /** Bare waystone blocks kept for the report. */
+    private static final int MAX_REPORTED_BLOCKS = 50;
+
+    private static WaystoneReconciler instance;
+
+    /**
+     * Snapshot of the reconciler state for /waystones reconcile.
+     */
+    public record Report(int pendingChecks, int suspectedOrphans, @Nonnull List<Waystone> confirmedOrphans,
+                         int queuedRepairs, long checksRun, long registryOrphansRemoved, long blockOrphansCleared,
+                         int queuedChunkScans, long chunksScanned, long chunkScansSkipped,
+                         @Nonnull List<BareBlock> bareBlocks, long lastSweepStartedAt) {
+    }
+
+    /**
+     * A waystone block with no registry entry and no waystone ID on it.
+     */
+    public record BareBlock(@Nonnull String worldName, int x, int y, int z) {
+    }
+
+    /**
+     * A loaded chunk being scanned for bare waystone blocks, a few columns per batch.
+     */
+    private static final class ChunkScan {
+        final World world;
+        final WeakReference<WorldChunk> chunk;
+        final int chunkX;
+        final int chunkZ;
+        int nextColumn = 0;
+        boolean inFlight = false;
+
+        ChunkScan(@Nonnull World world, @Nonnull WorldChunk chunk) {
+            this.world = world;
+            this.chunk = new WeakReference<>(chunk);
+            this.chunkX = chunk.getX();
+            this.chunkZ = chunk.getZ();
+        }
+    }
+
+    private final Object lock = new Object();
+    // Waystone IDs still to be checked in the current sweep
+    private final ArrayDeque<String> pendingChecks = new ArrayDeque<>();
+    // Waystone ID -> the chunk it was last verified in; a reloaded chunk is a new instance and gets rechecked
+    private final Map<String, WeakReference<WorldChunk>> verifiedIn = new HashMap<>();
+    // Waystone ID -> number of sweeps its block has been found missing on
+    private final Map<String, Integer> missingCounts = new HashMap<>();
+    // Confirmed registry orphans waiting for /waystones reconcile remove
+    private final Set<String> confirmed = new LinkedHashSet<>();
+    // Registry orphans approved for removal
+    private final ArrayDeque<String> repairs = new ArrayDeque<>();
+    // Loaded chunks still to be scanned for bare waystone blocks
+    private final ArrayDeque<ChunkScan> chunkScans = new ArrayDeque<>();
+    // "world x y z" -> bare waystone block found by a chunk scan
+    private final Map<String, BareBlock> bareBlocks = new LinkedHashMap<>();
+    private ScheduledExecutorService executor;
+    private long lastSweepStartedAt = 0;
+    private long checksRun = 0;
+    private long registryOrphansRemoved = 0;
+    private long blockOrphansCleared = 0;
+    private long chunksScanned = 0;
+    private long chunkScansSkipped = 0;
+
+    private WaystoneReconciler() {
+    }
+
+    /**
+     * Gets the singleton instance of the reconciler.
+     */
+    @Nonnull
+    public static WaystoneReconciler get() {
+        if (instance == null) {
+            instance = new WaystoneReconciler();
+        }
+        return instance;
+    }
+
+    /**
+     * Starts the reconciler tick. Called once during plugin setup.
+     */
+    public void start() {
+        synchronized (lock) {
+            if (executor != null) {
+                return;
+            }
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "Waystones-Reconciler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleAtFixedRate(this::tickSafely, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the reconciler. Orphans and repairs still queued are dropped and found again on the next start.
+     */
+    public void stop() {
+        synchronized (lock) {
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+            pendingChecks.clear();
+            confirmed.clear();
+            repairs.clear();
+            chunkScans.clear();
+        }
+    }
+
+    /**
+     * Starts a new sweep on the next tick instead of waiting for the sweep interval.
+     */
+    public void requestSweep() {
+        synchronized (lock) {
+            lastSweepStartedAt = 0;
+        }
+    }
+
+    /**
+     * Approves the removal of every confirmed registry orphan; they are removed over the next ticks.
+     * Entries whose block has come back since are skipped.
+     *
+     * @return the number of entries queued for removal
+     */
+    public int approveRemovals() {
+        synchronized (lock) {
+            int approved = confirmed.size();
+            repairs.addAll(confirmed);
+            confirmed.clear();
+            return approved;
+        }
+    }
+
+    /**
+     * Queues a chunk that has just loaded to be scanned for waystone blocks without a registry entry.
+     */
+    public void queueChunkScan(@Nonnull World world, @Nonnull WorldChunk chunk) {
+        synchronized (lock) {
+            if (chunkScans.size() >= MAX_QUEUED_SCANS) {
+                chunkScansSkipped++;
+                return;
+            }
+            chunkScans.addLast(new ChunkScan(world, chunk));
+        }
+    }
+
+    /**
+     * Records a block that carried the ID of a waystone missing from the registry.
+     * The block's component has already been removed, so using the block starts a new waystone.
+     */
+    public void recordBlockOrphan(@Nonnull String waystoneId) {
+        synchronized (lock) {
+            blockOrphansCleared++;
+        }
+        if (WaystoneRegistry.isDebugEnabled()) {
+            LOGGER.atInfo().log("Cleared block link to unknown waystone %s", waystoneId);
+        }
+    }
+
+    /**
+     * Gets the current reconciler state.
+     */
+    @Nonnull
+    public Report getReport() {
+        synchronized (lock) {
+            List<Waystone> orphans = new ArrayList<>();
+            for (String waystoneId : confirmed) {
+                Waystone waystone = WaystoneRegistry.get().get(waystoneId);
+                if (waystone != null) {
+                    orphans.add(waystone);
+                }
+            }
+            // Blocks that have been used since got a registry entry and are no longer bare
+            bareBlocks.values().removeIf(block -> WaystoneRegistry.get().getByPosition(
+                    block.worldName(), block.x(), block.y(), block.z()) != null);
+            return new Report(pendingChecks.size(), missingCounts.size(), orphans, repairs.size(),
+                    checksRun, registryOrphansRemoved, blockOrphansCleared,
+                    chunkScans.size(), chunksScanned, chunkScansSkipped,
+                    new ArrayList<>(bareBlocks.values()), lastSweepStartedAt);
+        }
+    }
+
+    private void tickSafely() {
+        try {
+            tick();
+        } catch (Exception e) {
+            LOGGER.atWarning().log("Waystone reconciler tick failed: %s", e.getMessage());
+        }
+    }
+
+    private void tick() {
+        if (!WaystoneRegistry.get().isLoaded()) {
+            return;
+        }
+
+        List<String> toRemove = new ArrayList<>();
+        Map<World, List<Waystone>> toCheck = new HashMap<>();
+        ChunkScan toScan = null;
+        synchronized (lock) {
+            if (WaystoneRegistry.get().isAutoRemoveOrphans()) {
+                repairs.addAll(confirmed);
+                confirmed.clear();
+            }
+            while (!repairs.isEmpty() && toRemove.size() < REPAIRS_PER_TICK) {
+                toRemove.add(repairs.pollFirst());
+            }
+
+            ChunkScan next = chunkScans.peekFirst();
+            if (next != null && !next.inFlight) {
+                next.inFlight = true;
+                toScan = next;
+            }
+
+            long now = System.currentTimeMillis();
+            if (pendingChecks.isEmpty() && now - lastSweepStartedAt >= SWEEP_INTERVAL_MILLIS) {
+                for (Waystone waystone : WaystoneRegistry.get().getAll()) {
+                    pendingChecks.addLast(waystone.getId());
+                }
+                lastSweepStartedAt = now;
+            }
+
+            int budget = CHECKS_PER_TICK;
+            while (!pendingChecks.isEmpty() && budget > 0) {
+                String waystoneId = pendingChecks.pollFirst();
+                budget--;
+                Waystone waystone = WaystoneRegistry.get().get(waystoneId);
+                if (waystone == null) {
+                    verifiedIn.remove(waystoneId);
+                    missingCounts.remove(waystoneId);
+                    confirmed.remove(waystoneId);
+                    continue;
+                }
+                World world = Universe.get().getWorld(waystone.getWorldName());
+                if (world == null) {
+                    continue; // World not loaded - checked on a later sweep
+                }
+                WorldChunk chunk = getChunk(world, waystone);
+                if (chunk == null) {
+                    continue; // Chunk not loaded - checked once it is
+                }
+                WeakReference<WorldChunk> verified = verifiedIn.get(waystoneId);
+                if (verified != null && verified.get() == chunk) {
+                    continue; // Already verified since this chunk loaded
+                }
+                toCheck.computeIfAbsent(world, k -> new ArrayList<>()).add(waystone);
+            }
+        }
+
+        for (String waystoneId : toRemove) {
+            Waystone waystone = WaystoneRegistry.get().get(waystoneId);
+            synchronized (lock) {
+                // Found again since it was approved
+                if (verifiedIn.containsKey(waystoneId)) {
+                    continue;
+                }
+            }
+            if (waystone != null && WaystoneRegistry.get().unregister(waystoneId)) {
+                LOGGER.atInfo().log("Removed orphaned waystone '%s' - no waystone block at %s (%.0f, %.0f, %.0f)",
+                        waystone.getName(), waystone.getWorldName(), waystone.getX(), waystone.getY(), waystone.getZ());
+                synchronized (lock) {
+                    registryOrphansRemoved++;
+                }
+            }
+        }
+
+        // Block reads happen on the thread that owns the world
+        for (Map.Entry<World, List<Waystone>> entry : toCheck.entrySet()) {
+            World world = entry.getKey();
+            List<Waystone> batch = entry.getValue();
+            world.execute(() -> checkBlocks(world, batch));
+        }
+        if (toScan != null) {
+            ChunkScan scan = toScan;
+            scan.world.execute(() -> scanChunk(scan));
+        }
+    }
+
+    private void checkBlocks(@Nonnull World world, @Nonnull List<Waystone> batch) {
+        for (Waystone waystone : batch) {
+            WorldChunk chunk = getChunk(world, waystone);
+            if (chunk == null) {
+                continue;
+            }
+            int x = (int) Math.floor(waystone.getX());
+            int y = (int) Math.floor(waystone.getY());
+            int z = (int) Math.floor(waystone.getZ());
+            BlockType blockType = BlockType.getAssetMap().getAsset(chunk.getBlock(x & 0x1F, y, z & 0x1F));
+            boolean present = blockType != null && WaystoneBlockEntities.isWaystoneBlock(blockType.getId());
+
+            if (present) {
+                // Also links blocks placed before block entities carried the waystone ID
+                WaystoneBlockEntities.attach(world, waystone);
+            }
+
+            synchronized (lock) {
+                checksRun++;
+                if (present) {
+                    verifiedIn.put(waystone.getId(), new WeakReference<>(chunk));
+                    missingCounts.remove(waystone.getId());
+                    confirmed.remove(waystone.getId());
+                    continue;
+                }
+                verifiedIn.remove(waystone.getId());
+                int missing = missingCounts.merge(waystone.getId(), 1, Integer::sum);
+                if (missing >= MISSING_CONFIRMATIONS) {
+                    missingCounts.remove(waystone.getId());
+                    if (confirmed.add(waystone.getId())) {
+                        LOGGER.atWarning().log("Waystone '%s' has no block at %s (%d, %d, %d); "
+                                + "use /waystones reconcile to review and remove it",
+                                waystone.getName(), world.getName(), x, y, z);
+                    }
+                }
+            }
+
+            if (WaystoneRegistry.isDebugEnabled()) {
+                LOGGER.atInfo().log("No waystone block for '%s' at %s (%d, %d, %d)",
+                        waystone.getName(), world.getName(), x, y, z);
+            }
+        }
+    }
+
+    /**
+     * Reads the next batch of block columns of a queued chunk. Runs on the world's thread.
+     */
+    private void scanChunk(@Nonnull ChunkScan scan) {
+        WorldChunk chunk = scan.chunk.get();
+        int column = scan.nextColumn;
+        List<BareBlock> found = new ArrayList<>();
+        if (chunk != null && chunk == scan.world.getChunkIfInMemory(ChunkUtil.indexChunk(scan.chunkX, scan.chunkZ))) {
+            // Block IDs repeat a lot (air, stone); only look up the block type when it changes
+            int lastBlockId = Integer.MIN_VALUE;
+            boolean lastIsWaystone = false;
+            int end = Math.min(column + COLUMNS_PER_SCAN, CHUNK_COLUMNS);
+            for (; column < end; column++) {
+                int localX = column & 0x1F;
+                int localZ = column >> 5;
+                for (int y = 0; y < WORLD_HEIGHT; y++) {
+                    int blockId = chunk.getBlock(localX, y, localZ);
+                    if (blockId != lastBlockId) {
+                        BlockType blockType = BlockType.getAssetMap().getAsset(blockId);
+                        lastBlockId = blockId;
+                        lastIsWaystone = blockType != null && WaystoneBlockEntities.isWaystoneBlock(blockType.getId());
+                    }
+                    if (!lastIsWaystone) {
+                        continue;
+                    }
+                    int x = (scan.chunkX << 5) + localX;
+                    int z = (scan.chunkZ << 5) + localZ;
+                    if (WaystoneBlockEntities.find(scan.world, x, y, z) == null) {
+                        found.add(new BareBlock(scan.world.getName(), x, y, z));
+                    }
+                }
+            }
+        } else {
+            column = CHUNK_COLUMNS; // Unloaded since it was queued - scanned when it loads again
+        }
+
+        synchronized (lock) {
+            scan.nextColumn = column;
+            scan.inFlight = false;
+            if (column >= CHUNK_COLUMNS) {
+                chunkScans.remove(scan);
+                if (chunk != null) {
+                    chunksScanned++;
+                }
+            }
+            for (BareBlock block : found) {
+                String key = block.worldName() + " " + block.x() + " " + block.y() + " " + block.z();
+                if (bareBlocks.size() < MAX_REPORTED_BLOCKS || bareBlocks.containsKey(key)) {
+                    bareBlocks.put(key, block);
+                }
+            }
+        }
+        for (BareBlock block : found) {
+            LOGGER.atWarning().log("Waystone block at %s (%d, %d, %d) has no registry entry; "
+                    + "using it creates a new waystone", block.worldName(), block.x(), block.y(), block.z());
+        }
+    }
+
+    private static WorldChunk getChunk(@Nonnull World world, @Nonnull Waystone waystone) {
+        // Chunks in Hytale are 32x32, so we use >> 5 (divide by 32)
+        int x = (int) Math.floor(waystone.getX());
+        int z = (int) Math.floor(waystone.getZ());
+        return world.getChunkIfInMemory(ChunkUtil.indexChunk(x >> 5, z >> 5));
+    }
+}
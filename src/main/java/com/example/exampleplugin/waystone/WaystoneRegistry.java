@@ -2,40 +2,77 @@ package com.example.exampleplugin.waystone;
 
 import com.hypixel.hytale.logger.HytaleLogger;
 import com.hypixel.hytale.server.core.universe.Universe;
-import com.hypixel.hytale.server.core.util.BsonUtil;
-import org.bson.BsonArray;
 import org.bson.BsonDocument;
-import org.bson.BsonValue;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 /**
  * Registry for managing all waystones in the game.
  * Handles CRUD operations and persistence to disk.
+ * Waystones are partitioned by world; each world's lookup indexes are built when the
+ * world loads and dropped when it unloads.
+ * Waystones are immutable - updates swap in a modified copy, so readers and the save
+ * never see a half-applied change.
  */
 public class WaystoneRegistry {
 
     private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
-    private static final String WAYSTONES_FILE = "waystones.json";
+    /** How long player actions wait for the startup load before being told to try again. */
+    private static final long STARTUP_WAIT_MILLIS = 250;
+    /** Below this many records, decoding in parallel costs more than it saves. */
+    static final int PARALLEL_DECODE_THRESHOLD = 512;
+
+    /** Shown to players who use a waystone before the data has finished loading. */
+    public static final String LOADING_MESSAGE = "Waystones are still loading, try again in a moment.";
+    /** Shown to players if the waystone data couldn't be loaded. */
+    public static final String LOAD_FAILED_MESSAGE = "Waystones are unavailable: the waystone data failed to load. Please tell an admin.";
 
     private static WaystoneRegistry instance;
 
+    // Waystone ID -> waystone, across all worlds
     private final Map<String, Waystone> waystones = new ConcurrentHashMap<>();
+    // World name -> that world's waystones and indexes
+    private final Map<String, WaystoneWorldPartition> partitions = new ConcurrentHashMap<>();
+    // Worlds currently loaded on the server
+    private final Set<String> activeWorlds = ConcurrentHashMap.newKeySet();
     private final AtomicBoolean loaded = new AtomicBoolean(false);
-    private final ReentrantLock saveLock = new ReentrantLock();
-    private final AtomicBoolean postSaveRedo = new AtomicBoolean(false);
+    // Bumped after every change to the waystones or to what lists show, see getVersion()
+    private final AtomicLong version = new AtomicLong();
+    private final CountDownLatch loadLatch = new CountDownLatch(1);
+    // Mapped waystones.bin still being decoded in the background; null once everything is in the maps
+    private volatile WaystoneSnapshot snapshot;
+    // Why the data failed to load; while set, the registry is never saved so the files aren't overwritten
+    private volatile String loadFailure;
+    private volatile CompletableFuture<Void> materialization = CompletableFuture.completedFuture(null);
+    // Where waystones and discoveries are kept; picked on first use
+    private volatile WaystoneStorage storage;
 
     // Config settings
     private boolean debugLogs = false;
     private boolean requireDiscover = false;
+    private int arrivalsPerChunkPerTick = 4;
+    private int arrivalsPerWorldPerTick = 16;
+    private int teleportCooldownSeconds = 0;
+    private int teleportWarmupSeconds = 0;
+    private boolean binaryStorage = false;
+    private int backups = 3;
+    private boolean metrics = false;
+    private int slowOperationMs = WaystoneWatchdog.DEFAULT_BUDGET_MS;
+    private boolean autoRemoveOrphans = false;
 
     private WaystoneRegistry() {
     }
@@ -68,6 +105,149 @@ public class WaystoneRegistry {
      */
     public void setRequireDiscover(boolean enabled) {
         this.requireDiscover = enabled;
+        version.incrementAndGet();
+        save();
+    }
+
+    /**
+     * Gets the maximum number of teleport arrivals allowed into one destination chunk per scheduler tick.
+     */
+    public int getArrivalsPerChunkPerTick() {
+        return arrivalsPerChunkPerTick;
+    }
+
+    /**
+     * Sets the maximum number of teleport arrivals per destination chunk per scheduler tick.
+     */
+    public void setArrivalsPerChunkPerTick(int arrivals) {
+        this.arrivalsPerChunkPerTick = arrivals;
+        save();
+    }
+
+    /**
+     * Gets the maximum number of teleport arrivals allowed into one destination world per scheduler tick.
+     */
+    public int getArrivalsPerWorldPerTick() {
+        return arrivalsPerWorldPerTick;
+    }
+
+    /**
+     * Sets the maximum number of teleport arrivals per destination world per scheduler tick.
+     */
+    public void setArrivalsPerWorldPerTick(int arrivals) {
+        this.arrivalsPerWorldPerTick = arrivals;
+        save();
+    }
+
+    /**
+     * Gets the default teleport cooldown in seconds (0 = no cooldown).
+     * Can be overridden per player with cooldown.X permissions.
+     */
+    public int getTeleportCooldownSeconds() {
+        return teleportCooldownSeconds;
+    }
+
+    /**
+     * Sets the default teleport cooldown in seconds.
+     */
+    public void setTeleportCooldownSeconds(int seconds) {
+        this.teleportCooldownSeconds = seconds;
+        save();
+    }
+
+    /**
+     * Gets the default teleport warm-up in seconds (0 = teleport immediately).
+     * Can be overridden per player with warmup.X permissions.
+     */
+    public int getTeleportWarmupSeconds() {
+        return teleportWarmupSeconds;
+    }
+
+    /**
+     * Sets the default teleport warm-up in seconds.
+     */
+    public void setTeleportWarmupSeconds(int seconds) {
+        this.teleportWarmupSeconds = seconds;
+        save();
+    }
+
+    /**
+     * Checks if waystone and discovery data are stored in the compact binary format
+     * (waystones.bin / waystones-players.bin) instead of JSON.
+     */
+    public boolean isBinaryStorage() {
+        return binaryStorage;
+    }
+
+    /**
+     * Sets the storage format. The next save writes the new format; the old file is left
+     * in place and ignored because it is older.
+     */
+    public void setBinaryStorage(boolean enabled) {
+        this.binaryStorage = enabled;
+        save();
+    }
+
+    /**
+     * Gets the number of previous versions kept of each data file (waystones.json.1, .2, ...).
+     */
+    public int getBackups() {
+        return backups;
+    }
+
+    /**
+     * Sets the number of previous versions kept of each data file. Extra ones are deleted on the next save.
+     */
+    public void setBackups(int backups) {
+        this.backups = Math.max(0, Math.min(backups, WaystoneFiles.MAX_BACKUPS));
+        save();
+    }
+
+    /**
+     * Checks if waystone metrics are recorded (see {@link WaystoneMetrics}).
+     */
+    public boolean isMetricsEnabled() {
+        return metrics;
+    }
+
+    /**
+     * Sets whether waystone metrics are recorded and logged.
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        this.metrics = enabled;
+        WaystoneMetrics.setEnabled(enabled);
+        save();
+    }
+
+    /**
+     * Gets the time a waystone operation may take before the watchdog logs it (see {@link WaystoneWatchdog}).
+     * 0 means the watchdog is off.
+     */
+    public int getSlowOperationMs() {
+        return slowOperationMs;
+    }
+
+    /**
+     * Sets the watchdog budget in milliseconds, or 0 to turn it off.
+     */
+    public void setSlowOperationMs(int slowOperationMs) {
+        this.slowOperationMs = Math.max(0, Math.min(slowOperationMs, WaystoneWatchdog.MAX_BUDGET_MS));
+        WaystoneWatchdog.setBudgetMs(this.slowOperationMs);
+        save();
+    }
+
+    /**
+     * Checks if entries whose block is confirmed missing are removed without /waystones reconcile remove.
+     */
+    public boolean isAutoRemoveOrphans() {
+        return autoRemoveOrphans;
+    }
+
+    /**
+     * Sets whether the reconciler removes confirmed orphaned entries on its own.
+     */
+    public void setAutoRemoveOrphans(boolean enabled) {
+        this.autoRemoveOrphans = enabled;
         save();
     }
 
@@ -90,88 +270,324 @@ public class WaystoneRegistry {
     }
 
     /**
-     * Loads waystones from disk.
+     * Waits for {@link #load()} to finish, which runs in the background at startup.
+     *
+     * @return true if the registry is loaded
+     */
+    public boolean awaitLoaded(long timeoutMillis) {
+        if (loaded.get()) {
+            return true;
+        }
+        try {
+            loadLatch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return loaded.get();
+    }
+
+    /**
+     * Waits briefly for both the waystone and discovery data to finish loading.
+     * Player-facing entry points call this and show {@link #getUnavailableMessage()} if it returns
+     * false, rather than working against an empty registry. Also false if either failed to load.
+     */
+    public static boolean awaitStartupLoad() {
+        return get().awaitLoaded(STARTUP_WAIT_MILLIS)
+                && PlayerDiscoveryRegistry.get().awaitLoaded(STARTUP_WAIT_MILLIS)
+                && !isAnyLoadFailed();
+    }
+
+    /**
+     * Checks if the waystone or the discovery data failed to load. Either way waystones are disabled
+     * until the server is restarted with the data fixed.
+     */
+    public static boolean isAnyLoadFailed() {
+        return get().isLoadFailed() || PlayerDiscoveryRegistry.get().isLoadFailed();
+    }
+
+    /**
+     * Gets the message for players when {@link #awaitStartupLoad()} returns false.
+     */
+    @Nonnull
+    public static String getUnavailableMessage() {
+        return isAnyLoadFailed() ? LOAD_FAILED_MESSAGE : LOADING_MESSAGE;
+    }
+
+    /**
+     * Checks if the waystone data failed to load. The registry is then left empty and read-only:
+     * saves are skipped so the data files (or database) aren't overwritten with an empty set.
+     * Fix or restore the data and restart the server.
+     */
+    public boolean isLoadFailed() {
+        return loadFailure != null;
+    }
+
+    private void failLoad(@Nonnull Exception e) {
+        loadFailure = String.valueOf(e.getMessage());
+        LOGGER.atWarning().log("Failed to load waystones: %s. Waystones are disabled and nothing will be saved "
+                + "until the data is fixed or restored from a backup and the server is restarted.", loadFailure);
+    }
+
+    /**
+     * Loads waystones from storage.
+     * A mapped waystones.bin only has its config and record offsets read here; lookups by ID decode
+     * single records, and the rest is decoded in the background.
+     * Anything that needs the whole registry waits for that to finish.
      */
     public void load() {
-        Path universePath = Universe.get().getPath();
-        Path path = universePath.resolve(WAYSTONES_FILE);
-
-        if (Files.exists(path)) {
-            try {
-                BsonDocument document = BsonUtil.readDocument(path).join();
-                
-                // Load config section
-                if (document != null && document.containsKey("Config")) {
-                    BsonDocument config = document.getDocument("Config");
-                    if (config.containsKey("debugLogs")) {
-                        debugLogs = config.getBoolean("debugLogs").getValue();
-                    }
-                    if (config.containsKey("requireDiscover")) {
-                        requireDiscover = config.getBoolean("requireDiscover").getValue();
-                    }
+        try {
+            WaystoneStorage.LoadedWaystones data = getStorage().loadWaystones();
+            if (data == null) {
+                if (debugLogs) {
+                    LOGGER.atInfo().log("No waystones file found, starting fresh");
                 }
-                
-                // Load waystones
-                if (document != null && document.containsKey("Waystones")) {
-                    BsonArray bsonWarps = document.getArray("Waystones");
-                    waystones.clear();
-                    Waystone[] loaded = Waystone.ARRAY_CODEC.decode((BsonValue) bsonWarps);
-                    for (Waystone waystone : loaded) {
-                        waystones.put(waystone.getId(), waystone);
-                    }
-                    if (debugLogs) {
-                        LOGGER.atInfo().log("Loaded %d waystones", waystones.size());
+            } else if (data.snapshot() != null) {
+                WaystoneSnapshot mapped = data.snapshot();
+                applyConfig(data.config());
+                // Publish the future before the snapshot, so anyone who sees the snapshot waits on this load
+                CompletableFuture<Void> done = new CompletableFuture<>();
+                materialization = done;
+                snapshot = mapped;
+                CompletableFuture.runAsync(() -> {
+                    try {
+                        materialize(mapped);
+                    } finally {
+                        done.complete(null);
                     }
+                });
+            } else if (data.waystones() != null) {
+                applyConfig(data.config());
+                applyWaystones(data.waystones());
+                if (debugLogs) {
+                    LOGGER.atInfo().log("Loaded %d waystones in %d worlds from %s storage",
+                            waystones.size(), partitions.size(), storage.getName());
                 }
-            } catch (Exception e) {
-                LOGGER.atWarning().log("Failed to load waystones: %s", e.getMessage());
-            }
-        } else {
-            if (debugLogs) {
-                LOGGER.atInfo().log("No waystones file found, starting fresh");
             }
+        } catch (Exception e) {
+            failLoad(e);
         }
 
         loaded.set(true);
+        loadLatch.countDown();
     }
 
     /**
-     * Saves waystones to disk.
+     * Gets the storage the registries load from and save to.
+     * The SQL database is used if it was written more recently than the data files, which means
+     * the server was converted to it; otherwise the data files are.
      */
-    public void save() {
-        if (saveLock.tryLock()) {
-            try {
-                saveInternal();
-            } catch (Exception e) {
-                LOGGER.atWarning().log("Failed to save waystones: %s", e.getMessage());
-            } finally {
-                saveLock.unlock();
+    @Nonnull
+    public WaystoneStorage getStorage() {
+        WaystoneStorage current = storage;
+        if (current == null) {
+            synchronized (this) {
+                if (storage == null) {
+                    storage = detectStorage(Universe.get().getPath());
+                }
+                current = storage;
             }
-            if (postSaveRedo.getAndSet(false)) {
-                save();
+        }
+        return current;
+    }
+
+    /**
+     * Sets the storage to load from and save to, instead of detecting it in the universe folder.
+     * Must be called before {@link #load()}; lets the registries run without a server, e.g. with
+     * an {@link InMemoryWaystoneStorage} in benchmarks. Use {@link #switchStorage} once loaded.
+     */
+    public synchronized void setStorage(@Nonnull WaystoneStorage storage) {
+        this.storage = storage;
+    }
+
+    @Nonnull
+    private static WaystoneStorage detectStorage(@Nonnull Path directory) {
+        Path database = directory.resolve(SqlWaystoneStorage.DATABASE_FILE);
+        if (isNewer(database, directory.resolve(FileWaystoneStorage.WAYSTONES_FILE))
+                && isNewer(database, directory.resolve(FileWaystoneStorage.WAYSTONES_BINARY_FILE))) {
+            return new SqlWaystoneStorage(directory);
+        }
+        return new FileWaystoneStorage(directory);
+    }
+
+    /**
+     * Moves waystones and discoveries to another storage. Everything queued is written to the old
+     * storage first; then all data is saved to the new one. The old data is left in place.
+     *
+     * @throws IllegalStateException if the waystones failed to load
+     */
+    public void switchStorage(@Nonnull WaystoneStorage next) {
+        awaitSnapshot();
+        if (isLoadFailed()) {
+            // Saves are off, so the new storage would get the discoveries but no waystones
+            throw new IllegalStateException("waystones failed to load: " + loadFailure);
+        }
+        if (PlayerDiscoveryRegistry.get().isLoadFailed()) {
+            // Likewise the new storage would get the waystones but no discoveries
+            throw new IllegalStateException("player discoveries failed to load");
+        }
+        WaystonePersistence.get().flush(10_000);
+        WaystoneStorage previous;
+        synchronized (this) {
+            previous = storage;
+            storage = next;
+        }
+        if (previous != null && previous != next) {
+            previous.close();
+        }
+        save();
+        PlayerDiscoveryRegistry.get().requestFullSave();
+        if (debugLogs) {
+            LOGGER.atInfo().log("Switched waystone storage to %s", next.getName());
+        }
+    }
+
+    /**
+     * Checks if the first file exists and is at least as recent as the second.
+     * Used to pick between the binary and JSON copy of the same data.
+     */
+    static boolean isNewer(@Nonnull Path candidate, @Nonnull Path other) {
+        try {
+            return Files.exists(candidate) && (!Files.exists(other)
+                    || Files.getLastModifiedTime(candidate).compareTo(Files.getLastModifiedTime(other)) >= 0);
+        } catch (Exception e) {
+            return Files.exists(candidate);
+        }
+    }
+
+    private void applyConfig(@Nonnull BsonDocument config) {
+        if (config.containsKey("debugLogs")) {
+            debugLogs = config.getBoolean("debugLogs").getValue();
+        }
+        if (config.containsKey("requireDiscover")) {
+            requireDiscover = config.getBoolean("requireDiscover").getValue();
+        }
+        if (config.containsKey("arrivalsPerChunkPerTick")) {
+            arrivalsPerChunkPerTick = config.get("arrivalsPerChunkPerTick").asNumber().intValue();
+        }
+        if (config.containsKey("arrivalsPerWorldPerTick")) {
+            arrivalsPerWorldPerTick = config.get("arrivalsPerWorldPerTick").asNumber().intValue();
+        }
+        if (config.containsKey("teleportCooldownSeconds")) {
+            teleportCooldownSeconds = config.get("teleportCooldownSeconds").asNumber().intValue();
+        }
+        if (config.containsKey("teleportWarmupSeconds")) {
+            teleportWarmupSeconds = config.get("teleportWarmupSeconds").asNumber().intValue();
+        }
+        if (config.containsKey("binaryStorage")) {
+            binaryStorage = config.getBoolean("binaryStorage").getValue();
+        }
+        if (config.containsKey("backups")) {
+            backups = config.get("backups").asNumber().intValue();
+        }
+        if (config.containsKey("metrics")) {
+            metrics = config.getBoolean("metrics").getValue();
+            WaystoneMetrics.setEnabled(metrics);
+        }
+        if (config.containsKey("slowOperationMs")) {
+            slowOperationMs = config.get("slowOperationMs").asNumber().intValue();
+            WaystoneWatchdog.setBudgetMs(slowOperationMs);
+        }
+        if (config.containsKey("autoRemoveOrphans")) {
+            autoRemoveOrphans = config.getBoolean("autoRemoveOrphans").getValue();
+        }
+    }
+
+    private void materialize(@Nonnull WaystoneSnapshot mapped) {
+        long start = System.nanoTime();
+        try {
+            applyWaystones(mapped.materialize(PARALLEL_DECODE_THRESHOLD));
+            // Every record is decoded; drop the mapping so saves can replace the file
+            mapped.release();
+            if (debugLogs) {
+                LOGGER.atInfo().log("Loaded %d waystones in %d worlds from %s in %d ms", waystones.size(),
+                        partitions.size(), FileWaystoneStorage.WAYSTONES_BINARY_FILE, (System.nanoTime() - start) / 1_000_000);
             }
-        } else {
-            postSaveRedo.set(true);
+        } catch (Exception e) {
+            failLoad(e);
+        } finally {
+            snapshot = null;
+        }
+    }
+
+    /**
+     * Waits for a mapped snapshot to be fully decoded. Called by everything that reads or changes
+     * the maps, except lookups by ID, which the snapshot answers directly.
+     */
+    private void awaitSnapshot() {
+        if (snapshot != null) {
+            materialization.join();
+        }
+    }
+
+    private void applyWaystones(@Nonnull Waystone[] loaded) {
+        waystones.clear();
+        partitions.clear();
+        for (Waystone waystone : loaded) {
+            waystones.put(waystone.getId(), waystone);
+            partitionFor(waystone.getWorldName()).put(waystone);
+        }
+        // Only index the worlds that are actually loaded (there is no universe when running without a server)
+        Universe universe = Universe.get();
+        for (WaystoneWorldPartition partition : partitions.values()) {
+            if (activeWorlds.contains(partition.getWorldName())
+                    || (universe != null && universe.getWorld(partition.getWorldName()) != null)) {
+                activeWorlds.add(partition.getWorldName());
+                partition.activate();
+            }
+        }
+        version.incrementAndGet();
+    }
+
+    /**
+     * Saves waystones to storage.
+     * The write happens on the persistence thread; this only queues it.
+     */
+    public void save() {
+        if (isLoadFailed()) {
+            return; // Keep the data that failed to load; see isLoadFailed()
         }
+        WaystonePersistence.get().requestSave("waystones", this::saveInternal);
     }
 
-    private void saveInternal() {
+    private long saveInternal() throws IOException {
+        awaitSnapshot();
+        if (isLoadFailed()) {
+            throw new IOException("not saving, waystones failed to load: " + loadFailure);
+        }
         Waystone[] array = waystones.values().toArray(new Waystone[0]);
         
         // Build config section
         BsonDocument config = new BsonDocument();
         config.put("debugLogs", new org.bson.BsonBoolean(debugLogs));
         config.put("requireDiscover", new org.bson.BsonBoolean(requireDiscover));
-        
-        // Build main document
-        BsonDocument document = new BsonDocument();
-        document.put("Config", config);
-        document.put("Waystones", Waystone.ARRAY_CODEC.encode(array));
+        config.put("arrivalsPerChunkPerTick", new org.bson.BsonInt32(arrivalsPerChunkPerTick));
+        config.put("arrivalsPerWorldPerTick", new org.bson.BsonInt32(arrivalsPerWorldPerTick));
+        config.put("teleportCooldownSeconds", new org.bson.BsonInt32(teleportCooldownSeconds));
+        config.put("teleportWarmupSeconds", new org.bson.BsonInt32(teleportWarmupSeconds));
+        config.put("binaryStorage", new org.bson.BsonBoolean(binaryStorage));
+        config.put("backups", new org.bson.BsonInt32(backups));
+        config.put("metrics", new org.bson.BsonBoolean(metrics));
+        config.put("slowOperationMs", new org.bson.BsonInt32(slowOperationMs));
+        config.put("autoRemoveOrphans", new org.bson.BsonBoolean(autoRemoveOrphans));
 
-        Path path = Universe.get().getPath().resolve(WAYSTONES_FILE);
-        BsonUtil.writeDocument(path, document).join();
-        if (debugLogs) {
-            LOGGER.atInfo().log("Saved %d waystones to %s", array.length, WAYSTONES_FILE);
+        WaystoneStorage target = getStorage();
+        WaystoneEvents.Save event = new WaystoneEvents.Save();
+        event.begin();
+        boolean failed = true;
+        long bytes = 0;
+        try {
+            bytes = target.saveWaystones(config, array);
+            failed = false;
+            return bytes;
+        } finally {
+            if (event.shouldCommit()) {
+                event.save = "waystones";
+                event.storage = target.getName();
+                event.records = array.length;
+                event.bytes = bytes;
+                event.failed = failed;
+                event.commit();
+            }
         }
     }
 
@@ -179,7 +595,13 @@ public class WaystoneRegistry {
      * Registers a new waystone.
      */
     public void register(@Nonnull Waystone waystone) {
-        waystones.put(waystone.getId(), waystone);
+        awaitSnapshot();
+        Waystone previous = waystones.put(waystone.getId(), waystone);
+        if (previous != null && !previous.getWorldName().equals(waystone.getWorldName())) {
+            partitionFor(previous.getWorldName()).remove(previous.getId());
+        }
+        partitionFor(waystone.getWorldName()).put(waystone);
+        version.incrementAndGet();
         save();
         if (debugLogs) {
             LOGGER.atInfo().log("Registered waystone: %s", waystone.getName());
@@ -190,9 +612,14 @@ public class WaystoneRegistry {
      * Unregisters a waystone by ID.
      */
     public boolean unregister(@Nonnull String waystoneId) {
+        awaitSnapshot();
         Waystone removed = waystones.remove(waystoneId);
         if (removed != null) {
+            partitionFor(removed.getWorldName()).remove(waystoneId);
+            version.incrementAndGet();
             save();
+            // Drop it from the discoveries of everyone who found it
+            PlayerDiscoveryRegistry.get().forgetWaystone(waystoneId);
             if (debugLogs) {
                 LOGGER.atInfo().log("Unregistered waystone: %s", removed.getName());
             }
@@ -206,23 +633,128 @@ public class WaystoneRegistry {
      */
     @Nullable
     public Waystone get(@Nonnull String waystoneId) {
-        return waystones.get(waystoneId);
+        WaystoneSnapshot pending = snapshot;
+        return pending != null ? pending.get(waystoneId) : waystones.get(waystoneId);
     }
 
     /**
      * Gets a waystone by block position.
+     * Only the given world's partition is consulted.
      */
     @Nullable
     public Waystone getByPosition(@Nonnull String worldName, double x, double y, double z) {
-        for (Waystone waystone : waystones.values()) {
-            if (waystone.getWorldName().equals(worldName) &&
-                Math.floor(waystone.getX()) == Math.floor(x) &&
-                Math.floor(waystone.getY()) == Math.floor(y) &&
-                Math.floor(waystone.getZ()) == Math.floor(z)) {
-                return waystone;
+        awaitSnapshot();
+        WaystoneWorldPartition partition = partitions.get(worldName);
+        return partition != null ? partition.getByPosition(x, y, z) : null;
+    }
+
+    /**
+     * Gets all waystones in a world.
+     */
+    @Nonnull
+    public Collection<Waystone> getByWorld(@Nonnull String worldName) {
+        awaitSnapshot();
+        WaystoneWorldPartition partition = partitions.get(worldName);
+        return partition != null ? partition.values() : List.of();
+    }
+
+    /**
+     * Builds the lookup indexes for a world's waystones. Called when the world is added.
+     * While a mapped snapshot is still being decoded, the indexing is done once it finishes
+     * rather than holding up the caller.
+     */
+    public void activateWorld(@Nonnull String worldName) {
+        activeWorlds.add(worldName);
+        if (snapshot != null) {
+            materialization.thenRun(() -> indexWorld(worldName));
+            return;
+        }
+        indexWorld(worldName);
+    }
+
+    private void indexWorld(@Nonnull String worldName) {
+        WaystoneWorldPartition partition = partitions.get(worldName);
+        if (partition != null && activeWorlds.contains(worldName)) {
+            partition.activate();
+            if (debugLogs) {
+                LOGGER.atInfo().log("Indexed %d waystones for world %s", partition.size(), worldName);
             }
         }
-        return null;
+    }
+
+    /**
+     * Drops the lookup indexes for a world's waystones. Called when the world is removed.
+     * The waystones themselves stay registered, since names and owner limits are global.
+     * Like {@link #activateWorld}, this doesn't wait for a snapshot being decoded.
+     */
+    public void deactivateWorld(@Nonnull String worldName) {
+        activeWorlds.remove(worldName);
+        if (snapshot != null) {
+            materialization.thenRun(() -> unindexWorld(worldName));
+            return;
+        }
+        unindexWorld(worldName);
+    }
+
+    private void unindexWorld(@Nonnull String worldName) {
+        WaystoneWorldPartition partition = partitions.get(worldName);
+        if (partition != null && !activeWorlds.contains(worldName)) {
+            partition.deactivate();
+            if (debugLogs) {
+                LOGGER.atInfo().log("Dropped waystone indexes for world %s", worldName);
+            }
+        }
+    }
+
+    /**
+     * Finds the k waystones nearest to a point in a world, nearest first.
+     * Uses the world's spatial index, so only the chunk buckets around the point are examined.
+     * Worlds that aren't loaded are answered from a temporary index.
+     *
+     * @param filter Only waystones matching the filter are returned (e.g. visible to a player)
+     */
+    @Nonnull
+    public List<WaystoneSpatialIndex.Hit> getNearest(@Nonnull String worldName, double x, double y, double z,
+                                                     int k, @Nonnull Predicate<Waystone> filter) {
+        awaitSnapshot();
+        WaystoneWorldPartition partition = partitions.get(worldName);
+        if (partition == null) {
+            return List.of();
+        }
+        return partition.nearest(x, y, z, k, id -> {
+            Waystone waystone = waystones.get(id);
+            return waystone != null && filter.test(waystone);
+        });
+    }
+
+    /**
+     * Finds all waystones within a radius of a point in a world, nearest first.
+     *
+     * @param filter Only waystones matching the filter are returned (e.g. visible to a player)
+     */
+    @Nonnull
+    public List<WaystoneSpatialIndex.Hit> getWithinRadius(@Nonnull String worldName, double x, double y, double z,
+                                                          double radius, @Nonnull Predicate<Waystone> filter) {
+        awaitSnapshot();
+        WaystoneWorldPartition partition = partitions.get(worldName);
+        if (partition == null) {
+            return List.of();
+        }
+        return partition.withinRadius(x, y, z, radius, id -> {
+            Waystone waystone = waystones.get(id);
+            return waystone != null && filter.test(waystone);
+        });
+    }
+
+    @Nonnull
+    private WaystoneWorldPartition partitionFor(@Nonnull String worldName) {
+        return partitions.computeIfAbsent(worldName, k -> {
+            WaystoneWorldPartition partition = new WaystoneWorldPartition(k);
+            if (activeWorlds.contains(k)) {
+                partition.activate();
+            }
+            return partition;
+        });
     }
 
     /**
@@ -230,6 +762,7 @@ public class WaystoneRegistry {
      */
     @Nonnull
     public Collection<Waystone> getAll() {
+        awaitSnapshot();
         return Collections.unmodifiableCollection(waystones.values());
     }
 
@@ -238,6 +771,7 @@ public class WaystoneRegistry {
      */
     @Nonnull
     public List<Waystone> getByOwner(@Nonnull String ownerUuid) {
+        awaitSnapshot();
         return waystones.values().stream()
                 .filter(w -> w.getOwnerUuid().equals(ownerUuid))
                 .collect(Collectors.toList());
@@ -248,6 +782,7 @@ public class WaystoneRegistry {
      */
     @Nonnull
     public List<Waystone> getVisibleTo(@Nonnull String playerUuid) {
+        awaitSnapshot();
         return waystones.values().stream()
                 .filter(w -> w.isVisibleTo(playerUuid))
                 .sorted(Comparator.comparingInt(Waystone::getPriority).reversed()
@@ -260,6 +795,7 @@ public class WaystoneRegistry {
      */
     @Nonnull
     public List<Waystone> getPublic() {
+        awaitSnapshot();
         return waystones.values().stream()
                 .filter(Waystone::isPublic)
                 .collect(Collectors.toList());
@@ -284,6 +820,7 @@ public class WaystoneRegistry {
      * @return true if the name is already in use by another waystone
      */
     public boolean isNameTaken(@Nonnull String name, @Nullable String excludeId) {
+        awaitSnapshot();
         String normalizedName = name.trim().toLowerCase();
         for (Waystone waystone : waystones.values()) {
             if (excludeId != null && waystone.getId().equals(excludeId)) {
@@ -324,9 +861,8 @@ public class WaystoneRegistry {
      * Note: Name uniqueness should be validated before calling this method.
      */
     public void updateName(@Nonnull String waystoneId, @Nonnull String newName) {
-        Waystone waystone = waystones.get(waystoneId);
+        Waystone waystone = replace(waystoneId, w -> w.withName(newName));
         if (waystone != null) {
-            waystone.setName(newName);
             save();
             if (debugLogs) {
                 LOGGER.atInfo().log("Updated waystone name to: %s", newName);
@@ -339,9 +875,8 @@ public class WaystoneRegistry {
      * Lower numbers appear first in the list.
      */
     public void updatePriority(@Nonnull String waystoneId, int priority) {
-        Waystone waystone = waystones.get(waystoneId);
+        Waystone waystone = replace(waystoneId, w -> w.withPriority(priority));
         if (waystone != null) {
-            waystone.setPriority(priority);
             save();
             if (debugLogs) {
                 LOGGER.atInfo().log("Updated waystone priority to: %d", priority);
@@ -353,9 +888,8 @@ public class WaystoneRegistry {
      * Updates a waystone's text color.
      */
     public void updateTextColor(@Nonnull String waystoneId, @Nonnull String textColor) {
-        Waystone waystone = waystones.get(waystoneId);
+        Waystone waystone = replace(waystoneId, w -> w.withTextColor(textColor));
         if (waystone != null) {
-            waystone.setTextColor(textColor);
             save();
             if (debugLogs) {
                 LOGGER.atInfo().log("Updated waystone text color to: %s", textColor);
@@ -367,9 +901,8 @@ public class WaystoneRegistry {
      * Updates a waystone's teleport direction.
      */
     public void updateTeleportDirection(@Nonnull String waystoneId, @Nonnull String direction) {
-        Waystone waystone = waystones.get(waystoneId);
+        Waystone waystone = replace(waystoneId, w -> w.withTeleportDirection(direction));
         if (waystone != null) {
-            waystone.setTeleportDirection(direction);
             save();
             if (debugLogs) {
                 LOGGER.atInfo().log("Updated waystone teleport direction to: %s", direction);
@@ -381,9 +914,8 @@ public class WaystoneRegistry {
      * Updates a waystone's player orientation.
      */
     public void updatePlayerOrientation(@Nonnull String waystoneId, @Nonnull String orientation) {
-        Waystone waystone = waystones.get(waystoneId);
+        Waystone waystone = replace(waystoneId, w -> w.withPlayerOrientation(orientation));
         if (waystone != null) {
-            waystone.setPlayerOrientation(orientation);
             save();
             if (debugLogs) {
                 LOGGER.atInfo().log("Updated waystone player orientation to: %s", orientation);
@@ -395,9 +927,8 @@ public class WaystoneRegistry {
      * Updates a waystone's server owned status.
      */
     public void updateServerOwned(@Nonnull String waystoneId, boolean serverOwned) {
-        Waystone waystone = waystones.get(waystoneId);
+        Waystone waystone = replace(waystoneId, w -> w.withServerOwned(serverOwned));
         if (waystone != null) {
-            waystone.setServerOwned(serverOwned);
             save();
             if (debugLogs) {
                 LOGGER.atInfo().log("Updated waystone server owned to: %s", serverOwned);
@@ -409,9 +940,8 @@ public class WaystoneRegistry {
      * Updates a waystone's default discovered status.
      */
     public void updateDefaultDiscovered(@Nonnull String waystoneId, boolean defaultDiscovered) {
-        Waystone waystone = waystones.get(waystoneId);
+        Waystone waystone = replace(waystoneId, w -> w.withDefaultDiscovered(defaultDiscovered));
         if (waystone != null) {
-            waystone.setDefaultDiscovered(defaultDiscovered);
             save();
             if (debugLogs) {
                 LOGGER.atInfo().log("Updated waystone default discovered to: %s", defaultDiscovered);
@@ -426,6 +956,7 @@ public class WaystoneRegistry {
      * @return true if the color was updated and block swapped successfully
      */
     public boolean updateColor(@Nonnull String waystoneId, @Nonnull String color) {
+        awaitSnapshot();
         Waystone waystone = waystones.get(waystoneId);
         if (waystone == null) {
             return false;
@@ -437,7 +968,10 @@ public class WaystoneRegistry {
         }
         
         // Update the waystone color in data
-        waystone.setColor(color);
+        waystone = replace(waystoneId, w -> w.withColor(color));
+        if (waystone == null) {
+            return false;
+        }
         save();
         
         if (debugLogs) {
@@ -448,13 +982,52 @@ public class WaystoneRegistry {
         return true;
     }
 
+    /**
+     * Sets a waystone's visibility.
+     */
+    public void updatePublic(@Nonnull String waystoneId, boolean isPublic) {
+        Waystone waystone = replace(waystoneId, w -> w.withPublic(isPublic));
+        if (waystone != null) {
+            save();
+            if (debugLogs) {
+                LOGGER.atInfo().log("Updated waystone visibility: %s is now %s",
+                        waystone.getName(), isPublic ? "public" : "private");
+            }
+        }
+    }
+
+    /**
+     * Updates a waystone's owner name.
+     */
+    public void updateOwnerName(@Nonnull String waystoneId, @Nonnull String ownerName) {
+        Waystone waystone = replace(waystoneId, w -> w.withOwnerName(ownerName));
+        if (waystone != null) {
+            save();
+            if (debugLogs) {
+                LOGGER.atInfo().log("Updated waystone owner name to: %s", ownerName);
+            }
+        }
+    }
+
+    /**
+     * Updates a waystone's owner UUID.
+     */
+    public void updateOwnerUuid(@Nonnull String waystoneId, @Nonnull String ownerUuid) {
+        Waystone waystone = replace(waystoneId, w -> w.withOwnerUuid(ownerUuid));
+        if (waystone != null) {
+            save();
+            if (debugLogs) {
+                LOGGER.atInfo().log("Updated waystone owner UUID to: %s", ownerUuid);
+            }
+        }
+    }
+
     /**
      * Toggles a waystone's visibility.
      */
     public void toggleVisibility(@Nonnull String waystoneId) {
-        Waystone waystone = waystones.get(waystoneId);
+        Waystone waystone = replace(waystoneId, w -> w.withPublic(!w.isPublic()));
         if (waystone != null) {
-            waystone.setPublic(!waystone.isPublic());
             save();
             if (debugLogs) {
                 LOGGER.atInfo().log("Toggled waystone visibility: %s is now %s",
@@ -467,9 +1040,8 @@ public class WaystoneRegistry {
      * Adds an editor to a waystone.
      */
     public void addEditor(@Nonnull String waystoneId, @Nonnull String playerUuid) {
-        Waystone waystone = waystones.get(waystoneId);
+        Waystone waystone = replace(waystoneId, w -> w.withEditorAdded(playerUuid));
         if (waystone != null) {
-            waystone.addEditor(playerUuid);
             save();
             if (debugLogs) {
                 LOGGER.atInfo().log("Added editor %s to waystone %s", playerUuid, waystone.getName());
@@ -481,9 +1053,8 @@ public class WaystoneRegistry {
      * Removes an editor from a waystone.
      */
     public void removeEditor(@Nonnull String waystoneId, @Nonnull String playerUuid) {
-        Waystone waystone = waystones.get(waystoneId);
+        Waystone waystone = replace(waystoneId, w -> w.withEditorRemoved(playerUuid));
         if (waystone != null) {
-            waystone.removeEditor(playerUuid);
             save();
             if (debugLogs) {
                 LOGGER.atInfo().log("Removed editor %s from waystone %s", playerUuid, waystone.getName());
@@ -495,9 +1066,8 @@ public class WaystoneRegistry {
      * Adds a viewer to a waystone.
      */
     public void addViewer(@Nonnull String waystoneId, @Nonnull String playerUuid) {
-        Waystone waystone = waystones.get(waystoneId);
+        Waystone waystone = replace(waystoneId, w -> w.withViewerAdded(playerUuid));
         if (waystone != null) {
-            waystone.addViewer(playerUuid);
             save();
             if (debugLogs) {
                 LOGGER.atInfo().log("Added viewer %s to waystone %s", playerUuid, waystone.getName());
@@ -509,9 +1079,8 @@ public class WaystoneRegistry {
      * Removes a viewer from a waystone.
      */
     public void removeViewer(@Nonnull String waystoneId, @Nonnull String playerUuid) {
-        Waystone waystone = waystones.get(waystoneId);
+        Waystone waystone = replace(waystoneId, w -> w.withViewerRemoved(playerUuid));
         if (waystone != null) {
-            waystone.removeViewer(playerUuid);
             save();
             if (debugLogs) {
                 LOGGER.atInfo().log("Removed viewer %s from waystone %s", playerUuid, waystone.getName());
@@ -519,10 +1088,43 @@ public class WaystoneRegistry {
         }
     }
 
+    /**
+     * Swaps a waystone for an updated copy.
+     * The swap is atomic per waystone, so concurrent updates to the same waystone are applied one
+     * after the other and readers only ever see a complete old or new version.
+     *
+     * @return The new version, or null if no waystone has the ID
+     */
+    @Nullable
+    private Waystone replace(@Nonnull String waystoneId, @Nonnull UnaryOperator<Waystone> change) {
+        awaitSnapshot();
+        Waystone result = waystones.computeIfPresent(waystoneId, (id, current) -> {
+            Waystone updated = change.apply(current);
+            if (updated != current) {
+                partitionFor(updated.getWorldName()).put(updated);
+            }
+            return updated;
+        });
+        if (result != null) {
+            version.incrementAndGet();
+        }
+        return result;
+    }
+
+    /**
+     * Gets a number that changes whenever a waystone is added, removed or edited, or the
+     * requireDiscover setting changes. Results computed from the registry can be cached against it;
+     * read it before reading the waystones, since it is bumped after the change is made.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
     /**
      * Gets the count of waystones.
      */
     public int count() {
+        awaitSnapshot();
         return waystones.size();
     }
 
@@ -530,7 +1132,8 @@ public class WaystoneRegistry {
      * Checks if a waystone with the given ID exists.
      */
     public boolean exists(@Nonnull String waystoneId) {
-        return waystones.containsKey(waystoneId);
+        WaystoneSnapshot pending = snapshot;
+        return pending != null ? pending.contains(waystoneId) : waystones.containsKey(waystoneId);
     }
     
     /**
@@ -539,6 +1142,7 @@ public class WaystoneRegistry {
      * @return The number of waystones owned by this player
      */
     public int countByOwner(@Nonnull String ownerUuid) {
+        awaitSnapshot();
         return (int) waystones.values().stream()
                 .filter(w -> ownerUuid.equals(w.getOwnerUuid()))
                 .count();
@@ -548,7 +1152,10 @@ public class WaystoneRegistry {
      * Clears all waystones (for testing).
      */
     public void clear() {
+        awaitSnapshot();
         waystones.clear();
+        partitions.clear();
+        version.incrementAndGet();
         save();
     }
 
@@ -163,6 +163,15 @@ public class WaystoneSettingsPage extends InteractiveCustomUIPage<WaystoneSettin
                       @Nonnull UICommandBuilder commandBuilder,
                       @Nonnull UIEventBuilder eventBuilder,
                       @Nonnull Store<EntityStore> store) {
+        try (WaystoneWatchdog.Watch ignored = WaystoneWatchdog.watch("settings build", waystoneId)) {
+            buildPage(ref, commandBuilder, eventBuilder, store);
+        }
+    }
+
+    private void buildPage(@Nonnull Ref<EntityStore> ref,
+                           @Nonnull UICommandBuilder commandBuilder,
+                           @Nonnull UIEventBuilder eventBuilder,
+                           @Nonnull Store<EntityStore> store) {
         commandBuilder.append("Pages/WaystoneSettingsPage.ui");
 
         // Set up all dropdown entries first (before setting values)
@@ -195,7 +204,7 @@ public class WaystoneSettingsPage extends InteractiveCustomUIPage<WaystoneSettin
             commandBuilder.set("#PlayerOrientation #OrientationInput.Value", waystone.getPlayerOrientation());
             commandBuilder.set("#WaystoneColor #ColorInput.Value", waystone.getColor());
         }
-        
+
         // Hide visibility section if user cannot make waystones public
         if (!canMakePublic) {
             commandBuilder.set("#Visibility.Visible", false);
@@ -330,6 +339,14 @@ public class WaystoneSettingsPage extends InteractiveCustomUIPage<WaystoneSettin
     public void handleDataEvent(@Nonnull Ref<EntityStore> ref,
                                 @Nonnull Store<EntityStore> store,
                                 @Nonnull SettingsEventData event) {
+        try (WaystoneWatchdog.Watch ignored = WaystoneWatchdog.watch("settings event", waystoneId)) {
+            handleEvent(ref, store, event);
+        }
+    }
+
+    private void handleEvent(@Nonnull Ref<EntityStore> ref,
+                             @Nonnull Store<EntityStore> store,
+                             @Nonnull SettingsEventData event) {
         // Handle name text field value changes
         if (event.getName() != null) {
             pendingName = event.getName();
@@ -358,7 +375,8 @@ public class WaystoneSettingsPage extends InteractiveCustomUIPage<WaystoneSettin
             }
             Waystone waystone = WaystoneRegistry.get().get(waystoneId);
             if (waystone != null && waystone.isPublic() != isPublic) {
-                WaystoneRegistry.get().toggleVisibility(waystoneId);
+                // Set rather than toggle, so a concurrent change can't flip it back
+                WaystoneRegistry.get().updatePublic(waystoneId, isPublic);
                 rebuild();
             }
             return;
@@ -0,0 +1,190 @@
+package com.example.exampleplugin.waystone;
+
+import org.bson.BsonDocument;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A memory-mapped waystones.bin that decodes records on demand.
+ * Opening one only reads the header, string table, config and record offsets, so the registry
+ * can answer lookups by ID straight away while {@link #materialize(int)} decodes the rest in the background.
+ * Each record is decoded at most once; later lookups return the same instance.
+ * Once everything is decoded, {@link #release()} unmaps the file so saves can replace it.
+ */
+public final class WaystoneSnapshot {
+
+    private final WaystoneBinaryFormat.MappedFile file;
+    private final ByteBuffer buffer;
+    private final String[] strings;
+    private final BsonDocument config;
+    // Absolute buffer position of each record
+    private final int[] positions;
+    private final AtomicReferenceArray<Waystone> decoded;
+    // Waystone ID -> record number, built on the first lookup
+    private volatile Map<String, Integer> idIndex;
+
+    private WaystoneSnapshot(@Nonnull WaystoneBinaryFormat.MappedFile file, @Nonnull String[] strings,
+                             @Nonnull BsonDocument config, @Nonnull int[] positions) {
+        this.file = file;
+        this.buffer = file.buffer();
+        this.strings = strings;
+        this.config = config;
+        this.positions = positions;
+        this.decoded = new AtomicReferenceArray<>(positions.length);
+    }
+
+    /**
+     * Maps a waystones binary file.
+     * Files written before the offset table existed (version 1) are decoded in full here.
+     *
+     * @throws IOException if the file can't be read or is not a waystones file of a supported version
+     */
+    @Nonnull
+    public static WaystoneSnapshot open(@Nonnull Path path) throws IOException {
+        WaystoneBinaryFormat.MappedFile file = WaystoneBinaryFormat.map(path);
+        try {
+            return open(file);
+        } catch (IOException | RuntimeException e) {
+            // Not handed out, so nothing else can be reading it
+            file.close();
+            throw e;
+        }
+    }
+
+    @Nonnull
+    private static WaystoneSnapshot open(@Nonnull WaystoneBinaryFormat.MappedFile file) throws IOException {
+        WaystoneBinaryFormat.Input in = new WaystoneBinaryFormat.Input(file.buffer().duplicate());
+        WaystoneBinaryFormat.Header header = WaystoneBinaryFormat.readHeader(in, WaystoneBinaryFormat.KIND_WAYSTONES);
+        BsonDocument config = WaystoneBinaryFormat.readConfig(in);
+        int count = in.varint();
+        int[] positions = new int[count];
+
+        if (header.version() == WaystoneBinaryFormat.VERSION_SEQUENTIAL) {
+            Waystone[] waystones = new Waystone[count];
+            for (int i = 0; i < count; i++) {
+                positions[i] = in.buffer.position();
+                waystones[i] = WaystoneBinaryFormat.readWaystone(in, header.strings());
+            }
+            WaystoneSnapshot snapshot = new WaystoneSnapshot(file, header.strings(), config, positions);
+            for (int i = 0; i < count; i++) {
+                snapshot.decoded.set(i, waystones[i]);
+            }
+            return snapshot;
+        }
+
+        int recordsStart = in.buffer.position() + count * 4;
+        for (int i = 0; i < count; i++) {
+            positions[i] = recordsStart + in.buffer.getInt();
+        }
+        return new WaystoneSnapshot(file, header.strings(), config, positions);
+    }
+
+    /**
+     * Gets the config section.
+     */
+    @Nonnull
+    public BsonDocument getConfig() {
+        return config;
+    }
+
+    /**
+     * Gets the number of waystones in the snapshot.
+     */
+    public int size() {
+        return positions.length;
+    }
+
+    /**
+     * Gets a waystone by record number, decoding it on first access.
+     */
+    @Nonnull
+    public Waystone get(int index) {
+        Waystone waystone = decoded.get(index);
+        if (waystone == null) {
+            WaystoneBinaryFormat.Input in = new WaystoneBinaryFormat.Input(buffer.duplicate().position(positions[index]));
+            waystone = WaystoneBinaryFormat.readWaystone(in, strings);
+            // Another thread may have decoded it first - keep a single instance
+            if (!decoded.compareAndSet(index, null, waystone)) {
+                waystone = decoded.get(index);
+            }
+        }
+        return waystone;
+    }
+
+    /**
+     * Gets a waystone by ID, decoding only that record.
+     */
+    @Nullable
+    public Waystone get(@Nonnull String waystoneId) {
+        Integer index = getIdIndex().get(waystoneId);
+        return index != null ? get(index) : null;
+    }
+
+    /**
+     * Checks if a waystone is in the snapshot without decoding it.
+     */
+    public boolean contains(@Nonnull String waystoneId) {
+        return getIdIndex().containsKey(waystoneId);
+    }
+
+    /**
+     * Decodes every record that hasn't been decoded yet.
+     * Large snapshots are decoded in parallel chunks; records are independent, and each
+     * chunk reads through its own view of the mapping.
+     *
+     * @param parallelThreshold Record count from which decoding runs in parallel
+     * @return All waystones, in file order
+     */
+    @Nonnull
+    public Waystone[] materialize(int parallelThreshold) {
+        Waystone[] waystones = new Waystone[positions.length];
+        if (positions.length < parallelThreshold) {
+            for (int i = 0; i < positions.length; i++) {
+                waystones[i] = get(i);
+            }
+        } else {
+            Arrays.parallelSetAll(waystones, this::get);
+        }
+        return waystones;
+    }
+
+    /**
+     * Unmaps the file. Call only after {@link #materialize(int)} has returned: lookups then answer
+     * from the decoded records and the ID index, built here if no lookup built it yet, and never
+     * touch the mapping again.
+     */
+    public synchronized void release() {
+        getIdIndex();
+        file.close();
+    }
+
+    @Nonnull
+    private Map<String, Integer> getIdIndex() {
+        Map<String, Integer> index = idIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = idIndex;
+                if (index == null) {
+                    // The ID follows the flags byte, so only the start of each record is read
+                    index = new HashMap<>(positions.length * 2);
+                    ByteBuffer view = buffer.duplicate();
+                    WaystoneBinaryFormat.Input in = new WaystoneBinaryFormat.Input(view);
+                    for (int i = 0; i < positions.length; i++) {
+                        view.position(positions[i] + 1);
+                        index.put(WaystoneBinaryFormat.readId(in, strings), i);
+                    }
+                    idIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+}
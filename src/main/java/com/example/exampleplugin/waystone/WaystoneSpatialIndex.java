@@ -0,0 +1,250 @@
+package com.example.exampleplugin.waystone;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Spatial index for the waystones of a single world.
+ * Waystones are bucketed by the 32x32 chunk column they stand in, so nearest and radius
+ * queries only look at the buckets around the query point instead of every waystone.
+ * Waystone positions never change, so the index stores ids and coordinates only.
+ */
+public class WaystoneSpatialIndex {
+
+    /** Bucket size in blocks - matches the Hytale chunk size. */
+    private static final int CELL_SIZE = 32;
+    private static final int CELL_SHIFT = 5;
+
+    /**
+     * A waystone position in the index.
+     */
+    public record Entry(@Nonnull String waystoneId, double x, double y, double z) {
+        double distanceSquared(double px, double py, double pz) {
+            double dx = x - px;
+            double dy = y - py;
+            double dz = z - pz;
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+
+    /**
+     * A query result with its distance to the query point.
+     */
+    public record Hit(@Nonnull String waystoneId, double distance) {
+    }
+
+    // Packed chunk column (x, z) -> waystones standing in it
+    private final Map<Long, List<Entry>> cells = new HashMap<>();
+    private int size = 0;
+
+    /**
+     * Adds a waystone to the index.
+     */
+    public synchronized void add(@Nonnull Waystone waystone) {
+        Entry entry = new Entry(waystone.getId(), waystone.getX(), waystone.getY(), waystone.getZ());
+        cells.computeIfAbsent(cellKey(entry.x(), entry.z()), k -> new ArrayList<>(2)).add(entry);
+        size++;
+    }
+
+    /**
+     * Removes a waystone from the index.
+     */
+    public synchronized void remove(@Nonnull Waystone waystone) {
+        long key = cellKey(waystone.getX(), waystone.getZ());
+        List<Entry> cell = cells.get(key);
+        if (cell != null && cell.removeIf(e -> e.waystoneId().equals(waystone.getId()))) {
+            size--;
+            if (cell.isEmpty()) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Removes all waystones from the index.
+     */
+    public synchronized void clear() {
+        cells.clear();
+        size = 0;
+    }
+
+    /**
+     * Gets the number of waystones in the index.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Finds the k waystones closest to a point, nearest first.
+     * Buckets are visited in rings of increasing distance and the search stops as soon as
+     * no unvisited bucket can contain anything closer than the current k-th result.
+     *
+     * @param accept Filter applied to each candidate id (e.g. visibility); rejected ids don't count towards k
+     */
+    @Nonnull
+    public synchronized List<Hit> nearest(double x, double y, double z, int k,
+                                          @Nonnull Predicate<String> accept) {
+        if (k <= 0 || size == 0) {
+            return List.of();
+        }
+        // Max-heap on distance so the worst of the current best k is at the head
+        PriorityQueue<Hit> best = new PriorityQueue<>(Comparator.comparingDouble(Hit::distance).reversed());
+        int cx = (int) Math.floor(x) >> CELL_SHIFT;
+        int cz = (int) Math.floor(z) >> CELL_SHIFT;
+
+        int visitedCells = 0;
+        for (int ring = 0; ; ring++) {
+            // Every block in ring R is at least (R - 1) cells away horizontally
+            double ringLowerBound = Math.max(0, ring - 1) * (double) CELL_SIZE;
+            if (best.size() >= k && ringLowerBound > best.peek().distance()) {
+                break;
+            }
+            if (visitedCells >= cells.size()) {
+                break; // Every occupied bucket has been seen
+            }
+            int ringCells = ring == 0 ? 1 : 8 * ring;
+            if (ringCells > cells.size()) {
+                // Rings are now larger than the set of occupied buckets - finish by walking the
+                // remaining occupied buckets in order of their lower bound instead
+                finishFromOccupiedCells(x, y, z, k, accept, best, cx, cz, ring);
+                break;
+            }
+            visitedCells += scanRing(x, y, z, k, accept, best, cx, cz, ring);
+        }
+
+        List<Hit> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(Hit::distance));
+        return result;
+    }
+
+    /**
+     * Finds all waystones within a radius of a point, nearest first.
+     */
+    @Nonnull
+    public synchronized List<Hit> withinRadius(double x, double y, double z, double radius,
+                                               @Nonnull Predicate<String> accept) {
+        if (radius < 0 || size == 0) {
+            return List.of();
+        }
+        double radiusSquared = radius * radius;
+        List<Hit> result = new ArrayList<>();
+        int minCx = (int) Math.floor(x - radius) >> CELL_SHIFT;
+        int maxCx = (int) Math.floor(x + radius) >> CELL_SHIFT;
+        int minCz = (int) Math.floor(z - radius) >> CELL_SHIFT;
+        int maxCz = (int) Math.floor(z + radius) >> CELL_SHIFT;
+        long squareCells = (long) (maxCx - minCx + 1) * (maxCz - minCz + 1);
+
+        if (squareCells <= cells.size()) {
+            for (int cellX = minCx; cellX <= maxCx; cellX++) {
+                for (int cellZ = minCz; cellZ <= maxCz; cellZ++) {
+                    collectInRadius(cells.get(packCell(cellX, cellZ)), x, y, z, radiusSquared, accept, result);
+                }
+            }
+        } else {
+            // Huge radius - cheaper to check each occupied bucket than each cell in the square
+            for (Map.Entry<Long, List<Entry>> cell : cells.entrySet()) {
+                int cellX = cellX(cell.getKey());
+                int cellZ = cellZ(cell.getKey());
+                if (cellX >= minCx && cellX <= maxCx && cellZ >= minCz && cellZ <= maxCz) {
+                    collectInRadius(cell.getValue(), x, y, z, radiusSquared, accept, result);
+                }
+            }
+        }
+
+        result.sort(Comparator.comparingDouble(Hit::distance));
+        return result;
+    }
+
+    private int scanRing(double x, double y, double z, int k, Predicate<String> accept,
+                         PriorityQueue<Hit> best, int cx, int cz, int ring) {
+        int visited = 0;
+        if (ring == 0) {
+            return offerCell(cells.get(packCell(cx, cz)), x, y, z, k, accept, best);
+        }
+        // Top and bottom rows of the ring, then the left and right columns without their corners
+        for (int dx = -ring; dx <= ring; dx++) {
+            visited += offerCell(cells.get(packCell(cx + dx, cz - ring)), x, y, z, k, accept, best);
+            visited += offerCell(cells.get(packCell(cx + dx, cz + ring)), x, y, z, k, accept, best);
+        }
+        for (int dz = -ring + 1; dz <= ring - 1; dz++) {
+            visited += offerCell(cells.get(packCell(cx - ring, cz + dz)), x, y, z, k, accept, best);
+            visited += offerCell(cells.get(packCell(cx + ring, cz + dz)), x, y, z, k, accept, best);
+        }
+        return visited;
+    }
+
+    private void finishFromOccupiedCells(double x, double y, double z, int k, Predicate<String> accept,
+                                         PriorityQueue<Hit> best, int cx, int cz, int fromRing) {
+        List<Map.Entry<Long, List<Entry>>> remaining = new ArrayList<>();
+        for (Map.Entry<Long, List<Entry>> cell : cells.entrySet()) {
+            if (ringOf(cell.getKey(), cx, cz) >= fromRing) {
+                remaining.add(cell);
+            }
+        }
+        remaining.sort(Comparator.comparingInt(cell -> ringOf(cell.getKey(), cx, cz)));
+        for (Map.Entry<Long, List<Entry>> cell : remaining) {
+            double lowerBound = Math.max(0, ringOf(cell.getKey(), cx, cz) - 1) * (double) CELL_SIZE;
+            if (best.size() >= k && lowerBound > best.peek().distance()) {
+                break;
+            }
+            offerCell(cell.getValue(), x, y, z, k, accept, best);
+        }
+    }
+
+    private static int offerCell(List<Entry> cell, double x, double y, double z, int k,
+                                 Predicate<String> accept, PriorityQueue<Hit> best) {
+        if (cell == null) {
+            return 0;
+        }
+        for (Entry entry : cell) {
+            double distance = Math.sqrt(entry.distanceSquared(x, y, z));
+            if (best.size() >= k && distance >= best.peek().distance()) {
+                continue;
+            }
+            if (!accept.test(entry.waystoneId())) {
+                continue;
+            }
+            best.add(new Hit(entry.waystoneId(), distance));
+            if (best.size() > k) {
+                best.poll();
+            }
+        }
+        return 1;
+    }
+
+    private static void collectInRadius(List<Entry> cell, double x, double y, double z, double radiusSquared,
+                                        Predicate<String> accept, List<Hit> result) {
+        if (cell == null) {
+            return;
+        }
+        for (Entry entry : cell) {
+            double distanceSquared = entry.distanceSquared(x, y, z);
+            if (distanceSquared <= radiusSquared && accept.test(entry.waystoneId())) {
+                result.add(new Hit(entry.waystoneId(), Math.sqrt(distanceSquared)));
+            }
+        }
+    }
+
+    private static int ringOf(long cellKey, int cx, int cz) {
+        return Math.max(Math.abs(cellX(cellKey) - cx), Math.abs(cellZ(cellKey) - cz));
+    }
+
+    private static long cellKey(double x, double z) {
+        // Chunks in Hytale are 32x32, so we use >> 5 (divide by 32)
+        return packCell((int) Math.floor(x) >> CELL_SHIFT, (int) Math.floor(z) >> CELL_SHIFT);
+    }
+
+    private static long packCell(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    private static int cellX(long cellKey) {
+        return (int) (cellKey >> 32);
+    }
+
+    private static int cellZ(long cellKey) {
+        return (int) cellKey;
+    }
+}
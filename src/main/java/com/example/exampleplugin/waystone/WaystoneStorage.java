@@ -0,0 +1,83 @@
+package com.example.exampleplugin.waystone;
+
+import org.bson.BsonDocument;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where {@link WaystoneRegistry} and {@link PlayerDiscoveryRegistry} keep their data.
+ * The registries hold everything in memory and hand the storage a full copy on each save;
+ * implementations decide how much of it actually has to be written.
+ * Saves are called from the persistence thread, one at a time.
+ */
+public interface WaystoneStorage {
+
+    /**
+     * Loaded waystones and config. Exactly one of waystones and snapshot is set; a snapshot is
+     * decoded by the registry in the background.
+     */
+    record LoadedWaystones(@Nonnull BsonDocument config, @Nullable Waystone[] waystones,
+                           @Nullable WaystoneSnapshot snapshot) {
+    }
+
+    /**
+     * A discovery added or removed since the last save.
+     */
+    record DiscoveryChange(@Nonnull String playerUuid, @Nonnull String waystoneId, boolean discovered) {
+    }
+
+    /**
+     * Gets a short name for logs and commands (e.g. "json", "sql").
+     */
+    @Nonnull
+    String getName();
+
+    /**
+     * Loads the waystones and config.
+     *
+     * @return The stored data, or null if nothing has been stored yet
+     */
+    @Nullable
+    LoadedWaystones loadWaystones() throws IOException;
+
+    /**
+     * Stores the config and every waystone.
+     *
+     * @return Bytes written, or 0 if the storage can't tell
+     */
+    long saveWaystones(@Nonnull BsonDocument config, @Nonnull Waystone[] waystones) throws IOException;
+
+    /**
+     * Loads player discoveries (player UUID -> discovered waystone IDs).
+     *
+     * @return The stored data, or null if nothing has been stored yet
+     */
+    @Nullable
+    Map<String, List<String>> loadDiscoveries() throws IOException;
+
+    /**
+     * Stores player discoveries.
+     *
+     * @param discoveries Every player's discoveries
+     * @param changes     Changes since the last save, or null to write everything; only passed
+     *                    to storages that are {@link #isIncremental()}
+     * @return Bytes written, or 0 if the storage can't tell
+     */
+    long saveDiscoveries(@Nonnull Map<String, ? extends Collection<String>> discoveries,
+                         @Nullable List<DiscoveryChange> changes) throws IOException;
+
+    /**
+     * Checks if discoveries are saved from the change list. If not, the registry doesn't collect it.
+     */
+    boolean isIncremental();
+
+    /**
+     * Releases the storage. Called when switching to another storage.
+     */
+    void close();
+}
@@ -0,0 +1,231 @@
+package com.example.exampleplugin.waystone;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Catches waystone entry points (page builds, page events, block event systems, commands) that run
+ * longer than the slowOperationMs budget, usually on a world thread where that shows up as a hitch.
+ * <p>
+ * Wrap the entry point in {@link #watch}. While it runs, the "Waystones-Watchdog" thread samples the
+ * stack of any operation that has gone over budget, so the log shows where it was stuck rather than
+ * where it ended. Each operation name logs at most once per {@link #LOG_INTERVAL_MS}; the rest are
+ * counted and shown in /waystones stats.
+ */
+public final class WaystoneWatchdog {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+    /** Default budget; a world tick is about 33 ms. */
+    public static final int DEFAULT_BUDGET_MS = 50;
+    /** Longest budget that can be configured. */
+    public static final int MAX_BUDGET_MS = 60_000;
+    /** Minimum time between two logged slow operations with the same name. */
+    private static final long LOG_INTERVAL_MS = 30_000;
+    /** How often in-flight operations are checked against the budget. */
+    private static final long CHECK_INTERVAL_MS = 10;
+    /** Stack frames included in the log. */
+    private static final int MAX_FRAMES = 30;
+
+    private static volatile long budgetNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_BUDGET_MS);
+    private static final Object lock = new Object();
+    private static ScheduledExecutorService executor;
+
+    // Outermost watched operation per thread
+    private static final Map<Thread, Watch> ACTIVE = new ConcurrentHashMap<>();
+    // Operation name -> slow operations seen
+    private static final Map<String, SlowStats> SLOW = new ConcurrentSkipListMap<>();
+
+    private static final Watch NONE = new Watch(null, null, null, 0);
+
+    /**
+     * A watched operation; close it when the operation ends.
+     */
+    public static final class Watch implements AutoCloseable {
+        private final String operation;
+        private final Object context;
+        private final Thread thread;
+        private final long start;
+        // Sampled by the watchdog thread once the operation is over budget
+        private volatile StackTraceElement[] stack;
+
+        private Watch(String operation, Object context, Thread thread, long start) {
+            this.operation = operation;
+            this.context = context;
+            this.thread = thread;
+            this.start = start;
+        }
+
+        @Override
+        public void close() {
+            if (this == NONE) {
+                return;
+            }
+            ACTIVE.remove(thread, this);
+            long elapsed = System.nanoTime() - start;
+            long budget = budgetNanos;
+            if (budget > 0 && elapsed > budget) {
+                reportSlow(this, elapsed);
+            }
+        }
+    }
+
+    private static final class SlowStats {
+        final LongAdder count = new LongAdder();
+        final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        final AtomicLong lastLogged = new AtomicLong();
+        final LongAdder suppressed = new LongAdder();
+        volatile long lastSeen;
+    }
+
+    private WaystoneWatchdog() {
+    }
+
+    /**
+     * Starts watching an operation on the current thread. Operations nested inside another watched
+     * operation are covered by the outer one.
+     *
+     * @param operation Short name for the entry point, e.g. "list build"
+     * @param context   Shown in the log if the operation is slow (player, waystone, ...); only
+     *                  converted to a string then
+     */
+    @Nonnull
+    public static Watch watch(@Nonnull String operation, @Nullable Object context) {
+        if (budgetNanos <= 0) {
+            return NONE;
+        }
+        Thread thread = Thread.currentThread();
+        Watch watch = new Watch(operation, context, thread, System.nanoTime());
+        return ACTIVE.putIfAbsent(thread, watch) == null ? watch : NONE;
+    }
+
+    /**
+     * Gets the budget in milliseconds; 0 means the watchdog is off.
+     */
+    public static int getBudgetMs() {
+        return (int) TimeUnit.NANOSECONDS.toMillis(budgetNanos);
+    }
+
+    /**
+     * Sets the budget. Called from the registry config.
+     */
+    public static void setBudgetMs(int budgetMs) {
+        budgetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, Math.min(budgetMs, MAX_BUDGET_MS)));
+    }
+
+    private static void reportSlow(@Nonnull Watch watch, long elapsed) {
+        SlowStats stats = SLOW.computeIfAbsent(watch.operation, k -> new SlowStats());
+        stats.count.increment();
+        stats.max.accumulate(elapsed);
+        long now = System.currentTimeMillis();
+        stats.lastSeen = now;
+
+        long last = stats.lastLogged.get();
+        if (now - last < LOG_INTERVAL_MS || !stats.lastLogged.compareAndSet(last, now)) {
+            stats.suppressed.increment();
+            return;
+        }
+        long suppressed = stats.suppressed.sumThenReset();
+        StackTraceElement[] stack = watch.stack;
+        String where = stack != null ? "stack while over budget" : "stack at end";
+        if (stack == null) {
+            stack = Thread.currentThread().getStackTrace();
+        }
+        LOGGER.atWarning().log("Slow waystone operation '%s' took %.1f ms (budget %d ms) on %s, context: %s%s; %s:%s",
+                watch.operation, elapsed / 1_000_000.0, getBudgetMs(), watch.thread.getName(), watch.context,
+                suppressed > 0 ? " (" + suppressed + " more since last report)" : "", where, formatStack(stack));
+    }
+
+    @Nonnull
+    private static String formatStack(@Nonnull StackTraceElement[] stack) {
+        StringBuilder builder = new StringBuilder();
+        int frames = Math.min(stack.length, MAX_FRAMES);
+        for (int i = 0; i < frames; i++) {
+            builder.append("\n\tat ").append(stack[i]);
+        }
+        if (stack.length > frames) {
+            builder.append("\n\t... ").append(stack.length - frames).append(" more");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Samples the stack of every in-flight operation that has just gone over budget.
+     */
+    private static void check() {
+        long budget = budgetNanos;
+        if (budget <= 0 || ACTIVE.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (Watch watch : ACTIVE.values()) {
+            if (watch.stack == null && now - watch.start > budget) {
+                watch.stack = watch.thread.getStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Describes the slow operations seen since startup, one line per operation name.
+     */
+    @Nonnull
+    public static List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        if (budgetNanos <= 0) {
+            lines.add("Watchdog: off (enable with /waystones config slowOperationMs <ms>)");
+            return lines;
+        }
+        if (SLOW.isEmpty()) {
+            lines.add("Watchdog: no operations over " + getBudgetMs() + " ms");
+            return lines;
+        }
+        lines.add("Watchdog: operations over " + getBudgetMs() + " ms");
+        long now = System.currentTimeMillis();
+        SLOW.forEach((operation, stats) -> lines.add(String.format("  %s: %d slow, max %.1f ms, last %ds ago",
+                operation, stats.count.sum(), stats.max.get() / 1_000_000.0, (now - stats.lastSeen) / 1000)));
+        return lines;
+    }
+
+    /**
+     * Starts the watchdog thread. Called once during plugin setup.
+     */
+    public static void start() {
+        synchronized (lock) {
+            if (executor != null) {
+                return;
+            }
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "Waystones-Watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleWithFixedDelay(WaystoneWatchdog::check,
+                    CHECK_INTERVAL_MS, CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the watchdog thread.
+     */
+    public static void stop() {
+        synchronized (lock) {
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+            ACTIVE.clear();
+        }
+    }
+}
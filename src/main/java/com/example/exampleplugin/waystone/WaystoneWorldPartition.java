@@ -0,0 +1,181 @@
+package com.example.exampleplugin.waystone;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * The waystones of a single world, with that world's lookup indexes.
+ * Records stay resident for every known world, because names and owner limits are global.
+ * The block-position and spatial indexes are only built while the world is loaded
+ * and are dropped again when it unloads.
+ */
+public class WaystoneWorldPartition {
+
+    private final String worldName;
+    private final Map<String, Waystone> waystones = new ConcurrentHashMap<>();
+
+    // Indexes - only present while the world is active
+    @Nullable
+    private volatile Map<Long, String> blockIndex;
+    @Nullable
+    private volatile WaystoneSpatialIndex spatialIndex;
+
+    public WaystoneWorldPartition(@Nonnull String worldName) {
+        this.worldName = worldName;
+    }
+
+    @Nonnull
+    public String getWorldName() {
+        return worldName;
+    }
+
+    /**
+     * Checks if this world's indexes are loaded.
+     */
+    public boolean isActive() {
+        return spatialIndex != null;
+    }
+
+    /**
+     * Builds this world's indexes. Called when the world loads.
+     */
+    public synchronized void activate() {
+        if (spatialIndex != null) {
+            return;
+        }
+        Map<Long, String> blocks = new ConcurrentHashMap<>();
+        WaystoneSpatialIndex spatial = new WaystoneSpatialIndex();
+        for (Waystone waystone : waystones.values()) {
+            blocks.put(blockKey(waystone.getX(), waystone.getY(), waystone.getZ()), waystone.getId());
+            spatial.add(waystone);
+        }
+        blockIndex = blocks;
+        spatialIndex = spatial;
+    }
+
+    /**
+     * Drops this world's indexes. Called when the world unloads.
+     */
+    public synchronized void deactivate() {
+        blockIndex = null;
+        spatialIndex = null;
+    }
+
+    /**
+     * Adds or replaces a waystone.
+     * @return The waystone previously stored under the same ID, if any
+     */
+    @Nullable
+    public synchronized Waystone put(@Nonnull Waystone waystone) {
+        Waystone previous = waystones.put(waystone.getId(), waystone);
+        if (spatialIndex != null) {
+            if (previous != null) {
+                spatialIndex.remove(previous);
+                blockIndex.remove(blockKey(previous.getX(), previous.getY(), previous.getZ()), previous.getId());
+            }
+            spatialIndex.add(waystone);
+            blockIndex.put(blockKey(waystone.getX(), waystone.getY(), waystone.getZ()), waystone.getId());
+        }
+        return previous;
+    }
+
+    /**
+     * Removes a waystone by ID.
+     * @return The removed waystone, or null if it wasn't in this world
+     */
+    @Nullable
+    public synchronized Waystone remove(@Nonnull String waystoneId) {
+        Waystone removed = waystones.remove(waystoneId);
+        if (removed != null && spatialIndex != null) {
+            spatialIndex.remove(removed);
+            blockIndex.remove(blockKey(removed.getX(), removed.getY(), removed.getZ()), removed.getId());
+        }
+        return removed;
+    }
+
+    @Nullable
+    public Waystone get(@Nonnull String waystoneId) {
+        return waystones.get(waystoneId);
+    }
+
+    /**
+     * Gets the waystone standing on a block position.
+     * O(1) while the world is active, otherwise a scan of this world's waystones only.
+     */
+    @Nullable
+    public Waystone getByPosition(double x, double y, double z) {
+        Map<Long, String> blocks = blockIndex;
+        if (blocks != null) {
+            String id = blocks.get(blockKey(x, y, z));
+            return id != null ? waystones.get(id) : null;
+        }
+        for (Waystone waystone : waystones.values()) {
+            if (Math.floor(waystone.getX()) == Math.floor(x) &&
+                Math.floor(waystone.getY()) == Math.floor(y) &&
+                Math.floor(waystone.getZ()) == Math.floor(z)) {
+                return waystone;
+            }
+        }
+        return null;
+    }
+
+    @Nonnull
+    public List<WaystoneSpatialIndex.Hit> nearest(double x, double y, double z, int k, @Nonnull Predicate<String> accept) {
+        return spatialIndexOrTemporary().nearest(x, y, z, k, accept);
+    }
+
+    @Nonnull
+    public List<WaystoneSpatialIndex.Hit> withinRadius(double x, double y, double z, double radius, @Nonnull Predicate<String> accept) {
+        return spatialIndexOrTemporary().withinRadius(x, y, z, radius, accept);
+    }
+
+    /**
+     * Gets a live, read-only view of this world's waystones.
+     */
+    @Nonnull
+    public Collection<Waystone> values() {
+        return Collections.unmodifiableCollection(waystones.values());
+    }
+
+    public int size() {
+        return waystones.size();
+    }
+
+    public synchronized void clear() {
+        waystones.clear();
+        if (spatialIndex != null) {
+            spatialIndex.clear();
+            blockIndex.clear();
+        }
+    }
+
+    @Nonnull
+    private WaystoneSpatialIndex spatialIndexOrTemporary() {
+        WaystoneSpatialIndex index = spatialIndex;
+        if (index != null) {
+            return index;
+        }
+        // World isn't loaded - answer from a throwaway index rather than keeping one around
+        WaystoneSpatialIndex temporary = new WaystoneSpatialIndex();
+        for (Waystone waystone : waystones.values()) {
+            temporary.add(waystone);
+        }
+        return temporary;
+    }
+
+    /**
+     * Packs a block position into a long: 26 bits each for X and Z, 12 bits for Y.
+     */
+    private static long blockKey(double x, double y, double z) {
+        long bx = (long) Math.floor(x) & 0x3FFFFFFL;
+        long bz = (long) Math.floor(z) & 0x3FFFFFFL;
+        long by = (long) Math.floor(y) & 0xFFFL;
+        return (bx << 38) | (bz << 12) | by;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.exampleplugin.waystone;
+
+import org.bson.BsonBoolean;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the JSON save, which splices each waystone's cached text into the file, writes exactly
+ * what rendering the whole document at once would.
+ */
+class FileWaystoneStorageJsonTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void splicedSaveMatchesFullRender() throws IOException {
+        FileWaystoneStorage storage = new FileWaystoneStorage(directory);
+        BsonDocument config = new BsonDocument();
+        config.put("binaryStorage", new BsonBoolean(false));
+        config.put("backups", new BsonInt32(0));
+
+        Waystone[] waystones = waystones(5);
+        assertSavedAsFullRender(storage, config, waystones);
+
+        // One changed, one removed: the rest come from the cache
+        waystones[2] = waystones[2].withName("Renamed \"quoted\"\nline");
+        Waystone[] fewer = new Waystone[4];
+        System.arraycopy(waystones, 0, fewer, 0, 4);
+        assertSavedAsFullRender(storage, config, fewer);
+
+        assertSavedAsFullRender(storage, config, new Waystone[0]);
+    }
+
+    private void assertSavedAsFullRender(FileWaystoneStorage storage, BsonDocument config, Waystone[] waystones)
+            throws IOException {
+        storage.saveWaystones(config, waystones);
+
+        BsonDocument document = new BsonDocument();
+        document.put("Config", config);
+        document.put("Waystones", Waystone.ARRAY_CODEC.encode(waystones));
+        String written = Files.readString(directory.resolve(FileWaystoneStorage.WAYSTONES_FILE), StandardCharsets.UTF_8);
+        assertEquals(WaystoneFiles.toJson(document), written);
+    }
+
+    private static Waystone[] waystones(int count) {
+        Waystone[] waystones = new Waystone[count];
+        Instant createdAt = Instant.ofEpochSecond(1_700_000_000L);
+        String owner = UUID.randomUUID().toString();
+        for (int i = 0; i < count; i++) {
+            waystones[i] = new Waystone(UUID.randomUUID().toString(), "Waystone " + i, "default",
+                    i * 16 + 0.5, 64, 0.5, 0f, owner, "Owner", true, createdAt);
+        }
+        return waystones;
+    }
+}
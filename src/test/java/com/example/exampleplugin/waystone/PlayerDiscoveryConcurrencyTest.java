@@ -0,0 +1,135 @@
+package com.example.exampleplugin.waystone;
+
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hammers {@link PlayerDiscoveryRegistry} from many threads, as players on different world threads
+ * would, while saves run on the persistence thread. Runs against an {@link InMemoryWaystoneStorage}.
+ */
+class PlayerDiscoveryConcurrencyTest {
+
+    private static final int WAYSTONES = 200;
+    private static final int PLAYERS = 500;
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 20_000;
+
+    private static final InMemoryWaystoneStorage storage = new InMemoryWaystoneStorage(
+            new BsonDocument(), waystones(), Map.of());
+    private static String[] waystoneIds;
+    private static String[] players;
+
+    @BeforeAll
+    static void setUp() {
+        WaystoneRegistry.get().setStorage(storage);
+        WaystoneRegistry.get().load();
+        PlayerDiscoveryRegistry.get().load();
+        WaystonePersistence.get().start();
+
+        waystoneIds = WaystoneRegistry.get().getAll().stream().map(Waystone::getId).toArray(String[]::new);
+        players = new String[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++) {
+            players[i] = UUID.randomUUID().toString();
+        }
+    }
+
+    @Test
+    void concurrentDiscoverForgetAndSave() throws Exception {
+        PlayerDiscoveryRegistry discoveries = PlayerDiscoveryRegistry.get();
+        long failuresBefore = WaystonePersistence.get().getStats().failures();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> tasks = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            tasks.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    String player = players[random.nextInt(PLAYERS)];
+                    int action = random.nextInt(100);
+                    if (action < 80) {
+                        discoveries.discoverWaystone(player, waystoneIds[random.nextInt(WAYSTONES)]);
+                    } else if (action < 82) {
+                        discoveries.forgetWaystone(waystoneIds[random.nextInt(WAYSTONES)]);
+                    } else {
+                        // Readers iterate while others write
+                        int count = 0;
+                        for (String ignored : discoveries.getDiscoveredWaystones(player)) {
+                            count++;
+                        }
+                        assertTrue(count <= WAYSTONES);
+                    }
+                }
+                return null;
+            }));
+        }
+        // Saves queued on top of the ones each discovery requests
+        tasks.add(pool.submit(() -> {
+            start.await();
+            for (int i = 0; i < 200; i++) {
+                discoveries.save();
+                Thread.sleep(1);
+            }
+            return null;
+        }));
+
+        start.countDown();
+        for (Future<?> task : tasks) {
+            task.get(2, TimeUnit.MINUTES); // Rethrows anything a worker threw
+        }
+        pool.shutdown();
+
+        // A last save after everything settled must match memory exactly
+        discoveries.save();
+        assertTrue(WaystonePersistence.get().flush(30_000), "saves did not finish");
+        assertEquals(failuresBefore, WaystonePersistence.get().getStats().failures(), "a save failed");
+
+        Map<String, List<String>> saved = storage.loadDiscoveries();
+        Map<String, Integer> discovererCounts = new HashMap<>();
+        for (String player : players) {
+            Set<String> inMemory = discoveries.getDiscoveredWaystones(player);
+            List<String> onDisk = saved.getOrDefault(player, List.of());
+            assertEquals(inMemory, new HashSet<>(onDisk), "saved discoveries differ for " + player);
+            assertEquals(onDisk.size(), new HashSet<>(onDisk).size(), "duplicate IDs saved for " + player);
+            for (String waystoneId : inMemory) {
+                discovererCounts.merge(waystoneId, 1, Integer::sum);
+            }
+        }
+        // The reverse index must agree with the per-player sets
+        for (String waystoneId : waystoneIds) {
+            assertEquals(discovererCounts.getOrDefault(waystoneId, 0), discoveries.getDiscovererCount(waystoneId),
+                    "discoverer count differs for " + waystoneId);
+        }
+    }
+
+    private static Waystone[] waystones() {
+        Waystone[] waystones = new Waystone[WAYSTONES];
+        Instant createdAt = Instant.ofEpochSecond(1_700_000_000L);
+        String owner = UUID.randomUUID().toString();
+        for (int i = 0; i < WAYSTONES; i++) {
+            waystones[i] = new Waystone(UUID.randomUUID().toString(), "Waystone " + i, "default",
+                    i * 16 + 0.5, 64, 0.5, 0f, owner, "Owner", true, createdAt);
+        }
+        return waystones;
+    }
+}